@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.math;
+
+/**
+ * Static helpers to pack a 2D point into a single primitive, to store many of them without
+ * allocating a {@link Point} each.
+ * <p>
+ * Points packed in an int must have both coordinates in [0, 65535]. Points packed in a long
+ * can have any int coordinates.
+ */
+public final class PackedPoint
+{
+    private PackedPoint()
+    {
+    }
+
+    public static int pack(final int x, final int y)
+    {
+        return (x << 16) | (y & 0xFFFF);
+    }
+
+    public static int x(final int packed)
+    {
+        return packed >>> 16;
+    }
+
+    public static int y(final int packed)
+    {
+        return packed & 0xFFFF;
+    }
+
+    public static long packLong(final int x, final int y)
+    {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    public static int x(final long packed)
+    {
+        return (int) (packed >> 32);
+    }
+
+    public static int y(final long packed)
+    {
+        return (int) packed;
+    }
+}
@@ -9,17 +9,34 @@ package rlforj.pathfinding;
 import rlforj.IBoard;
 import rlforj.math.Point;
 import rlforj.util.HeapNode;
-import rlforj.util.SimpleHeap;
-
-import java.util.ArrayList;
+import rlforj.util.IndexedHeap;
 
 public class AStar implements IPathAlgorithm
 {
+    /**
+     * Cost of an orthogonal step. Costs are integers, so that they add up exactly.
+     */
+    public static final int STRAIGHT_COST = 100;
+
+    /**
+     * Cost of a diagonal step.
+     */
+    public static final int DIAGONAL_COST = 110;
+
+    // result of a search that ran out of budget before finding the end or exhausting the open list
+    static final int SEARCHING = -2;
+
     private final IBoard  map;
     private final int     boardWidth;
     private final int     boardHeight;
     private final boolean allowDiagonal;
 
+    private final ThreadLocal<SearchWorkspace> workspaces;
+
+    private ConnectivityIndex connectivity;
+    private IHeuristic        heuristic;
+    private ClearanceMap      clearance;
+
     public AStar(final IBoard map, final int boardWidth, final int boardHeight)
     {
         this(map, boardWidth, boardHeight, true);
@@ -31,6 +48,111 @@ public class AStar implements IPathAlgorithm
         this.boardWidth = boardWidth;
         this.boardHeight = boardHeight;
         this.allowDiagonal = allowDiagonal;
+
+        this.workspaces = ThreadLocal.withInitial(() -> new SearchWorkspace(boardWidth, boardHeight));
+    }
+
+    /**
+     * Sets an index of the connected components of the board, consulted before each search: if
+     * the end cannot be reached, the search fails immediately instead of flooding the whole area
+     * reachable from the start. The index must be kept up to date with the board.
+     *
+     * @param connectivity an index with the same connectivity as this AStar, or null to disable it
+     */
+    public void setConnectivityIndex(final ConnectivityIndex connectivity)
+    {
+        if (connectivity != null && connectivity.isDiagonal() != allowDiagonal)
+            throw new IllegalArgumentException("the index connectivity does not match the diagonal movement");
+
+        this.connectivity = connectivity;
+    }
+
+    /**
+     * Replaces the default heuristic, eg with a {@link LandmarkHeuristic}. An admissible heuristic makes all
+     * searches optimal, and bounded searches stay within their bound.
+     *
+     * @param heuristic a heuristic with the same movement rules as this AStar, or null for the default one
+     */
+    public void setHeuristic(final IHeuristic heuristic)
+    {
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * Sets the clearance of the board, needed to find paths for agents larger than one cell. It must be kept up
+     * to date with the board.
+     *
+     * @param clearance the clearance of the board, or null to disable it
+     */
+    public void setClearanceMap(final ClearanceMap clearance)
+    {
+        this.clearance = clearance;
+    }
+
+    /**
+     * Finds a path whose cost is at most (1 + epsilon) times the optimal one, using weighted A*. With
+     * epsilon 0 the path is optimal; larger values let the search head straight for the end and expand
+     * far fewer nodes, so cheap agents can use a large epsilon while important ones use 0.
+     * <p>
+     * The other findPath methods use a faster heuristic than epsilon 0, but with no bound on the cost.
+     *
+     * @param epsilon allowed relative excess over the optimal cost, not negative
+     */
+    public Point[] findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                            final double epsilon)
+    {
+        final SearchWorkspace workspace = workspaces.get();
+        final int             end       = search(startX, startY, endX, endY, radius, weight(epsilon), 1, workspace);
+
+        return end < 0 ? null : workspace.toPoints(end);
+    }
+
+    /**
+     * As {@link #findPath(int, int, int, int, int, double)}, passing the points to the sink.
+     *
+     * @return the length of the path, or -1 if there is none
+     */
+    public int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                        final double epsilon, final IPathSink sink)
+    {
+        final SearchWorkspace workspace = workspaces.get();
+        final int             end       = search(startX, startY, endX, endY, radius, weight(epsilon), 1, workspace);
+
+        return end < 0 ? -1 : workspace.toSink(end, sink);
+    }
+
+    /**
+     * Finds a path for an agent of size n, occupying n x n cells from its position to the right and down: every
+     * cell of the path, except the end, must have a clearance of at least n in the {@link ClearanceMap}, which
+     * is then one byte comparison per neighbour instead of n * n obstacle checks. The cost bound is the same
+     * as {@link #findPath(int, int, int, int, int, double)}.
+     *
+     * @param agentSize side of the agent, in cells
+     * @param epsilon   allowed relative excess over the optimal cost, not negative
+     */
+    public Point[] findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                            final int agentSize, final double epsilon)
+    {
+        final SearchWorkspace workspace = workspaces.get();
+        final int             end       = search(startX, startY, endX, endY, radius, weight(epsilon), agentSize,
+                                                 workspace);
+
+        return end < 0 ? null : workspace.toPoints(end);
+    }
+
+    /**
+     * As {@link #findPath(int, int, int, int, int, int, double)}, passing the points to the sink.
+     *
+     * @return the length of the path, or -1 if there is none
+     */
+    public int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                        final int agentSize, final double epsilon, final IPathSink sink)
+    {
+        final SearchWorkspace workspace = workspaces.get();
+        final int             end       = search(startX, startY, endX, endY, radius, weight(epsilon), agentSize,
+                                                 workspace);
+
+        return end < 0 ? -1 : workspace.toSink(end, sink);
     }
 
     public Point[] findPath(final int startX, final int startY, final int endX, final int endY)
@@ -38,57 +160,201 @@ public class AStar implements IPathAlgorithm
         return findPath(startX, startY, endX, endY, -1);
     }
 
+    /**
+     * Finds a path using a workspace private to the calling thread, so that repeated
+     * searches don't allocate anything but the returned path.
+     */
     public Point[] findPath(final int startX, final int startY, final int endX, final int endY, final int radius)
     {
+        return findPath(startX, startY, endX, endY, radius, workspaces.get());
+    }
+
+    /**
+     * Finds a path storing the search nodes in the given workspace, which must be
+     * at least as large as the board.
+     */
+    public Point[] findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                            final SearchWorkspace workspace)
+    {
+        final int end = search(startX, startY, endX, endY, radius, 0.0, 1, workspace);
+
+        return end < 0 ? null : workspace.toPoints(end);
+    }
+
+    @Override
+    public int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                        final IPathSink sink)
+    {
+        final SearchWorkspace workspace = workspaces.get();
+        final int             end       = search(startX, startY, endX, endY, radius, 0.0, 1, workspace);
+
+        return end < 0 ? -1 : workspace.toSink(end, sink);
+    }
+
+    @Override
+    public int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                        final int[] out)
+    {
+        final SearchWorkspace workspace = workspaces.get();
+        final int             end       = search(startX, startY, endX, endY, radius, 0.0, 1, workspace);
+
+        return end < 0 ? -1 : workspace.toPacked(end, out);
+    }
+
+    @Override
+    public int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                        final long[] out)
+    {
+        final SearchWorkspace workspace = workspaces.get();
+        final int             end       = search(startX, startY, endX, endY, radius, 0.0, 1, workspace);
+
+        return end < 0 ? -1 : workspace.toPacked(end, out);
+    }
+
+    /**
+     * Starts a search that can be run a slice at a time, with {@link AStarSearch#step(int, long)}. The
+     * workspace holds the state of the search until it's done, so it must not be used for anything else
+     * meanwhile (in particular, not a thread's default workspace). Once the search is over, the workspace can
+     * be reused for the next one, so that sliced searches don't allocate anything either.
+     */
+    public AStarSearch startSearch(final int startX, final int startY, final int endX, final int endY,
+                                   final int radius, final SearchWorkspace workspace)
+    {
+        return new AStarSearch(this, workspace, startX, startY,
+                               begin(startX, startY, endX, endY, radius, 0.0, 1, workspace));
+    }
+
+    /**
+     * Starts a search that can be run a slice at a time, whose path costs at most (1 + epsilon) times the
+     * optimal one, as in {@link #findPath(int, int, int, int, int, double)}.
+     */
+    public AStarSearch startSearch(final int startX, final int startY, final int endX, final int endY,
+                                   final int radius, final double epsilon, final SearchWorkspace workspace)
+    {
+        return new AStarSearch(this, workspace, startX, startY,
+                               begin(startX, startY, endX, endY, radius, weight(epsilon), 1, workspace));
+    }
+
+    /**
+     * Starts a search that can be run a slice at a time, for an agent larger than one cell, as in
+     * {@link #findPath(int, int, int, int, int, int, double)}.
+     */
+    public AStarSearch startSearch(final int startX, final int startY, final int endX, final int endY,
+                                   final int radius, final int agentSize, final double epsilon,
+                                   final SearchWorkspace workspace)
+    {
+        return new AStarSearch(this, workspace, startX, startY,
+                               begin(startX, startY, endX, endY, radius, weight(epsilon), agentSize, workspace));
+    }
+
+    /**
+     * Runs the search, leaving the result in the workspace.
+     *
+     * @return the flattened index of the end point, or -1 if there is no path
+     */
+    private int search(final int startX, final int startY, final int endX, final int endY, final int radius,
+                       final double weight, final int agentSize, final SearchWorkspace workspace)
+    {
+        final int result = begin(startX, startY, endX, endY, radius, weight, agentSize, workspace);
+        if (result != SEARCHING)
+            return result;
+
+        return expand(workspace, startX, startY, Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Prepares the workspace for a search, and puts the start in the open list.
+     *
+     * @return the flattened index of the end point or -1 if the search is already over, SEARCHING otherwise
+     */
+    int begin(final int startX, final int startY, final int endX, final int endY, final int radius,
+              final double weight, final int agentSize, final SearchWorkspace workspace)
+    {
+        if (workspace.width < boardWidth || workspace.height < boardHeight)
+            throw new IllegalArgumentException("workspace is smaller than the board");
+
+        if (agentSize < 1)
+            throw new IllegalArgumentException("agent size must be positive: " + agentSize);
+
+        if (agentSize > 1 && clearance == null)
+            throw new IllegalStateException("agents larger than one cell need a clearance map");
+
         if (!this.map.contains(startX, startY) || !this.map.contains(endX, endY))
         {
-            return null;
+            return -1;
+        }
+
+        if (connectivity != null && !connectivity.canReach(startX, startY, endX, endY))
+        {
+            return -1;
         }
 
-        final int width;
-        final int height;
-        final int minX, minY, maxX, maxY;
+        workspace.reset();
 
         if (radius == 0)
         {
-            return new Point[] { new Point(startX, startY) };
+            workspace.visit(startY * workspace.width + startX, 0, -1);
+            return startY * workspace.width + startX;
         }
         else if (radius < 0)
         {
-            width = boardWidth;
-            height = boardHeight;
-
-            minX = 0;
-            minY = 0;
-            maxX = boardWidth - 1;
-            maxY = boardHeight - 1;
+            workspace.setQuery(0, 0, boardWidth - 1, boardHeight - 1, endX, endY);
         }
         else
         {
-            minX = Math.max(0, startX - radius);
-            minY = Math.max(0, startY - radius);
-            maxX = Math.min(boardWidth - 1, startX + radius);
-            maxY = Math.min(boardHeight - 1, startY + radius);
-
-            width = maxX - minX + 1;
-            height = maxY - minY + 1;
+            workspace.setQuery(startX - radius, startY - radius, Math.min(boardWidth - 1, startX + radius),
+                               Math.min(boardHeight - 1, startY + radius), endX, endY);
         }
 
-        final PathNode[][]         nodeHash  = new PathNode[width][height];
-        final SimpleHeap<HeapNode> open      = new SimpleHeap<>(1000);
-        final PathNode             startNode = new PathNode(startX, startY, 0.0);
-        startNode.h = this.computeHeuristics(startNode, endX, endY, startX, startY);
-        startNode.calcCost();
-        open.add(startNode);
-        nodeHash[startX - minX][startY - minY] = startNode;
-        while (open.size() > 0)
+        workspace.weight = weight;
+        workspace.agentSize = agentSize;
+
+        final int start = startY * workspace.width + startX;
+        workspace.visit(start, 0, -1);
+        workspace.open.add(start, this.computeHeuristics(workspace, startX, startY, startX, startY));
+
+        return SEARCHING;
+    }
+
+    /**
+     * Expands nodes from the open list, until the end is found, the open list is empty or the budget runs out.
+     *
+     * @param maxExpansions maximum number of nodes to expand
+     * @param deadline      {@link System#nanoTime()} after which to stop, or Long.MAX_VALUE
+     * @return the flattened index of the end point, -1 if there is no path, SEARCHING if the budget ran out
+     */
+    int expand(final SearchWorkspace workspace, final int startX, final int startY, final int maxExpansions,
+               final long deadline)
+    {
+        final IndexedHeap open = workspace.open;
+        final int         w    = workspace.width;
+        final int         endX = workspace.endX;
+        final int         endY = workspace.endY;
+
+        // large agents check the clearance of each cell instead of the board
+        final int    size = workspace.agentSize;
+        final byte[] fit  = size > 1 ? clearance.clearance : null;
+        final int    fitW = size > 1 ? clearance.getWidth() : 0;
+
+        for (int expanded = 0; !open.isEmpty(); expanded++)
         {
-            final PathNode step = (PathNode) open.poll();
-            if (step.x == endX && step.y == endY)
+            // the clock is only read every few nodes, as it costs as much as expanding one
+            if (expanded == maxExpansions ||
+                ((expanded & 63) == 63 && deadline != Long.MAX_VALUE && System.nanoTime() >= deadline))
             {
-                return this.createPath(step);
+                return SEARCHING;
             }
 
+            final int step  = open.poll();
+            final int stepX = step % w;
+            final int stepY = step / w;
+            workspace.expansions++;
+            if (stepX == endX && stepY == endY)
+            {
+                return step;
+            }
+
+            final int stepG = workspace.g[step];
             for (int dx = -1; dx <= 1; dx++)
             {
                 for (int dy = -1; dy <= 1; dy++)
@@ -96,83 +362,83 @@ public class AStar implements IPathAlgorithm
                     // exclude the current point, as well as diagonals if not allowed
                     if (!((dx == 0 && dy == 0) || (dx != 0 && dy != 0 && !this.allowDiagonal)))
                     {
-                        final int cx = step.x + dx;
-                        final int cy = step.y + dy;
-                        if (cx >= minX && cy >= minY && cx <= maxX && cy <= maxY && this.map.contains(cx, cy))
+                        final int cx = stepX + dx;
+                        final int cy = stepY + dy;
+                        if (cx >= workspace.minX && cy >= workspace.minY && cx <= workspace.maxX &&
+                            cy <= workspace.maxY && this.map.contains(cx, cy))
                         {
                             // the only allowed obstacle is the end point
-                            if ((cx != endX || cy != endY) && this.map.isObstacle(cx, cy))
+                            if ((cx != endX || cy != endY) &&
+                                (fit == null ? this.map.isObstacle(cx, cy) : (fit[cy * fitW + cx] & 0xFF) < size))
                                 continue;
 
-                            final PathNode n1;
-                            final double   this_cost = dx != 0 && dy != 0 ? 1.1 : 1.0;
-                            if (nodeHash[cx - minX][cy - minY] == null)
+                            final int idx = cy * w + cx;
+                            final int g   = stepG + (dx != 0 && dy != 0 ? DIAGONAL_COST : STRAIGHT_COST);
+                            if (!workspace.visited(idx))
                             {
-                                n1 = new PathNode(cx, cy, step.g + this_cost);
-                                n1.prev = step;
-                                n1.h = this.computeHeuristics(n1, endX, endY, startX, startY);
-                                n1.calcCost();
-                                open.add(n1);
-                                nodeHash[cx - minX][cy - minY] = n1;
+                                workspace.visit(idx, g, step);
+                                open.add(idx, g + this.computeHeuristics(workspace, cx, cy, startX, startY));
                             }
-                            else
+                            else if (workspace.g[idx] > g)
                             {
-                                n1 = nodeHash[cx - minX][cy - minY];
-                                if (n1.g > step.g + this_cost)
-                                {
-                                    n1.g = step.g + this_cost;
-                                    n1.calcCost();
-                                    n1.prev = step;
-                                    if (open.contains(n1))
-                                    {
-                                        open.adjust(n1);
-                                    }
-                                    else
-                                    {
-                                        open.add(n1);
-                                    }
-                                }
+                                workspace.g[idx] = g;
+                                workspace.parent[idx] = step;
+                                open.addOrUpdate(idx, g + this.computeHeuristics(workspace, cx, cy, startX, startY));
                             }
                         }
                     }
                 }
             }
         }
-        return null;
-    }
-
-    private double computeHeuristics(final PathNode node, final int x1, final int y1, final int startx,
-                                     final int starty)
-    {
-        final int dx        = Math.abs(node.x - x1);
-        final int dy        = Math.abs(node.y - y1);
-        final int diagsteps = Math.min(dx, dy);
-        return (double) diagsteps * 1.0 + (double) ((Math.max(dx, dy) - diagsteps)) +
-               (double) Math.abs((node.x - x1) * (starty - y1) - (node.y - y1) * (startx - x1)) * 0.01;
+        return -1;
     }
 
-    private Point[] createPath(PathNode end)
+    /**
+     * Octile distance (with diagonal steps underestimated as orthogonal ones), plus a small
+     * cross-product tie-breaker preferring cells close to the straight line from start to end.
+     * <p>
+     * A bounded search uses the exact octile distance instead, times its weight: the heuristic is then at most
+     * (1 + epsilon) times the real cost, and so is the path found. A custom heuristic replaces both.
+     */
+    private int computeHeuristics(final SearchWorkspace workspace, final int x, final int y, final int startx,
+                                  final int starty)
     {
-        if (end == null)
-            return null;
-
-        final ArrayList<Point> v = new ArrayList<>();
-        while (end != null)
+        final int x1 = workspace.endX;
+        final int y1 = workspace.endY;
+        if (heuristic != null)
         {
-            v.add(new Point(end.x, end.y));
-            end = end.prev;
+            final int h = heuristic.estimate(x, y, x1, y1);
+            return workspace.weight > 0.0 ? (int) (h * workspace.weight) : h;
         }
-        final int     sz  = v.size();
-        final Point[] ret = new Point[sz];
-        int           i   = 0;
-        while (i < sz)
+
+        final int dx = Math.abs(x - x1);
+        final int dy = Math.abs(y - y1);
+        if (workspace.weight > 0.0)
         {
-            ret[i] = v.get(sz - i - 1);
-            ++i;
+            final int min    = Math.min(dx, dy);
+            final int octile = allowDiagonal ? min * DIAGONAL_COST + (Math.max(dx, dy) - min) * STRAIGHT_COST :
+                               (dx + dy) * STRAIGHT_COST;
+            return (int) (octile * workspace.weight);
         }
-        return ret;
+
+        return Math.max(dx, dy) * STRAIGHT_COST + Math.abs((x - x1) * (starty - y1) - (y - y1) * (startx - x1));
+    }
+
+    private static double weight(final double epsilon)
+    {
+        if (!(epsilon >= 0.0))
+            throw new IllegalArgumentException("epsilon must not be negative: " + epsilon);
+
+        return 1.0 + epsilon;
     }
 
+    /**
+     * A search node of the old object-based implementation.
+     *
+     * @deprecated AStar now keeps its nodes in primitive arrays (see {@link SearchWorkspace}) and no longer uses
+     * this class, which is only kept for compatibility and will be removed.
+     */
+    @Deprecated
     public static class PathNode implements HeapNode
     {
         public double g;
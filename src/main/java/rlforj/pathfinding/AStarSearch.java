@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.math.PackedPoint;
+import rlforj.math.Point;
+
+/**
+ * An {@link AStar} search that runs a slice at a time, within a budget of expanded nodes or time, and continues
+ * from where it stopped on the next call. Use it to spread an expensive query over several frames:
+ *
+ * <pre>
+ * SearchWorkspace workspace = new SearchWorkspace(width, height); // reused by the following searches
+ * AStarSearch search = astar.startSearch(startX, startY, endX, endY, -1, workspace);
+ *
+ * // every frame
+ * if (search.step(1000, 2_000_000) == SearchStatus.FOUND)
+ *     path = search.getPath();
+ * </pre>
+ * <p>
+ * The open and closed lists live in the search's workspace, so a paused search costs no work, only memory.
+ * The board should not change until the search is over, or the path may go through the changed cells.
+ */
+public class AStarSearch
+{
+    private final AStar           astar;
+    private final SearchWorkspace workspace;
+    private final int             startX;
+    private final int             startY;
+
+    private SearchStatus status;
+    private int          end;
+
+    AStarSearch(final AStar astar, final SearchWorkspace workspace, final int startX, final int startY,
+                final int result)
+    {
+        this.astar = astar;
+        this.workspace = workspace;
+        this.startX = startX;
+        this.startY = startY;
+
+        setResult(result);
+    }
+
+    public SearchStatus getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * @return the number of nodes expanded so far
+     */
+    public int getExpansions()
+    {
+        return workspace.expansions;
+    }
+
+    /**
+     * Continues the search for at most the given number of node expansions.
+     *
+     * @return the status after this slice
+     */
+    public SearchStatus step(final int maxExpansions)
+    {
+        return step(maxExpansions, -1);
+    }
+
+    /**
+     * Continues the search for at most the given number of node expansions, or the given time, whichever
+     * runs out first. The time is checked every few expansions, so it can be slightly exceeded.
+     *
+     * @param maxExpansions maximum number of nodes to expand, at least 1
+     * @param maxNanos      maximum time to run, in nanoseconds, or a negative number for no limit
+     * @return the status after this slice
+     */
+    public SearchStatus step(final int maxExpansions, final long maxNanos)
+    {
+        if (maxExpansions <= 0)
+            throw new IllegalArgumentException("the budget must allow some expansions: " + maxExpansions);
+
+        if (status != SearchStatus.IN_PROGRESS)
+            return status;
+
+        final long deadline = maxNanos < 0 ? Long.MAX_VALUE : System.nanoTime() + maxNanos;
+        setResult(astar.expand(workspace, startX, startY, maxExpansions, deadline));
+        return status;
+    }
+
+    /**
+     * @return the path, from start to end, or null if it was not found (yet)
+     */
+    public Point[] getPath()
+    {
+        return status == SearchStatus.FOUND ? workspace.toPoints(end) : null;
+    }
+
+    /**
+     * Passes the points of the path to the sink, as in {@link IPathAlgorithm}.
+     *
+     * @return the length of the path, or -1 if it was not found (yet)
+     */
+    public int getPath(final IPathSink sink)
+    {
+        return status == SearchStatus.FOUND ? workspace.toSink(end, sink) : -1;
+    }
+
+    /**
+     * Writes the first points of the path, packed with {@link PackedPoint#pack(int, int)}, as in
+     * {@link IPathAlgorithm}.
+     *
+     * @return the length of the whole path, or -1 if it was not found (yet)
+     */
+    public int getPath(final int[] out)
+    {
+        return status == SearchStatus.FOUND ? workspace.toPacked(end, out) : -1;
+    }
+
+    private void setResult(final int result)
+    {
+        end = result;
+        if (result == AStar.SEARCHING)
+            status = SearchStatus.IN_PROGRESS;
+        else if (result < 0)
+            status = SearchStatus.NO_PATH;
+        else
+            status = SearchStatus.FOUND;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.math.PackedPoint;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs many independent path queries in parallel, on a {@link ForkJoinPool}.
+ * <p>
+ * The queries are split in chunks, and each chunk writes its paths into its own primitive buffer, which are
+ * then joined into a single {@link PathBatch}: there are no objects per query or per point.
+ * <p>
+ * The algorithm is shared by all threads, so it must be safe to use concurrently. {@link AStar} and
+ * {@link JumpPointSearch} are, as they keep a search workspace per thread, provided that the board is not
+ * modified while the batch runs. Engines with state between queries (eg, {@link DStarLite}) are not.
+ */
+public class BatchPathfinder
+{
+    /**
+     * Number of queries below which a chunk is not split further.
+     */
+    private static final int CHUNK = 16;
+
+    private final IPathAlgorithm algorithm;
+    private final ForkJoinPool   pool;
+
+    public BatchPathfinder(final IPathAlgorithm algorithm)
+    {
+        this(algorithm, ForkJoinPool.commonPool());
+    }
+
+    public BatchPathfinder(final IPathAlgorithm algorithm, final ForkJoinPool pool)
+    {
+        this.algorithm = algorithm;
+        this.pool = pool;
+    }
+
+    /**
+     * Finds all the paths, searching the whole board.
+     *
+     * @see #findPaths(int[], int[], int, int)
+     */
+    public PathBatch findPaths(final int[] starts, final int[] ends)
+    {
+        return findPaths(starts, ends, starts.length, -1);
+    }
+
+    /**
+     * Finds the paths from starts[i] to ends[i], for each i in [0, count), and waits for all of them.
+     *
+     * @param starts start points, packed with {@link PackedPoint#pack(int, int)}
+     * @param ends   end points, packed with {@link PackedPoint#pack(int, int)}
+     * @param count  number of queries
+     * @param radius search radius for all queries, as in {@link IPathAlgorithm}
+     * @return the paths, in the same order as the queries
+     */
+    public PathBatch findPaths(final int[] starts, final int[] ends, final int count, final int radius)
+    {
+        if (count > starts.length || count > ends.length)
+            throw new IllegalArgumentException("fewer points than queries: " + count);
+
+        final int[] lengths = new int[count];
+        final Chunk root    = new Chunk(starts, ends, radius, lengths, 0, count);
+        pool.invoke(root);
+
+        // each chunk's points go after the previous chunk's
+        final int[] offsets = new int[count];
+        final int[] points  = new int[root.total()];
+        root.copyTo(points, offsets, 0);
+
+        return new PathBatch(offsets, lengths, points);
+    }
+
+    /**
+     * A range of queries: split in two halves, or run in place with its own point buffer.
+     */
+    private final class Chunk extends RecursiveAction implements IPathSink
+    {
+        private static final long serialVersionUID = 4625907317624861830L;
+
+        private final int[] starts;
+        private final int[] ends;
+        private final int   radius;
+        private final int[] lengths;
+        private final int   from;
+        private final int   to;
+
+        private Chunk left;
+        private Chunk right;
+
+        private int[] points;
+        private int   size;
+
+        Chunk(final int[] starts, final int[] ends, final int radius, final int[] lengths, final int from,
+              final int to)
+        {
+            this.starts = starts;
+            this.ends = ends;
+            this.radius = radius;
+            this.lengths = lengths;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > CHUNK)
+            {
+                final int mid = (from + to) >>> 1;
+                left = new Chunk(starts, ends, radius, lengths, from, mid);
+                right = new Chunk(starts, ends, radius, lengths, mid, to);
+                invokeAll(left, right);
+                return;
+            }
+
+            points = new int[64];
+            for (int i = from; i < to; i++)
+            {
+                final int s = starts[i];
+                final int e = ends[i];
+                lengths[i] = algorithm.findPath(PackedPoint.x(s), PackedPoint.y(s), PackedPoint.x(e),
+                                                PackedPoint.y(e), radius, this);
+            }
+        }
+
+        @Override
+        public boolean step(final int x, final int y)
+        {
+            if (size == points.length)
+                points = Arrays.copyOf(points, size * 2);
+            points[size++] = PackedPoint.pack(x, y);
+            return true;
+        }
+
+        int total()
+        {
+            return left == null ? size : left.total() + right.total();
+        }
+
+        /**
+         * Copies the points of the chunk at the given position, and sets the offsets of its queries.
+         *
+         * @return the position after the last point copied
+         */
+        int copyTo(final int[] all, final int[] offsets, int pos)
+        {
+            if (left != null)
+                return right.copyTo(all, offsets, left.copyTo(all, offsets, pos));
+
+            System.arraycopy(points, 0, all, pos, size);
+            for (int i = from; i < to; i++)
+            {
+                offsets[i] = pos;
+                if (lengths[i] > 0)
+                    pos += lengths[i];
+            }
+            return pos;
+        }
+    }
+}
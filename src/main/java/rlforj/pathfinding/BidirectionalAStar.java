@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.IBoard;
+import rlforj.math.Point;
+
+/**
+ * Bidirectional A*: one search from the start and one from the end, expanding whichever side has the smaller
+ * open list. On long queries across mazes, two small balls around the ends replace one big ball around the start.
+ * <p>
+ * Both sides are ordered by the same average of the octile distances to the two ends, so their keys are
+ * comparable: whenever the searches touch, the cost through the meeting cell is an upper bound, and the search
+ * stops as soon as the two lowest keys add up to it, as no cheaper path can be left. The result is optimal,
+ * with the same rules as {@link AStar}.
+ */
+public class BidirectionalAStar implements IPathAlgorithm
+{
+    private final IBoard  map;
+    private final int     boardWidth;
+    private final int     boardHeight;
+    private final boolean allowDiagonal;
+
+    // forward and backward workspaces of each thread
+    private final ThreadLocal<SearchWorkspace[]> workspaces;
+
+    public BidirectionalAStar(final IBoard map, final int boardWidth, final int boardHeight)
+    {
+        this(map, boardWidth, boardHeight, true);
+    }
+
+    public BidirectionalAStar(final IBoard map, final int boardWidth, final int boardHeight,
+                              final boolean allowDiagonal)
+    {
+        this.map = map;
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.allowDiagonal = allowDiagonal;
+
+        this.workspaces = ThreadLocal.withInitial(() -> new SearchWorkspace[] {
+            new SearchWorkspace(boardWidth, boardHeight), new SearchWorkspace(boardWidth, boardHeight) });
+    }
+
+    public Point[] findPath(final int startX, final int startY, final int endX, final int endY)
+    {
+        return findPath(startX, startY, endX, endY, -1);
+    }
+
+    public Point[] findPath(final int startX, final int startY, final int endX, final int endY, final int radius)
+    {
+        final SearchWorkspace[] ws = workspaces.get();
+        return findPath(startX, startY, endX, endY, radius, ws[0], ws[1]);
+    }
+
+    /**
+     * Finds a path using the given workspaces instead of the thread's own, eg to read their expansion counts.
+     *
+     * @param forward  workspace of the search from the start, which also holds the whole path at the end
+     * @param backward workspace of the search from the end
+     */
+    public Point[] findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                            final SearchWorkspace forward, final SearchWorkspace backward)
+    {
+        final int end = search(startX, startY, endX, endY, radius, forward, backward);
+
+        return end < 0 ? null : forward.toPoints(end);
+    }
+
+    @Override
+    public int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                        final IPathSink sink)
+    {
+        final SearchWorkspace[] ws  = workspaces.get();
+        final int               end = search(startX, startY, endX, endY, radius, ws[0], ws[1]);
+
+        return end < 0 ? -1 : ws[0].toSink(end, sink);
+    }
+
+    @Override
+    public int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                        final int[] out)
+    {
+        final SearchWorkspace[] ws  = workspaces.get();
+        final int               end = search(startX, startY, endX, endY, radius, ws[0], ws[1]);
+
+        return end < 0 ? -1 : ws[0].toPacked(end, out);
+    }
+
+    @Override
+    public int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                        final long[] out)
+    {
+        final SearchWorkspace[] ws  = workspaces.get();
+        final int               end = search(startX, startY, endX, endY, radius, ws[0], ws[1]);
+
+        return end < 0 ? -1 : ws[0].toPacked(end, out);
+    }
+
+    /**
+     * Runs both searches, and joins their halves into the forward workspace.
+     *
+     * @return the flattened index of the end point, or -1 if there is no path
+     */
+    private int search(final int startX, final int startY, final int endX, final int endY, final int radius,
+                       final SearchWorkspace forward, final SearchWorkspace backward)
+    {
+        if (forward.width < boardWidth || forward.height < boardHeight || backward.width < boardWidth ||
+            backward.height < boardHeight)
+            throw new IllegalArgumentException("workspace is smaller than the board");
+
+        if (!map.contains(startX, startY) || !map.contains(endX, endY))
+            return -1;
+
+        final int w     = forward.width;
+        final int start = startY * w + startX;
+        final int end   = endY * w + endX;
+
+        forward.reset();
+        backward.reset();
+        forward.visit(start, 0, -1);
+        if (radius == 0 || start == end)
+            return start;
+
+        if (radius < 0)
+        {
+            forward.setQuery(0, 0, boardWidth - 1, boardHeight - 1, endX, endY);
+            backward.setQuery(0, 0, boardWidth - 1, boardHeight - 1, startX, startY);
+        }
+        else
+        {
+            forward.setQuery(startX - radius, startY - radius, Math.min(boardWidth - 1, startX + radius),
+                             Math.min(boardHeight - 1, startY + radius), endX, endY);
+            backward.setQuery(forward.minX, forward.minY, forward.maxX, forward.maxY, startX, startY);
+            if (endX < forward.minX || endY < forward.minY || endX > forward.maxX || endY > forward.maxY)
+                return -1;
+        }
+
+        backward.visit(end, 0, -1);
+        forward.open.add(start, key(0, startX, startY, endX, endY, startX, startY));
+        backward.open.add(end, key(0, endX, endY, startX, startY, endX, endY));
+
+        // cost of the best path through a meeting cell so far
+        long best = Integer.MAX_VALUE;
+        int  meet = -1;
+        while (!forward.open.isEmpty() && !backward.open.isEmpty() &&
+               forward.open.peekKey() + backward.open.peekKey() < 2 * best)
+        {
+            final boolean         isForward = forward.open.size() <= backward.open.size();
+            final SearchWorkspace ws        = isForward ? forward : backward;
+            final SearchWorkspace other     = isForward ? backward : forward;
+
+            final int u  = ws.open.poll();
+            final int ux = u % w;
+            final int uy = u / w;
+            final int ug = ws.g[u];
+            ws.expansions++;
+
+            for (int dx = -1; dx <= 1; dx++)
+            {
+                for (int dy = -1; dy <= 1; dy++)
+                {
+                    if ((dx == 0 && dy == 0) || (dx != 0 && dy != 0 && !allowDiagonal))
+                        continue;
+
+                    final int cx = ux + dx;
+                    final int cy = uy + dy;
+                    if (cx < ws.minX || cy < ws.minY || cx > ws.maxX || cy > ws.maxY || !map.contains(cx, cy))
+                        continue;
+
+                    // the only allowed obstacle is the target of this side (the start is never checked)
+                    if ((cx != ws.endX || cy != ws.endY) && map.isObstacle(cx, cy))
+                        continue;
+
+                    final int idx = cy * w + cx;
+                    final int g   = ug + (dx != 0 && dy != 0 ? AStar.DIAGONAL_COST : AStar.STRAIGHT_COST);
+                    if (ws.visited(idx) && g >= ws.g[idx])
+                        continue;
+
+                    // no path through this cell can beat the best one already found
+                    if (g + heuristic(cx, cy, ws.endX, ws.endY) >= best)
+                        continue;
+
+                    ws.visit(idx, g, u);
+                    if (other.visited(idx) && g + other.g[idx] < best)
+                    {
+                        best = g + other.g[idx];
+                        meet = idx;
+                    }
+                    ws.open.addOrUpdate(idx, key(g, cx, cy, ws.endX, ws.endY, other.endX, other.endY));
+                }
+            }
+        }
+
+        if (meet < 0)
+            return -1;
+
+        // reverse the backward half into the forward parents, so the whole path can be traced from the end
+        for (int c = meet, next = backward.parent[c]; next >= 0; c = next, next = backward.parent[c])
+            forward.parent[next] = c;
+
+        return end;
+    }
+
+    /**
+     * Twice the key of the average potential (Ikeda et al.): the heuristic towards this side's target minus the one
+     * towards the other side's, halved. It is consistent for both searches, so the two open lists can be compared.
+     */
+    private long key(final int g, final int x, final int y, final int targetX, final int targetY,
+                     final int sourceX, final int sourceY)
+    {
+        return 2L * g + heuristic(x, y, targetX, targetY) - heuristic(x, y, sourceX, sourceY);
+    }
+
+    private int heuristic(final int x, final int y, final int x1, final int y1)
+    {
+        final int dx = Math.abs(x - x1);
+        final int dy = Math.abs(y - y1);
+        if (!allowDiagonal)
+            return (dx + dy) * AStar.STRAIGHT_COST;
+
+        final int min = Math.min(dx, dy);
+        return min * AStar.DIAGONAL_COST + (Math.max(dx, dy) - min) * AStar.STRAIGHT_COST;
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.IBoard;
+
+import java.util.Arrays;
+
+/**
+ * Breadth-first search where every step costs the same, 64 cells at a time.
+ * <p>
+ * The free cells of the board are packed in a bitset, one row after the other, each row in
+ * {@link #getWordsPerRow()} longs: cell (x, y) is bit {@code x & 63} of word {@code y * wordsPerRow + x / 64}.
+ * Each step of the search grows the frontier by one cell in every direction with shifts and ORs, and keeps the
+ * free cells not reached yet with ANDs. Steps cost O(width * height / 64), and only on the rows the frontier
+ * spans, so reachability and unit-cost distances are much cheaper than with {@link AStar} or a
+ * {@link DijkstraMap}.
+ * <p>
+ * Diagonal steps, if allowed, cost the same as straight ones. Obstacles are never entered, except the start.
+ * Sets are returned in the same layout as the board. It is thread safe, provided that the board is not updated
+ * while searching.
+ */
+public class BitParallelBfs
+{
+    private final IBoard  map;
+    private final int     width;
+    private final int     height;
+    private final int     wordsPerRow;
+    private final boolean allowDiagonal;
+
+    private final long[] free;
+
+    private final ThreadLocal<Workspace> workspaces;
+
+    public BitParallelBfs(final IBoard map, final int width, final int height)
+    {
+        this(map, width, height, true);
+    }
+
+    public BitParallelBfs(final IBoard map, final int width, final int height, final boolean allowDiagonal)
+    {
+        this.map = map;
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.allowDiagonal = allowDiagonal;
+
+        this.free = new long[height * wordsPerRow];
+        for (int y = 0; y < height; y++)
+        {
+            for (int x = 0; x < width; x++)
+                update(x, y);
+        }
+
+        this.workspaces = ThreadLocal.withInitial(() -> new Workspace(height * wordsPerRow));
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * @return the number of longs per row of the bitsets
+     */
+    public int getWordsPerRow()
+    {
+        return wordsPerRow;
+    }
+
+    /**
+     * Reads a cell of the board again, after it changed.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     */
+    public void update(final int x, final int y)
+    {
+        if (x < 0 || y < 0 || x >= width || y >= height)
+            return;
+
+        final int  word = y * wordsPerRow + (x >>> 6);
+        final long bit  = 1L << x;
+        if (map.contains(x, y) && !map.isObstacle(x, y))
+            free[word] |= bit;
+        else
+            free[word] &= ~bit;
+    }
+
+    /**
+     * @param bits a bitset in the layout of the board
+     * @return true if the cell is in the set
+     */
+    public boolean contains(final long[] bits, final int x, final int y)
+    {
+        if (x < 0 || y < 0 || x >= width || y >= height)
+            return false;
+
+        return (bits[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * @param maxSteps maximum number of steps from the start, or -1 for no limit
+     * @return the cells reachable from the start within the steps, start included, as a new bitset
+     */
+    public long[] reachable(final int startX, final int startY, final int maxSteps)
+    {
+        final long[] visited = new long[height * wordsPerRow];
+        search(startX, startY, -1, -1, maxSteps, visited, null);
+        return visited;
+    }
+
+    /**
+     * @param maxSteps maximum number of steps, or -1 for no limit
+     * @return true if the end can be reached from the start within the steps
+     */
+    public boolean isReachable(final int startX, final int startY, final int endX, final int endY,
+                               final int maxSteps)
+    {
+        return distance(startX, startY, endX, endY, maxSteps) >= 0;
+    }
+
+    /**
+     * @param maxSteps maximum number of steps, or -1 for no limit
+     * @return the number of steps from the start to the end, or -1 if it can't be reached within the steps
+     */
+    public int distance(final int startX, final int startY, final int endX, final int endY, final int maxSteps)
+    {
+        if (endX < 0 || endY < 0 || endX >= width || endY >= height)
+            return -1;
+
+        final Workspace ws = workspaces.get();
+        Arrays.fill(ws.visited, 0L);
+        return search(startX, startY, endX, endY, maxSteps, ws.visited, null);
+    }
+
+    /**
+     * Computes the number of steps from the start to every cell reachable within the steps.
+     *
+     * @param maxSteps maximum number of steps, or -1 for no limit
+     * @param out      distances, indexed by {@code y * width + x}; -1 for the cells not reached
+     */
+    public void distances(final int startX, final int startY, final int maxSteps, final int[] out)
+    {
+        if (out.length < width * height)
+            throw new IllegalArgumentException("output is smaller than the board");
+
+        Arrays.fill(out, 0, width * height, -1);
+
+        final Workspace ws = workspaces.get();
+        Arrays.fill(ws.visited, 0L);
+        search(startX, startY, -1, -1, maxSteps, ws.visited, out);
+    }
+
+    /**
+     * Grows the frontier one step at a time, from the start, adding the cells reached to visited.
+     *
+     * @param layers if not null, receives the step at which each cell was reached
+     * @return the step at which the end was reached, or -1 if it wasn't (or there is no end)
+     */
+    private int search(final int startX, final int startY, final int endX, final int endY, final int maxSteps,
+                       final long[] visited, final int[] layers)
+    {
+        if (startX < 0 || startY < 0 || startX >= width || startY >= height)
+            return -1;
+
+        final Workspace ws       = workspaces.get();
+        long[]          frontier = ws.frontier;
+        long[]          next     = ws.next;
+        final long[]    spread   = ws.spread;
+        final int       wpr      = wordsPerRow;
+
+        final int  startWord = startY * wpr + (startX >>> 6);
+        final long startBit  = 1L << startX;
+        Arrays.fill(frontier, startY * wpr, (startY + 1) * wpr, 0L);
+        frontier[startWord] = startBit;
+        visited[startWord] |= startBit;
+        if (layers != null)
+            layers[startY * width + startX] = 0;
+        if (startX == endX && startY == endY)
+            return 0;
+
+        final int  endWord = endY < 0 ? -1 : endY * wpr + (endX >>> 6);
+        final long endBit  = 1L << endX;
+
+        // rows spanned by the frontier
+        int lo = startY;
+        int hi = startY;
+        for (int step = 1; maxSteps < 0 || step <= maxSteps; step++)
+        {
+            // each frontier row spread left and right (diagonal moves need it for the rows around too)
+            for (int y = lo; y <= hi; y++)
+            {
+                final int row = y * wpr;
+                for (int k = 0; k < wpr; k++)
+                {
+                    final long f     = frontier[row + k];
+                    final long left  = (f >>> 1) | (k + 1 < wpr ? frontier[row + k + 1] << 63 : 0L);
+                    final long right = (f << 1) | (k > 0 ? frontier[row + k - 1] >>> 63 : 0L);
+                    spread[row + k] = f | left | right;
+                }
+            }
+
+            final int nlo = Math.max(0, lo - 1);
+            final int nhi = Math.min(height - 1, hi + 1);
+            int       newLo = Integer.MAX_VALUE;
+            int       newHi = -1;
+            for (int y = nlo; y <= nhi; y++)
+            {
+                final int row = y * wpr;
+                long      any = 0L;
+                for (int k = 0; k < wpr; k++)
+                {
+                    long n = 0L;
+                    if (y >= lo && y <= hi)
+                        n = spread[row + k];
+                    if (y - 1 >= lo && y - 1 <= hi)
+                        n |= allowDiagonal ? spread[row - wpr + k] : frontier[row - wpr + k];
+                    if (y + 1 >= lo && y + 1 <= hi)
+                        n |= allowDiagonal ? spread[row + wpr + k] : frontier[row + wpr + k];
+
+                    n &= free[row + k] & ~visited[row + k];
+                    next[row + k] = n;
+                    visited[row + k] |= n;
+                    any |= n;
+
+                    if (layers != null)
+                        markLayer(layers, n, y, k, step);
+                }
+
+                if (any != 0L)
+                {
+                    newLo = Math.min(newLo, y);
+                    newHi = y;
+                }
+            }
+
+            if (endWord >= 0 && (visited[endWord] & endBit) != 0)
+                return step;
+
+            if (newHi < 0)
+                break;
+
+            // only the rows in [newLo, newHi] of the new frontier are read, and they were all just written
+            final long[] t = frontier;
+            frontier = next;
+            next = t;
+            lo = newLo;
+            hi = newHi;
+        }
+        return -1;
+    }
+
+    private void markLayer(final int[] layers, long bits, final int y, final int k, final int step)
+    {
+        final int base = y * width + (k << 6);
+        while (bits != 0L)
+        {
+            layers[base + Long.numberOfTrailingZeros(bits)] = step;
+            bits &= bits - 1;
+        }
+    }
+
+    /**
+     * The bitsets of a search in progress.
+     */
+    private static final class Workspace
+    {
+        final long[] visited;
+        final long[] frontier;
+        final long[] next;
+        final long[] spread;
+
+        Workspace(final int words)
+        {
+            this.visited = new long[words];
+            this.frontier = new long[words];
+            this.next = new long[words];
+            this.spread = new long[words];
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.math.PackedPoint;
+import rlforj.math.Point;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches the paths found by another algorithm, so that repeated queries (eg, between the same hotspots) cost
+ * a hash lookup instead of a search.
+ * <p>
+ * The board is divided in square regions, each with a version number that {@link #update(int, int)} increments.
+ * A cached path remembers the versions of the regions it crosses, and is only discarded when one of them
+ * changes: a path is never used after a cell it may cross changes, but it may be kept while a cheaper path
+ * opens elsewhere. "No path" results depend on the whole board, so they are discarded after any update.
+ * <p>
+ * The cache holds at most a given number of paths, evicting the least recently used. It is thread safe if the
+ * cached algorithm is.
+ */
+public class CachingPathAlgorithm implements IPathAlgorithm
+{
+    private final IPathAlgorithm algorithm;
+    private final int            width;
+    private final int            height;
+    private final int            regionSize;
+    private final int            regionsX;
+
+    private final int[] versions;
+    private       int   totalVersion;
+
+    private final LinkedHashMap<PathKey, Entry> cache;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * @param algorithm  the algorithm to cache
+     * @param width      board width
+     * @param height     board height
+     * @param regionSize side of the square regions, in cells: smaller regions discard fewer paths on each
+     *                   update, but make each cached path remember more of them
+     * @param capacity   maximum number of paths in the cache
+     */
+    public CachingPathAlgorithm(final IPathAlgorithm algorithm, final int width, final int height,
+                                final int regionSize, final int capacity)
+    {
+        if (regionSize <= 0 || capacity <= 0)
+            throw new IllegalArgumentException("region size and capacity must be positive: " + regionSize + ", " +
+                                               capacity);
+
+        this.algorithm = algorithm;
+        this.width = width;
+        this.height = height;
+        this.regionSize = regionSize;
+        this.regionsX = (width + regionSize - 1) / regionSize;
+        this.versions = new int[regionsX * ((height + regionSize - 1) / regionSize)];
+
+        this.cache = new LinkedHashMap<PathKey, Entry>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<PathKey, Entry> eldest)
+            {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Reports a cell of the board that changed, discarding the cached paths that cross its region. Cells
+     * outside of the board are ignored.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     */
+    public void update(final int x, final int y)
+    {
+        if (x < 0 || y < 0 || x >= width || y >= height)
+            return;
+
+        synchronized (cache)
+        {
+            versions[region(x, y)]++;
+            totalVersion++;
+        }
+    }
+
+    /**
+     * Discards all cached paths.
+     */
+    public void clear()
+    {
+        synchronized (cache)
+        {
+            cache.clear();
+        }
+    }
+
+    /**
+     * @return the number of queries answered from the cache
+     */
+    public long getHits()
+    {
+        synchronized (cache)
+        {
+            return hits;
+        }
+    }
+
+    /**
+     * @return the number of queries passed to the cached algorithm
+     */
+    public long getMisses()
+    {
+        synchronized (cache)
+        {
+            return misses;
+        }
+    }
+
+    public Point[] findPath(final int startX, final int startY, final int endX, final int endY, final int radius)
+    {
+        final int[] path = path(startX, startY, endX, endY, radius);
+        if (path == null)
+            return null;
+
+        final Point[] ret = new Point[path.length];
+        for (int i = 0; i < path.length; i++)
+            ret[i] = new Point(PackedPoint.x(path[i]), PackedPoint.y(path[i]));
+        return ret;
+    }
+
+    @Override
+    public int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                        final IPathSink sink)
+    {
+        final int[] path = path(startX, startY, endX, endY, radius);
+        if (path == null)
+            return -1;
+
+        for (final int p : path)
+        {
+            if (!sink.step(PackedPoint.x(p), PackedPoint.y(p)))
+                break;
+        }
+        return path.length;
+    }
+
+    @Override
+    public int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                        final int[] out)
+    {
+        final int[] path = path(startX, startY, endX, endY, radius);
+        if (path == null)
+            return -1;
+
+        System.arraycopy(path, 0, out, 0, Math.min(out.length, path.length));
+        return path.length;
+    }
+
+    @Override
+    public int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                        final long[] out)
+    {
+        final int[] path = path(startX, startY, endX, endY, radius);
+        if (path == null)
+            return -1;
+
+        final int n = Math.min(out.length, path.length);
+        for (int i = 0; i < n; i++)
+            out[i] = PackedPoint.packLong(PackedPoint.x(path[i]), PackedPoint.y(path[i]));
+        return path.length;
+    }
+
+    /**
+     * @return the cached or newly found path, packed with {@link PackedPoint#pack(int, int)}, or null if there
+     * is no path
+     */
+    private int[] path(final int startX, final int startY, final int endX, final int endY, final int radius)
+    {
+        final PathKey key = new PathKey(startX, startY, endX, endY, radius);
+
+        final int seenTotal;
+        synchronized (cache)
+        {
+            final Entry entry = cache.get(key);
+            if (entry != null && isValid(entry))
+            {
+                hits++;
+                return entry.path;
+            }
+
+            misses++;
+            seenTotal = totalVersion;
+        }
+
+        // the search runs outside the lock: if the board changes meanwhile, the result is not cached, as it
+        // may be based on the old cells
+        final PackedPathCollector collector = new PackedPathCollector();
+        final int                 len       = algorithm.findPath(startX, startY, endX, endY, radius, collector);
+        final int[]               path      = len < 0 ? null : collector.toArray();
+
+        final Entry entry = new Entry(path, seenTotal);
+        synchronized (cache)
+        {
+            if (totalVersion == seenTotal)
+            {
+                for (int i = 0; i < entry.regions.length; i++)
+                    entry.versions[i] = versions[entry.regions[i]];
+                cache.put(key, entry);
+            }
+        }
+        return path;
+    }
+
+    private boolean isValid(final Entry entry)
+    {
+        if (entry.path == null)
+            return entry.totalVersion == totalVersion;
+
+        for (int i = 0; i < entry.regions.length; i++)
+        {
+            if (versions[entry.regions[i]] != entry.versions[i])
+                return false;
+        }
+        return true;
+    }
+
+    private int region(final int x, final int y)
+    {
+        return (y / regionSize) * regionsX + x / regionSize;
+    }
+
+    /**
+     * A cached result, with the versions of the regions it depends on (read when it's cached).
+     */
+    private final class Entry
+    {
+        final int[] path;
+        final int[] regions;
+        final int[] versions;
+        final int   totalVersion;
+
+        Entry(final int[] path, final int seenTotal)
+        {
+            this.path = path;
+            this.totalVersion = seenTotal;
+            if (path == null)
+            {
+                regions = new int[0];
+                versions = new int[0];
+                return;
+            }
+
+            // the distinct regions crossed by the path
+            final int[] crossed = new int[path.length];
+            for (int i = 0; i < path.length; i++)
+                crossed[i] = region(PackedPoint.x(path[i]), PackedPoint.y(path[i]));
+            Arrays.sort(crossed);
+
+            int n = 0;
+            for (int i = 0; i < crossed.length; i++)
+            {
+                if (n == 0 || crossed[i] != crossed[n - 1])
+                    crossed[n++] = crossed[i];
+            }
+
+            regions = Arrays.copyOf(crossed, n);
+            versions = new int[n];
+        }
+    }
+}
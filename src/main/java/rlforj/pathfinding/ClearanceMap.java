@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.IBoard;
+
+/**
+ * The true clearance of each cell (Harabor and Botea, 2008): the side of the largest square of free cells whose
+ * top-left corner is the cell, 0 for an obstacle. An agent of size n, occupying n x n cells from its position
+ * to the right and down, fits in a cell if its clearance is at least n.
+ * <p>
+ * Each cell's clearance is one more than the least clearance of its right, lower and lower-right neighbours,
+ * so the whole board is computed in one pass from the bottom-right corner. Clearances are capped at
+ * {@link #MAX_CLEARANCE}, to fit a byte.
+ * <p>
+ * When a cell changes, {@link #update(int, int)} only recomputes the cells above and to its left whose
+ * clearance actually changes.
+ */
+public class ClearanceMap
+{
+    /**
+     * Largest clearance stored: larger squares are reported as this size.
+     */
+    public static final int MAX_CLEARANCE = 255;
+
+    private final IBoard map;
+    private final int    width;
+    private final int    height;
+
+    // unsigned
+    final byte[] clearance;
+
+    public ClearanceMap(final IBoard map, final int width, final int height)
+    {
+        this.map = map;
+        this.width = width;
+        this.height = height;
+        this.clearance = new byte[width * height];
+
+        compute();
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Computes the clearance of the whole board again.
+     */
+    public void compute()
+    {
+        for (int y = height - 1; y >= 0; y--)
+        {
+            for (int x = width - 1; x >= 0; x--)
+                clearance[y * width + x] = (byte) clearanceOf(x, y);
+        }
+    }
+
+    /**
+     * Repairs the clearances after a cell of the board changed.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     */
+    public void update(final int x, final int y)
+    {
+        if (x < 0 || y < 0 || x >= width || y >= height)
+            return;
+
+        // a cell only depends on the cells at its right and below, so the changes spread up and to the left:
+        // in each row, from x to the left of the first cell whose lower neighbours changed, and then as long as
+        // the cells keep changing
+        int below = x + 1;
+        for (int cy = y; cy >= 0 && below <= x + 1; cy--)
+        {
+            int changed = Integer.MAX_VALUE;
+            for (int cx = x; cx >= 0; cx--)
+            {
+                if (cx < below - 1 && changed != cx + 1)
+                    break;
+
+                final int  idx = cy * width + cx;
+                final byte c   = (byte) clearanceOf(cx, cy);
+                if (c != clearance[idx])
+                {
+                    clearance[idx] = c;
+                    changed = cx;
+                }
+            }
+            below = changed == Integer.MAX_VALUE ? Integer.MAX_VALUE : changed;
+        }
+    }
+
+    /**
+     * @return the size of the largest agent that fits in the cell, 0 if it's an obstacle or outside the board
+     */
+    public int getClearance(final int x, final int y)
+    {
+        if (x < 0 || y < 0 || x >= width || y >= height)
+            return 0;
+
+        return clearance[y * width + x] & 0xFF;
+    }
+
+    /**
+     * @param size side of the agent, in cells
+     * @return true if an agent of that size, with its top-left corner in the cell, only covers free cells
+     */
+    public boolean fits(final int x, final int y, final int size)
+    {
+        return getClearance(x, y) >= size;
+    }
+
+    private int clearanceOf(final int x, final int y)
+    {
+        if (!map.contains(x, y) || map.isObstacle(x, y))
+            return 0;
+
+        final int right = x + 1 < width ? clearance[y * width + x + 1] & 0xFF : 0;
+        final int down  = y + 1 < height ? clearance[(y + 1) * width + x] & 0xFF : 0;
+        final int diag  = x + 1 < width && y + 1 < height ? clearance[(y + 1) * width + x + 1] & 0xFF : 0;
+
+        return Math.min(MAX_CLEARANCE, 1 + Math.min(right, Math.min(down, diag)));
+    }
+}
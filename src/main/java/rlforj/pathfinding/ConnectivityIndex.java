@@ -0,0 +1,426 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.IBoard;
+
+import java.util.Arrays;
+
+/**
+ * Connected components of the walkable cells of a board, with either 4 or 8-connectivity.
+ * <p>
+ * Every walkable cell (see {@link IBoard#isObstacle(int, int)}) gets a component label, so that
+ * checking whether two cells are connected is a single array lookup each. Use it with
+ * {@link AStar#setConnectivityIndex(ConnectivityIndex)} to reject unreachable queries before searching.
+ * <p>
+ * When a cell changes, call {@link #update(int, int)}. Opening a cell merges the components around it,
+ * relabelling the smaller ones. Closing a cell first checks whether its neighbours are still
+ * connected around it; if not, it floods from each side at the same pace and relabels the pieces that
+ * turn out to be cut off, so the cost is proportional to the smaller pieces rather than the board.
+ */
+public class ConnectivityIndex
+{
+    private static final int OBSTACLE = 0;
+
+    private static final int[] DX = { -1, 0, 1, 1, 1, 0, -1, -1 };
+    private static final int[] DY = { -1, -1, -1, 0, 1, 1, 1, 0 };
+
+    private final IBoard  map;
+    private final int     width;
+    private final int     height;
+    private final boolean diagonal;
+
+    // component of each cell, OBSTACLE for the cells that are not walkable
+    private final int[] labels;
+    // number of cells in each component, by label
+    private int[] sizes = new int[64];
+    private int   nextLabel = 1;
+    // labels of the components that disappeared, to be reused before new ones
+    private int[] freeLabels = new int[16];
+    private int   freeCount;
+
+    // scratch space for the flood fills
+    private final int[]   mark;
+    private       int     markBase;
+    private final int[][] queues = new int[8][];
+    private final int[]   heads  = new int[8];
+    private final int[]   tails  = new int[8];
+    private final int[]   owner  = new int[8];
+
+    public ConnectivityIndex(final IBoard map, final int width, final int height, final boolean diagonal)
+    {
+        this.map = map;
+        this.width = width;
+        this.height = height;
+        this.diagonal = diagonal;
+
+        this.labels = new int[width * height];
+        this.mark = new int[width * height];
+        for (int i = 0; i < queues.length; i++)
+            queues[i] = new int[64];
+
+        for (int y = 0; y < height; y++)
+        {
+            for (int x = 0; x < width; x++)
+            {
+                final int idx = y * width + x;
+                if (labels[idx] == OBSTACLE && walkable(x, y))
+                {
+                    final int label = newLabel();
+                    sizes[label] = relabel(idx, OBSTACLE, label, true);
+                }
+            }
+        }
+    }
+
+    public boolean isDiagonal()
+    {
+        return diagonal;
+    }
+
+    /**
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the component label of the cell, or 0 if it's an obstacle or outside of the board
+     */
+    public int getComponent(final int x, final int y)
+    {
+        return x >= 0 && y >= 0 && x < width && y < height ? labels[y * width + x] : OBSTACLE;
+    }
+
+    /**
+     * @return true if both cells are walkable and in the same component
+     */
+    public boolean connected(final int x1, final int y1, final int x2, final int y2)
+    {
+        final int label = getComponent(x1, y1);
+        return label != OBSTACLE && label == getComponent(x2, y2);
+    }
+
+    /**
+     * Can a path exist from start to end, with the rules used by {@link AStar}? The start and
+     * the end are allowed to be obstacles: in that case, their walkable neighbours are checked instead.
+     * This costs at most a few array lookups.
+     */
+    public boolean canReach(final int startX, final int startY, final int endX, final int endY)
+    {
+        final int adx = Math.abs(startX - endX);
+        final int ady = Math.abs(startY - endY);
+        if (adx <= 1 && ady <= 1 && (diagonal || adx + ady <= 1))
+            return true;
+
+        final int startLabel = getComponent(startX, startY);
+        final int endLabel   = getComponent(endX, endY);
+        if (startLabel != OBSTACLE && endLabel != OBSTACLE)
+            return startLabel == endLabel;
+
+        for (int i = firstDir(); i < 8; i += dirStep())
+        {
+            final int s = startLabel != OBSTACLE ? startLabel : getComponent(startX + DX[i], startY + DY[i]);
+            if (s == OBSTACLE)
+                continue;
+
+            if (endLabel != OBSTACLE)
+            {
+                if (s == endLabel)
+                    return true;
+                continue;
+            }
+
+            for (int j = firstDir(); j < 8; j += dirStep())
+            {
+                if (s == getComponent(endX + DX[j], endY + DY[j]))
+                    return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Re-reads a cell from the board, and updates the components if it changed.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     */
+    public void update(final int x, final int y)
+    {
+        if (x < 0 || y < 0 || x >= width || y >= height)
+            return;
+
+        final int     idx     = y * width + x;
+        final boolean nowOpen = walkable(x, y);
+        if (nowOpen == (labels[idx] != OBSTACLE))
+            return;
+
+        if (nowOpen)
+            open(x, y);
+        else
+            close(x, y);
+    }
+
+    private void open(final int x, final int y)
+    {
+        final int idx = y * width + x;
+
+        // the biggest neighbouring component absorbs the cell and all the others
+        int best = OBSTACLE;
+        for (int i = firstDir(); i < 8; i += dirStep())
+        {
+            final int l = getComponent(x + DX[i], y + DY[i]);
+            if (l != OBSTACLE && (best == OBSTACLE || sizes[l] > sizes[best]))
+                best = l;
+        }
+
+        if (best == OBSTACLE)
+        {
+            best = newLabel();
+            labels[idx] = best;
+            sizes[best] = 1;
+            return;
+        }
+
+        labels[idx] = best;
+        sizes[best]++;
+
+        for (int i = firstDir(); i < 8; i += dirStep())
+        {
+            final int nx = x + DX[i];
+            final int ny = y + DY[i];
+            final int l  = getComponent(nx, ny);
+            if (l != OBSTACLE && l != best)
+            {
+                sizes[best] += relabel(ny * width + nx, l, best, false);
+                sizes[l] = 0;
+                freeLabel(l);
+            }
+        }
+    }
+
+    private void close(final int x, final int y)
+    {
+        final int idx   = y * width + x;
+        final int label = labels[idx];
+        labels[idx] = OBSTACLE;
+        if (--sizes[label] == 0)
+        {
+            freeLabel(label);
+            return;
+        }
+
+        // group the neighbours that are still directly connected to each other, around the cell
+        int n = 0;
+        for (int i = firstDir(); i < 8; i += dirStep())
+        {
+            if (getComponent(x + DX[i], y + DY[i]) == label)
+            {
+                queues[n][0] = (y + DY[i]) * width + x + DX[i];
+                owner[n] = n;
+                n++;
+            }
+        }
+
+        int groups = n;
+        for (int i = 0; i < n; i++)
+        {
+            for (int j = i + 1; j < n; j++)
+            {
+                final int adx = Math.abs(queues[i][0] % width - queues[j][0] % width);
+                final int ady = Math.abs(queues[i][0] / width - queues[j][0] / width);
+                if ((diagonal ? Math.max(adx, ady) : adx + ady) != 1)
+                    continue;
+
+                final int ri = find(i);
+                final int rj = find(j);
+                if (ri != rj)
+                {
+                    owner[rj] = ri;
+                    groups--;
+                }
+            }
+        }
+
+        if (groups <= 1)
+            return;
+
+        split(label, n, groups);
+    }
+
+    /**
+     * Floods from each neighbour at the same pace. Searches that meet are merged; a group of searches
+     * exhausted before meeting all the others is a new component. The last group keeps the old label.
+     *
+     * @param label  the label of the component being split
+     * @param n      number of searches, already grouped in {@link #owner}
+     * @param groups number of distinct groups
+     */
+    private void split(final int label, final int n, final int groups)
+    {
+        if (markBase > Integer.MAX_VALUE - 16)
+        {
+            Arrays.fill(mark, 0);
+            markBase = 0;
+        }
+        markBase += 8;
+
+        for (int s = 0; s < n; s++)
+        {
+            heads[s] = 0;
+            tails[s] = 1;
+            mark[queues[s][0]] = markBase + s;
+        }
+
+        int open = groups;
+        while (open > 1)
+        {
+            for (int s = 0; s < n && open > 1; s++)
+            {
+                final int root = find(s);
+                if (root < 0 || heads[s] == tails[s])
+                    continue;
+
+                final int c  = queues[s][heads[s]++];
+                final int cx = c % width;
+                final int cy = c / width;
+                for (int i = firstDir(); i < 8; i += dirStep())
+                {
+                    final int nx = cx + DX[i];
+                    final int ny = cy + DY[i];
+                    if (getComponent(nx, ny) != label)
+                        continue;
+
+                    final int next = ny * width + nx;
+                    final int m    = mark[next] - markBase;
+                    if (m >= 0 && m < 8)
+                    {
+                        final int other = find(m);
+                        if (other >= 0 && other != root)
+                        {
+                            owner[other] = root;
+                            open--;
+                        }
+                        continue;
+                    }
+
+                    mark[next] = markBase + s;
+                    push(s, next);
+                }
+
+                // if every search in this group is exhausted, the group is closed off from the others
+                boolean exhausted = true;
+                for (int t = 0; t < n && exhausted; t++)
+                    exhausted = find(t) != root || heads[t] == tails[t];
+
+                if (exhausted)
+                {
+                    final int newLabel = newLabel();
+                    for (int t = 0; t < n; t++)
+                    {
+                        if (find(t) != root)
+                            continue;
+
+                        for (int k = 0; k < tails[t]; k++)
+                            labels[queues[t][k]] = newLabel;
+                        sizes[newLabel] += tails[t];
+                        sizes[label] -= tails[t];
+                    }
+
+                    // closed: no longer takes part in the flood
+                    owner[root] = -1;
+                    open--;
+                }
+            }
+        }
+    }
+
+    private int find(int s)
+    {
+        while (s >= 0 && owner[s] != s)
+            s = owner[s];
+        return s;
+    }
+
+    /**
+     * Flood fills from a cell, changing all the connected cells with label "from" to label "to".
+     *
+     * @return the number of cells relabelled
+     */
+    private int relabel(final int start, final int from, final int to, final boolean checkWalkable)
+    {
+        labels[start] = to;
+        tails[0] = 0;
+        push(0, start);
+
+        for (int head = 0; head < tails[0]; head++)
+        {
+            final int c  = queues[0][head];
+            final int cx = c % width;
+            final int cy = c / width;
+            for (int i = firstDir(); i < 8; i += dirStep())
+            {
+                final int nx = cx + DX[i];
+                final int ny = cy + DY[i];
+                if (nx < 0 || ny < 0 || nx >= width || ny >= height)
+                    continue;
+
+                final int n = ny * width + nx;
+                if (labels[n] != from || (checkWalkable && !walkable(nx, ny)))
+                    continue;
+
+                labels[n] = to;
+                push(0, n);
+            }
+        }
+
+        return tails[0];
+    }
+
+    private void push(final int s, final int cell)
+    {
+        if (tails[s] == queues[s].length)
+            queues[s] = Arrays.copyOf(queues[s], Math.min(width * height, queues[s].length * 2));
+        queues[s][tails[s]++] = cell;
+    }
+
+    private int newLabel()
+    {
+        if (freeCount > 0)
+        {
+            final int label = freeLabels[--freeCount];
+            sizes[label] = 0;
+            return label;
+        }
+
+        if (nextLabel == sizes.length)
+            sizes = Arrays.copyOf(sizes, sizes.length * 2);
+        sizes[nextLabel] = 0;
+        return nextLabel++;
+    }
+
+    private void freeLabel(final int label)
+    {
+        if (freeCount == freeLabels.length)
+            freeLabels = Arrays.copyOf(freeLabels, freeCount * 2);
+        freeLabels[freeCount++] = label;
+    }
+
+    private boolean walkable(final int x, final int y)
+    {
+        return map.contains(x, y) && !map.isObstacle(x, y);
+    }
+
+    // directions go around the cell: with 4-connectivity only the odd ones are used
+    private int firstDir()
+    {
+        return diagonal ? 0 : 1;
+    }
+
+    private int dirStep()
+    {
+        return diagonal ? 1 : 2;
+    }
+}
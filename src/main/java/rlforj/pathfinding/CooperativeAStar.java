@@ -0,0 +1,420 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.IBoard;
+import rlforj.math.PackedPoint;
+import rlforj.util.IndexedHeap;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Windowed Hierarchical Cooperative A* (Silver, 2005): plans the moves of a group of agents, so that no two of
+ * them are ever in the same cell at the same time, nor swap places.
+ * <p>
+ * The agents are planned one at a time, in the order given. Each one searches the space-time grid (a cell at
+ * each time step, where waiting in place is also a move) for the next few steps, the window, avoiding the
+ * cells that the previous agents reserved in a {@link ReservationTable}; then it reserves its own. The search
+ * is guided by the true distance from the agent's goal, ignoring the other agents, from a Reverse Resumable A*:
+ * a search backwards from the goal, shared by all agents with the same goal, that only goes as far as the
+ * distances asked for, and is kept for the next plan if the goal doesn't change. Movement rules and costs are
+ * the same as {@link AStar}; waiting costs as much as a straight step, except on the goal.
+ * <p>
+ * Only the space-time nodes and the cells that the searches reach are stored, in hash tables, so memory depends
+ * on the searches rather than on the board size times the window or the number of goals.
+ * <p>
+ * Plans are only valid for the window: agents should follow a part of it (eg, half) and plan again. An agent
+ * only avoids the agents planned before it, and the start cells of the others at time 0: later agents get out
+ * of its way, if they can. An agent that can't is blocked: it waits on its start for the whole window, and the
+ * others are planned again around it. An agent whose goal is unreachable also stays on its start, but has no
+ * path at all.
+ * <p>
+ * When cells of the board change, call {@link #update(int, int)}. Not thread safe.
+ */
+public class CooperativeAStar
+{
+    private static final int[] DX = { -1, 0, 1, 1, 1, 0, -1, -1 };
+    private static final int[] DY = { -1, -1, -1, 0, 1, 1, 1, 0 };
+
+    private final IBoard  map;
+    private final int     boardWidth;
+    private final int     boardHeight;
+    private final boolean allowDiagonal;
+    private final int     window;
+
+    private final ReservationTable reservations;
+
+    // space-time nodes reached by the current search, by id: (time << 32 | cell), cost and parent id
+    private long[] nodeKeys = new long[256];
+    private int[]  g        = new int[256];
+    private int[]  parent   = new int[256];
+    private int    nodeCount;
+
+    // open addressing hash table from (time << 32 | cell) to node id, -1 if free
+    private int[] table = new int[512];
+
+    private final IndexedHeap open = new IndexedHeap(256);
+
+    // backward searches from the goals of the last plan, and of the current one while planning
+    private HashMap<Integer, ReverseResumableAStar> goalSearches = new HashMap<>();
+    private HashMap<Integer, ReverseResumableAStar> nextSearches = new HashMap<>();
+
+    // agents of the last plan boxed in by the others
+    private boolean[] blocked = new boolean[0];
+
+    private int expansions;
+
+    public CooperativeAStar(final IBoard map, final int boardWidth, final int boardHeight, final int window)
+    {
+        this(map, boardWidth, boardHeight, window, true);
+    }
+
+    /**
+     * @param window number of time steps planned for each agent
+     */
+    public CooperativeAStar(final IBoard map, final int boardWidth, final int boardHeight, final int window,
+                            final boolean allowDiagonal)
+    {
+        if (window <= 0 || window >= 0xFFFF)
+            throw new IllegalArgumentException("window must be in [1, 65534]: " + window);
+
+        this.map = map;
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.allowDiagonal = allowDiagonal;
+        this.window = window;
+
+        this.reservations = new ReservationTable(boardWidth);
+        Arrays.fill(table, -1);
+    }
+
+    public int getWindow()
+    {
+        return window;
+    }
+
+    /**
+     * @return the reservations of the last plan: the agent in each cell at each time step
+     */
+    public ReservationTable getReservations()
+    {
+        return reservations;
+    }
+
+    /**
+     * @return the number of space-time nodes expanded by the last plan
+     */
+    public int getExpansions()
+    {
+        return expansions;
+    }
+
+    /**
+     * @param agent index of an agent in the last plan
+     * @return true if the agent was boxed in by the agents before it: its path waits on its start for the whole
+     * window, and it may move at the next plan
+     */
+    public boolean isBlocked(final int agent)
+    {
+        return blocked[agent];
+    }
+
+    /**
+     * Reports a cell of the board that changed: the searches of the goals of the last plan that reached it are
+     * dropped, and started again if needed.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     */
+    public void update(final int x, final int y)
+    {
+        goalSearches.values().removeIf(s -> s.touches(x, y));
+    }
+
+    /**
+     * Plans the next moves of all agents. Agent i is at starts[i] and walks to goals[i]; earlier agents have
+     * priority.
+     *
+     * @param starts start points, packed with {@link PackedPoint#pack(int, int)}, all different
+     * @param goals  goal points, packed with {@link PackedPoint#pack(int, int)}
+     * @param count  number of agents
+     * @return for each agent, its position at each time step from 0 (the start) to the window, or length -1 if
+     * it can't reach its goal: it stays where it is, and the others avoid it. See also {@link #isBlocked(int)}
+     */
+    public PathBatch findPaths(final int[] starts, final int[] goals, final int count)
+    {
+        if (count > starts.length || count > goals.length)
+            throw new IllegalArgumentException("fewer points than agents: " + count);
+
+        expansions = 0;
+
+        // left over if the last plan failed
+        nextSearches.clear();
+
+        final HashMap<Integer, ReverseResumableAStar> searches = nextSearches;
+
+        // agents that stay on their start for the whole window: for now, those that can't reach their goal
+        final boolean[] unreachable = new boolean[count];
+        final boolean[] stuck       = new boolean[count];
+        for (int i = 0; i < count; i++)
+        {
+            final int sx = PackedPoint.x(starts[i]);
+            final int sy = PackedPoint.y(starts[i]);
+            final int gx = PackedPoint.x(goals[i]);
+            final int gy = PackedPoint.y(goals[i]);
+            unreachable[i] = !map.contains(sx, sy) || !map.contains(gx, gy) ||
+                             distances(searches, gx, gy, sx, sy).getDistance(sx, sy) == DijkstraMap.UNREACHABLE;
+            stuck[i] = unreachable[i];
+        }
+
+        final int   steps   = window + 1;
+        final int[] offsets = new int[count];
+        final int[] lengths = new int[count];
+        final int[] points  = new int[count * steps];
+
+        // an agent boxed in by the ones before it becomes stuck, and all are planned again around it
+        boolean planned = false;
+        while (!planned)
+            planned = plan(starts, goals, count, stuck, searches, offsets, lengths, points);
+
+        // blocked agents wait: they can try again at the next plan
+        blocked = new boolean[count];
+        for (int i = 0; i < count; i++)
+        {
+            if (stuck[i] && !unreachable[i])
+            {
+                blocked[i] = true;
+                lengths[i] = steps;
+                Arrays.fill(points, offsets[i], offsets[i] + steps, starts[i]);
+            }
+        }
+
+        // the searches of the goals not used anymore are dropped
+        goalSearches.clear();
+        nextSearches = goalSearches;
+        goalSearches = searches;
+
+        return new PathBatch(offsets, lengths, points);
+    }
+
+    /**
+     * Plans the agents in order, after reserving the start of each agent at time 0, and at all times for the
+     * stuck ones.
+     *
+     * @return false if an agent couldn't be planned: it's now stuck
+     */
+    private boolean plan(final int[] starts, final int[] goals, final int count, final boolean[] stuck,
+                         final HashMap<Integer, ReverseResumableAStar> searches, final int[] offsets,
+                         final int[] lengths, final int[] points)
+    {
+        reservations.clear();
+        for (int i = 0; i < count; i++)
+        {
+            final int sx = PackedPoint.x(starts[i]);
+            final int sy = PackedPoint.y(starts[i]);
+            for (int t = 0; t <= (stuck[i] ? window : 0); t++)
+            {
+                if (!reservations.reserve(sx, sy, t, i))
+                    throw new IllegalArgumentException("two agents start at " + sx + "," + sy);
+            }
+        }
+
+        for (int i = 0; i < count; i++)
+        {
+            offsets[i] = i * (window + 1);
+            if (stuck[i])
+            {
+                lengths[i] = -1;
+                continue;
+            }
+
+            final int sx  = PackedPoint.x(starts[i]);
+            final int sy  = PackedPoint.y(starts[i]);
+            final int gx  = PackedPoint.x(goals[i]);
+            final int gy  = PackedPoint.y(goals[i]);
+            final int end = search(i, sx, sy, gx, gy, distances(searches, gx, gy, sx, sy));
+            if (end < 0)
+            {
+                stuck[i] = true;
+                return false;
+            }
+
+            // one node per time step, back from the end of the window: the search avoided all reservations
+            lengths[i] = window + 1;
+            for (int n = end, t = window; t >= 0; n = parent[n], t--)
+            {
+                final int x = (int) nodeKeys[n] % boardWidth;
+                final int y = (int) nodeKeys[n] / boardWidth;
+                points[offsets[i] + t] = PackedPoint.pack(x, y);
+                reservations.reserve(x, y, t, i);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the backward search of a goal, kept from the last plan or started for this one, heading for the
+     * start of the first agent that asked
+     */
+    private ReverseResumableAStar distances(final HashMap<Integer, ReverseResumableAStar> searches, final int x,
+                                            final int y, final int startX, final int startY)
+    {
+        final Integer         key    = PackedPoint.pack(x, y);
+        ReverseResumableAStar search = searches.get(key);
+        if (search != null)
+            return search;
+
+        search = goalSearches.remove(key);
+        if (search == null)
+            search = new ReverseResumableAStar(map, boardWidth, boardHeight, allowDiagonal, x, y, startX, startY);
+        searches.put(key, search);
+        return search;
+    }
+
+    /**
+     * Space-time A* for one agent, up to the end of the window.
+     *
+     * @return the node of the agent at the end of the window, or -1 if there is none
+     */
+    private int search(final int agent, final int startX, final int startY, final int goalX, final int goalY,
+                       final ReverseResumableAStar reverse)
+    {
+        final int h0 = reverse.getDistance(startX, startY);
+        if (h0 == DijkstraMap.UNREACHABLE)
+            return -1;
+
+        open.clear();
+        Arrays.fill(table, -1);
+        nodeCount = 0;
+
+        final long start = startY * boardWidth + startX;
+        open.add(addNode(slot(start), start, 0, -1), key(h0, 0));
+
+        final int moves = allowDiagonal ? 8 : 4;
+        while (!open.isEmpty())
+        {
+            final int node = open.poll();
+            final int t    = (int) (nodeKeys[node] >>> 32);
+            final int cell = (int) nodeKeys[node];
+            final int x    = cell % boardWidth;
+            final int y    = cell / boardWidth;
+            expansions++;
+            if (t == window)
+                return node;
+
+            final int nodeG = g[node];
+
+            // waiting is free on the goal, so an agent that arrived stays there unless it must make way
+            final boolean onGoal = x == goalX && y == goalY;
+            relax(agent, node, x, y, x, y, t, nodeG + (onGoal ? 0 : AStar.STRAIGHT_COST), reverse);
+
+            for (int d = 0; d < moves; d++)
+            {
+                // straight moves first: with 4 directions, only the odd ones
+                final int dir = allowDiagonal ? d : 2 * d + 1;
+                final int cx  = x + DX[dir];
+                final int cy  = y + DY[dir];
+                if (!map.contains(cx, cy))
+                    continue;
+
+                // the only allowed obstacle is the goal
+                if ((cx != goalX || cy != goalY) && map.isObstacle(cx, cy))
+                    continue;
+
+                final int cost = (dir & 1) == 0 ? AStar.DIAGONAL_COST : AStar.STRAIGHT_COST;
+                relax(agent, node, x, y, cx, cy, t, nodeG + cost, reverse);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Moves the agent from (x, y) at time t to (cx, cy) at time t + 1, if no other agent is there or is
+     * coming the other way.
+     */
+    private void relax(final int agent, final int node, final int x, final int y, final int cx, final int cy,
+                       final int t, final int newG, final ReverseResumableAStar reverse)
+    {
+        final int other = reservations.getAgent(cx, cy, t + 1);
+        if (other >= 0 && other != agent)
+            return;
+
+        // a swap: the agent in the next cell now will be in this cell next
+        final int coming = reservations.getAgent(cx, cy, t);
+        if (coming >= 0 && coming != agent && reservations.getAgent(x, y, t + 1) == coming)
+            return;
+
+        final int h = reverse.getDistance(cx, cy);
+        if (h == DijkstraMap.UNREACHABLE)
+            return;
+
+        final long key  = ((long) (t + 1) << 32) | (cy * boardWidth + cx);
+        final int  slot = slot(key);
+        final int  next = table[slot];
+        if (next < 0)
+            open.add(addNode(slot, key, newG, node), key(newG + h, t + 1));
+        else if (newG < g[next] && open.contains(next))
+        {
+            g[next] = newG;
+            parent[next] = node;
+            open.update(next, key(newG + h, t + 1));
+        }
+    }
+
+    /**
+     * @return the slot of the node in the hash table: the one holding it, or the free one where it goes
+     */
+    private int slot(final long key)
+    {
+        final int mask = table.length - 1;
+        int       i    = (int) (key ^ (key >>> 29)) * 0x9E3779B9 & mask;
+        while (table[i] >= 0 && nodeKeys[table[i]] != key)
+            i = (i + 1) & mask;
+        return i;
+    }
+
+    /**
+     * Stores a new node in a free slot of the hash table.
+     *
+     * @return the id of the node
+     */
+    private int addNode(final int slot, final long key, final int cost, final int parentId)
+    {
+        if (nodeCount == nodeKeys.length)
+        {
+            final int length = nodeCount * 2;
+            nodeKeys = Arrays.copyOf(nodeKeys, length);
+            g = Arrays.copyOf(g, length);
+            parent = Arrays.copyOf(parent, length);
+            open.ensureCapacity(length);
+        }
+
+        final int id = nodeCount++;
+        nodeKeys[id] = key;
+        g[id] = cost;
+        parent[id] = parentId;
+        table[slot] = id;
+
+        if (nodeCount * 2 > table.length)
+        {
+            table = new int[table.length * 2];
+            Arrays.fill(table, -1);
+            for (int n = 0; n < nodeCount; n++)
+                table[slot(nodeKeys[n])] = n;
+        }
+        return id;
+    }
+
+    /**
+     * Orders by f, then by latest time step, so that ties go deeper into the window.
+     */
+    private static long key(final int f, final int t)
+    {
+        return ((long) f << 16) | (0xFFFF - t);
+    }
+}
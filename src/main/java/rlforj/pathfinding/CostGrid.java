@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.IBoard;
+
+import java.util.Arrays;
+
+/**
+ * Adds a cost layer to an existing board: one byte per cell, so costs go from 1 to {@link #MAX_COST}.
+ * Everything else (obstacles, visits) is delegated to the board.
+ */
+public class CostGrid implements ICostBoard
+{
+    public static final int MAX_COST = 255;
+
+    private final IBoard board;
+    private final int    width;
+    private final int    height;
+    private final byte[] costs;
+
+    /**
+     * Creates a grid where all cells cost 1.
+     */
+    public CostGrid(final IBoard board, final int width, final int height)
+    {
+        this.board = board;
+        this.width = width;
+        this.height = height;
+        this.costs = new byte[width * height];
+        Arrays.fill(costs, (byte) 1);
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * @param x    x coordinate
+     * @param y    y coordinate
+     * @param cost cost multiplier of entering the cell, from 1 to {@link #MAX_COST}
+     */
+    public void setCost(final int x, final int y, final int cost)
+    {
+        if (cost < 1 || cost > MAX_COST)
+            throw new IllegalArgumentException("cost must be between 1 and " + MAX_COST + ": " + cost);
+
+        costs[y * width + x] = (byte) cost;
+    }
+
+    @Override
+    public int getCost(final int x, final int y)
+    {
+        return costs[y * width + x] & 0xFF;
+    }
+
+    @Override
+    public int getMaxCost()
+    {
+        return MAX_COST;
+    }
+
+    @Override
+    public boolean contains(final int x, final int y)
+    {
+        return x >= 0 && y >= 0 && x < width && y < height && board.contains(x, y);
+    }
+
+    @Override
+    public boolean isObstacle(final int x, final int y)
+    {
+        return board.isObstacle(x, y);
+    }
+
+    @Override
+    public boolean blocksLight(final int x, final int y)
+    {
+        return board.blocksLight(x, y);
+    }
+
+    @Override
+    public boolean blocksStep(final int x, final int y)
+    {
+        return board.blocksStep(x, y);
+    }
+
+    @Override
+    public void visit(final int x, final int y)
+    {
+        board.visit(x, y);
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.IBoard;
+import rlforj.math.Point;
+import rlforj.util.IndexedHeap;
+
+import java.util.Arrays;
+
+/**
+ * D* Lite (Koenig and Likhachev, 2002): incremental replanning towards a fixed goal.
+ * <p>
+ * The search runs backwards, from the goal, and its state is kept between calls. As long as the goal does not
+ * change, asking again for a path (typically from wherever the agent moved to) only repairs the part of the
+ * search made inconsistent by the cells reported with {@link #update(int, int)}, instead of starting over.
+ * A new goal starts a new search.
+ * <p>
+ * Paths are optimal, with the same rules and costs as {@link AStar}. Queries with a radius are handed to
+ * a plain {@link AStar}. This class keeps state, so it is not thread safe: use one instance per agent.
+ */
+public class DStarLite implements IPathAlgorithm
+{
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private static final int[] DX = { -1, 0, 1, 1, 1, 0, -1, -1 };
+    private static final int[] DY = { -1, -1, -1, 0, 1, 1, 1, 0 };
+
+    private final IBoard  map;
+    private final int     boardWidth;
+    private final int     boardHeight;
+    private final boolean allowDiagonal;
+
+    private final AStar local;
+
+    // cost to the goal, and one-step lookahead cost, valid only if stamped with the current generation
+    private final int[]       g;
+    private final int[]       rhs;
+    private final int[]       stamp;
+    private       int         generation;
+    private final IndexedHeap open;
+
+    private boolean initialized;
+    private int     goalX, goalY;
+    private int     startX, startY;
+    private int     lastX, lastY;
+    private int     km;
+
+    private int expansions;
+
+    public DStarLite(final IBoard map, final int boardWidth, final int boardHeight)
+    {
+        this(map, boardWidth, boardHeight, true);
+    }
+
+    public DStarLite(final IBoard map, final int boardWidth, final int boardHeight, final boolean allowDiagonal)
+    {
+        this.map = map;
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.allowDiagonal = allowDiagonal;
+        this.local = new AStar(map, boardWidth, boardHeight, allowDiagonal);
+
+        this.g = new int[boardWidth * boardHeight];
+        this.rhs = new int[boardWidth * boardHeight];
+        this.stamp = new int[boardWidth * boardHeight];
+        this.open = new IndexedHeap(boardWidth * boardHeight);
+    }
+
+    /**
+     * Reports a cell of the board that changed. Its neighbours are re-evaluated at the next query.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     */
+    public void update(final int x, final int y)
+    {
+        if (!initialized || x < 0 || y < 0 || x >= boardWidth || y >= boardHeight)
+            return;
+
+        updateVertex(y * boardWidth + x);
+        for (int i = firstDir(); i < 8; i += dirStep())
+        {
+            final int nx = x + DX[i];
+            final int ny = y + DY[i];
+            if (inside(nx, ny))
+                updateVertex(ny * boardWidth + nx);
+        }
+    }
+
+    /**
+     * @return the number of cells expanded by the last query
+     */
+    public int getExpansions()
+    {
+        return expansions;
+    }
+
+    public Point[] findPath(final int startX, final int startY, final int endX, final int endY)
+    {
+        return findPath(startX, startY, endX, endY, -1);
+    }
+
+    /**
+     * Finds a path, reusing the previous search if the end is the same as the last query's.
+     */
+    public Point[] findPath(final int startX, final int startY, final int endX, final int endY, final int radius)
+    {
+        if (radius >= 0)
+            return local.findPath(startX, startY, endX, endY, radius);
+
+        if (!map.contains(startX, startY) || !map.contains(endX, endY))
+            return null;
+
+        if (!initialized || endX != goalX || endY != goalY)
+            initialize(startX, startY, endX, endY);
+        else
+            moveStart(startX, startY);
+
+        computeShortestPath();
+
+        return extractPath();
+    }
+
+    private void initialize(final int sx, final int sy, final int ex, final int ey)
+    {
+        if (++generation == Integer.MAX_VALUE)
+        {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+
+        open.clear();
+        km = 0;
+        goalX = ex;
+        goalY = ey;
+        startX = lastX = sx;
+        startY = lastY = sy;
+        initialized = true;
+
+        final int goal = ey * boardWidth + ex;
+        touch(goal);
+        rhs[goal] = 0;
+        open.add(goal, key(goal));
+    }
+
+    /**
+     * The agent moved: the heuristic shifts, so km grows by the distance moved to keep the old keys valid.
+     */
+    private void moveStart(final int sx, final int sy)
+    {
+        if (sx == startX && sy == startY)
+            return;
+
+        final int old = startY * boardWidth + startX;
+
+        km += heuristic(lastX, lastY, sx, sy);
+        lastX = startX = sx;
+        lastY = startY = sy;
+
+        // the start is never checked, so both the old and the new start have to be re-evaluated
+        updateVertex(old);
+        updateVertex(sy * boardWidth + sx);
+    }
+
+    private void computeShortestPath()
+    {
+        expansions = 0;
+
+        final int start = startY * boardWidth + startX;
+        touch(start);
+        while (!open.isEmpty() && (open.peekKey() < key(start) || rhs[start] != g[start]))
+        {
+            final int  u    = open.peek();
+            final long kOld = open.peekKey();
+            final long kNew = key(u);
+            expansions++;
+
+            if (kOld < kNew)
+            {
+                open.update(u, kNew);
+                continue;
+            }
+
+            open.poll();
+            if (g[u] > rhs[u])
+            {
+                g[u] = rhs[u];
+            }
+            else
+            {
+                g[u] = INFINITY;
+                updateVertex(u);
+            }
+
+            final int ux = u % boardWidth;
+            final int uy = u / boardWidth;
+            for (int i = firstDir(); i < 8; i += dirStep())
+            {
+                final int nx = ux + DX[i];
+                final int ny = uy + DY[i];
+                if (inside(nx, ny))
+                    updateVertex(ny * boardWidth + nx);
+            }
+        }
+    }
+
+    private void updateVertex(final int s)
+    {
+        touch(s);
+
+        final int sx = s % boardWidth;
+        final int sy = s / boardWidth;
+        if (sx != goalX || sy != goalY)
+        {
+            final int n = bestSuccessor(sx, sy);
+            rhs[s] = n < 0 ? INFINITY : g[n] + stepCost(s, n);
+        }
+
+        if (g[s] != rhs[s])
+            open.addOrUpdate(s, key(s));
+        else
+            open.remove(s);
+    }
+
+    /**
+     * @return the neighbour with the lowest step cost plus cost to the goal, or -1 if none reaches the goal
+     */
+    private int bestSuccessor(final int sx, final int sy)
+    {
+        // only the start can be an obstacle and still move
+        if ((sx != startX || sy != startY) && map.isObstacle(sx, sy))
+            return -1;
+
+        int  best     = -1;
+        long bestCost = INFINITY;
+        for (int i = firstDir(); i < 8; i += dirStep())
+        {
+            final int nx = sx + DX[i];
+            final int ny = sy + DY[i];
+            if (!inside(nx, ny) || ((nx != goalX || ny != goalY) && map.isObstacle(nx, ny)))
+                continue;
+
+            final int n = ny * boardWidth + nx;
+            if (stamp[n] != generation || g[n] == INFINITY)
+                continue;
+
+            final long c = (long) g[n] + ((i & 1) == 0 ? AStar.DIAGONAL_COST : AStar.STRAIGHT_COST);
+            if (c < bestCost)
+            {
+                bestCost = c;
+                best = n;
+            }
+        }
+        return best;
+    }
+
+    private int stepCost(final int a, final int b)
+    {
+        return a % boardWidth != b % boardWidth && a / boardWidth != b / boardWidth ? AStar.DIAGONAL_COST :
+               AStar.STRAIGHT_COST;
+    }
+
+    private Point[] extractPath()
+    {
+        final int start = startY * boardWidth + startX;
+        if (g[start] == INFINITY)
+            return null;
+
+        final int goal = goalY * boardWidth + goalX;
+        int       len  = 1;
+        for (int c = start; c != goal; len++)
+        {
+            c = bestSuccessor(c % boardWidth, c / boardWidth);
+            if (c < 0 || len > boardWidth * boardHeight)
+                return null;
+        }
+
+        final Point[] ret = new Point[len];
+        int           c   = start;
+        for (int i = 0; i < len; i++)
+        {
+            ret[i] = new Point(c % boardWidth, c / boardWidth);
+            if (i < len - 1)
+                c = bestSuccessor(c % boardWidth, c / boardWidth);
+        }
+        return ret;
+    }
+
+    /**
+     * Composite key: the first component in the high bits, the second (the tie breaker) in the low bits.
+     */
+    private long key(final int s)
+    {
+        final int m = Math.min(g[s], rhs[s]);
+        if (m == INFINITY)
+            return Long.MAX_VALUE;
+
+        final long k1 = (long) m + heuristic(startX, startY, s % boardWidth, s / boardWidth) + km;
+        return (k1 << 32) | m;
+    }
+
+    /**
+     * Marks the cell as part of the current search, with infinite costs if it was not already.
+     */
+    private void touch(final int s)
+    {
+        if (stamp[s] != generation)
+        {
+            stamp[s] = generation;
+            g[s] = INFINITY;
+            rhs[s] = INFINITY;
+        }
+    }
+
+    private int heuristic(final int x1, final int y1, final int x2, final int y2)
+    {
+        final int dx = Math.abs(x1 - x2);
+        final int dy = Math.abs(y1 - y2);
+        if (!allowDiagonal)
+            return (dx + dy) * AStar.STRAIGHT_COST;
+
+        final int min = Math.min(dx, dy);
+        return min * AStar.DIAGONAL_COST + (Math.max(dx, dy) - min) * AStar.STRAIGHT_COST;
+    }
+
+    private boolean inside(final int x, final int y)
+    {
+        return x >= 0 && y >= 0 && x < boardWidth && y < boardHeight && map.contains(x, y);
+    }
+
+    private int firstDir()
+    {
+        return allowDiagonal ? 0 : 1;
+    }
+
+    private int dirStep()
+    {
+        return allowDiagonal ? 1 : 2;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.math.Point;
+import rlforj.util.BucketQueue;
+
+/**
+ * A* over a board with terrain costs ({@link ICostBoard}), with a bucket queue instead of a heap.
+ * <p>
+ * Costs are integers and the octile heuristic is consistent, so the keys of the open list only grow, and never
+ * by more than one step: the open list can be a {@link BucketQueue}, where every operation is O(1) instead of
+ * O(log n). The paths are optimal, with the same movement rules as {@link AStar}; entering a cell costs the
+ * usual step cost times the cost of the cell.
+ */
+public class DialSearch implements IPathAlgorithm
+{
+    private final ICostBoard map;
+    private final int        boardWidth;
+    private final int        boardHeight;
+    private final boolean    allowDiagonal;
+
+    private final ThreadLocal<Workspace> workspaces;
+
+    public DialSearch(final ICostBoard map, final int boardWidth, final int boardHeight)
+    {
+        this(map, boardWidth, boardHeight, true);
+    }
+
+    public DialSearch(final ICostBoard map, final int boardWidth, final int boardHeight, final boolean allowDiagonal)
+    {
+        this.map = map;
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.allowDiagonal = allowDiagonal;
+
+        // a key grows by at most one step into the most expensive cell, plus the heuristic lost by the step
+        final int span = AStar.DIAGONAL_COST * map.getMaxCost() + AStar.DIAGONAL_COST;
+        this.workspaces = ThreadLocal.withInitial(() -> new Workspace(boardWidth, boardHeight, span));
+    }
+
+    public Point[] findPath(final int startX, final int startY, final int endX, final int endY)
+    {
+        return findPath(startX, startY, endX, endY, -1);
+    }
+
+    public Point[] findPath(final int startX, final int startY, final int endX, final int endY, final int radius)
+    {
+        final Workspace ws  = workspaces.get();
+        final int       end = search(startX, startY, endX, endY, radius, ws);
+
+        return end < 0 ? null : ws.search.toPoints(end);
+    }
+
+    @Override
+    public int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                        final IPathSink sink)
+    {
+        final Workspace ws  = workspaces.get();
+        final int       end = search(startX, startY, endX, endY, radius, ws);
+
+        return end < 0 ? -1 : ws.search.toSink(end, sink);
+    }
+
+    @Override
+    public int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                        final int[] out)
+    {
+        final Workspace ws  = workspaces.get();
+        final int       end = search(startX, startY, endX, endY, radius, ws);
+
+        return end < 0 ? -1 : ws.search.toPacked(end, out);
+    }
+
+    @Override
+    public int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                        final long[] out)
+    {
+        final Workspace ws  = workspaces.get();
+        final int       end = search(startX, startY, endX, endY, radius, ws);
+
+        return end < 0 ? -1 : ws.search.toPacked(end, out);
+    }
+
+    /**
+     * Runs the search, leaving the result in the workspace.
+     *
+     * @return the flattened index of the end point, or -1 if there is no path
+     */
+    private int search(final int startX, final int startY, final int endX, final int endY, final int radius,
+                       final Workspace ws)
+    {
+        if (!map.contains(startX, startY) || !map.contains(endX, endY))
+            return -1;
+
+        final SearchWorkspace workspace = ws.search;
+        final BucketQueue     open      = ws.open;
+        final int             w         = workspace.width;
+
+        workspace.reset();
+        open.clear();
+
+        final int start = startY * w + startX;
+        workspace.visit(start, 0, -1);
+        if (radius == 0)
+            return start;
+
+        if (radius < 0)
+            workspace.setQuery(0, 0, boardWidth - 1, boardHeight - 1, endX, endY);
+        else
+            workspace.setQuery(startX - radius, startY - radius, Math.min(boardWidth - 1, startX + radius),
+                               Math.min(boardHeight - 1, startY + radius), endX, endY);
+
+        open.add(start, heuristic(startX, startY, endX, endY));
+        while (!open.isEmpty())
+        {
+            final int step  = open.poll();
+            final int stepX = step % w;
+            final int stepY = step / w;
+            workspace.expansions++;
+            if (stepX == endX && stepY == endY)
+                return step;
+
+            final int stepG = workspace.g[step];
+            for (int dx = -1; dx <= 1; dx++)
+            {
+                for (int dy = -1; dy <= 1; dy++)
+                {
+                    if ((dx == 0 && dy == 0) || (dx != 0 && dy != 0 && !allowDiagonal))
+                        continue;
+
+                    final int cx = stepX + dx;
+                    final int cy = stepY + dy;
+                    if (cx < workspace.minX || cy < workspace.minY || cx > workspace.maxX ||
+                        cy > workspace.maxY || !map.contains(cx, cy))
+                        continue;
+
+                    // the only allowed obstacle is the end point
+                    if ((cx != endX || cy != endY) && map.isObstacle(cx, cy))
+                        continue;
+
+                    final int idx = cy * w + cx;
+                    final int g   = stepG + (dx != 0 && dy != 0 ? AStar.DIAGONAL_COST : AStar.STRAIGHT_COST) *
+                                            map.getCost(cx, cy);
+                    if (!workspace.visited(idx))
+                    {
+                        workspace.visit(idx, g, step);
+                        open.add(idx, g + heuristic(cx, cy, endX, endY));
+                    }
+                    else if (workspace.g[idx] > g)
+                    {
+                        // with a consistent heuristic, closed cells are never improved: this one is still open
+                        workspace.g[idx] = g;
+                        workspace.parent[idx] = step;
+                        open.update(idx, g + heuristic(cx, cy, endX, endY));
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Octile distance: every cell costs at least 1, so it never exceeds the real cost.
+     */
+    private int heuristic(final int x, final int y, final int x1, final int y1)
+    {
+        final int dx = Math.abs(x - x1);
+        final int dy = Math.abs(y - y1);
+        if (!allowDiagonal)
+            return (dx + dy) * AStar.STRAIGHT_COST;
+
+        final int min = Math.min(dx, dy);
+        return min * AStar.DIAGONAL_COST + (Math.max(dx, dy) - min) * AStar.STRAIGHT_COST;
+    }
+
+    /**
+     * The search nodes of a thread, and its bucket queue.
+     */
+    private static final class Workspace
+    {
+        final SearchWorkspace search;
+        final BucketQueue     open;
+
+        Workspace(final int width, final int height, final int span)
+        {
+            this.search = new SearchWorkspace(width, height);
+            this.open = new BucketQueue(width * height, span);
+        }
+    }
+}
@@ -0,0 +1,431 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.IBoard;
+import rlforj.math.PackedPoint;
+import rlforj.util.IndexedHeap;
+
+import java.util.Arrays;
+
+/**
+ * A "Dijkstra map": the distance of every cell of the board from the nearest of one or more sources,
+ * with the same movement rules and costs as {@link AStar}.
+ * <p>
+ * Each source has a weight, its starting distance: a source with a higher weight is less attractive.
+ * After {@link #compute()}, any number of agents can walk towards the sources with {@link #nextStep(int, int)},
+ * which only looks at the neighbours of a cell: N chasers cost one flood plus N lookups, instead of N searches.
+ * <p>
+ * Sources can be obstacles (eg, a monster to reach), other obstacles are never entered.
+ * <p>
+ * When some cells of the board change, {@link #update(int[], int)} repairs the distances without
+ * recomputing them: the cells that depended on the changed ones are raised first, and then all of them
+ * are lowered again from their neighbours, so the cost depends on the area affected rather than the board.
+ */
+public class DijkstraMap
+{
+    /**
+     * Distance of the cells that cannot reach any source.
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final int[] DX = { -1, 0, 1, 1, 1, 0, -1, -1 };
+    private static final int[] DY = { -1, -1, -1, 0, 1, 1, 1, 0 };
+
+    private final IBoard  map;
+    private final int     width;
+    private final int     height;
+    private final boolean allowDiagonal;
+
+    private final int[]       distances;
+    private final IndexedHeap open;
+
+    // starting distance of each cell, UNREACHABLE if it's not a source
+    private final int[] weights;
+    private       int[] sources = new int[16];
+    private       int   sourceCount;
+
+    // maximum distance of the last computation, or -1 if there was none
+    private int limit = -1;
+
+    // cells invalidated during an update, marked with the update generation
+    private final int[] mark;
+    private       int   markGeneration;
+    private       int[] affected = new int[64];
+
+    public DijkstraMap(final IBoard map, final int width, final int height)
+    {
+        this(map, width, height, true);
+    }
+
+    public DijkstraMap(final IBoard map, final int width, final int height, final boolean allowDiagonal)
+    {
+        this.map = map;
+        this.width = width;
+        this.height = height;
+        this.allowDiagonal = allowDiagonal;
+
+        this.distances = new int[width * height];
+        this.open = new IndexedHeap(width * height);
+
+        this.weights = new int[width * height];
+        this.mark = new int[width * height];
+        Arrays.fill(distances, UNREACHABLE);
+        Arrays.fill(weights, UNREACHABLE);
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Adds a source with weight 0.
+     */
+    public void addSource(final int x, final int y)
+    {
+        addSource(x, y, 0);
+    }
+
+    /**
+     * Adds a source, or changes the weight of an existing one. Call {@link #compute()} afterwards.
+     *
+     * @param x      x coordinate
+     * @param y      y coordinate
+     * @param weight starting distance, in the same units as {@link AStar#STRAIGHT_COST}
+     */
+    public void addSource(final int x, final int y, final int weight)
+    {
+        if (!map.contains(x, y) || x < 0 || y < 0 || x >= width || y >= height)
+            throw new IllegalArgumentException("source outside of the board: " + x + "," + y);
+        if (weight < 0 || weight == UNREACHABLE)
+            throw new IllegalArgumentException("invalid weight: " + weight);
+
+        final int idx = y * width + x;
+        if (weights[idx] == UNREACHABLE)
+        {
+            if (sourceCount == sources.length)
+                sources = Arrays.copyOf(sources, sourceCount * 2);
+            sources[sourceCount++] = idx;
+        }
+        weights[idx] = weight;
+    }
+
+    /**
+     * Removes all sources. Distances are left untouched until the next {@link #compute()}.
+     */
+    public void clearSources()
+    {
+        for (int i = 0; i < sourceCount; i++)
+            weights[sources[i]] = UNREACHABLE;
+        sourceCount = 0;
+    }
+
+    /**
+     * Computes the distances of the whole board.
+     */
+    public void compute()
+    {
+        compute(UNREACHABLE);
+    }
+
+    /**
+     * Computes the distances up to a maximum: farther cells are left UNREACHABLE.
+     *
+     * @param maxDistance maximum distance to compute, in the same units as {@link AStar#STRAIGHT_COST}
+     */
+    public void compute(final int maxDistance)
+    {
+        limit = maxDistance;
+        Arrays.fill(distances, UNREACHABLE);
+        open.clear();
+
+        for (int i = 0; i < sourceCount; i++)
+        {
+            final int idx = sources[i];
+            if (weights[idx] <= maxDistance)
+            {
+                distances[idx] = weights[idx];
+                open.add(idx, weights[idx]);
+            }
+        }
+
+        flood(distances, 0, maxDistance);
+    }
+
+    /**
+     * Repairs the distances after a cell of the board changed. See {@link #update(int[], int)}.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     */
+    public void update(final int x, final int y)
+    {
+        update(new int[] { PackedPoint.pack(x, y) }, 1);
+    }
+
+    /**
+     * Repairs the distances after some cells of the board changed (eg, a door opened or a wall was dug), with
+     * the same maximum distance as the last {@link #compute(int)}. Sources must not have changed: if they
+     * did, call {@link #compute()} instead. Does nothing if the distances were never computed.
+     *
+     * @param cells changed cells, packed with {@link PackedPoint#pack(int, int)}
+     * @param count number of cells to read from the array
+     */
+    public void update(final int[] cells, final int count)
+    {
+        if (limit < 0)
+            return;
+
+        repair(distances, 0, cells, count, limit);
+    }
+
+    /**
+     * Repairs, in place, distances held outside of this map, as {@link #update(int[], int)} does with its own: they
+     * must have been computed from the current sources, without maximum distance. Only the cells whose distance
+     * changes are touched, and the distances of this map are left alone.
+     *
+     * @param from   array holding the distances
+     * @param offset index of the distance of the first cell in the array
+     * @param cells  changed cells, packed with {@link PackedPoint#pack(int, int)}
+     * @param count  number of cells to read from the array
+     */
+    void update(final int[] from, final int offset, final int[] cells, final int count)
+    {
+        repair(from, offset, cells, count, UNREACHABLE);
+    }
+
+    /**
+     * Repairs the distances in d, where cell i is at (base + i), up to a maximum distance.
+     */
+    private void repair(final int[] d, final int base, final int[] cells, final int count, final int maxDistance)
+    {
+        if (++markGeneration == Integer.MAX_VALUE)
+        {
+            Arrays.fill(mark, 0);
+            markGeneration = 1;
+        }
+
+        open.clear();
+        int n = 0;
+
+        // raise: the changed cells lose their distance, and so do the cells that can only be reached through them
+        for (int i = 0; i < count; i++)
+        {
+            final int x = PackedPoint.x(cells[i]);
+            final int y = PackedPoint.y(cells[i]);
+            if (x < 0 || y < 0 || x >= width || y >= height)
+                continue;
+
+            final int idx = y * width + x;
+            if (mark[idx] != markGeneration)
+            {
+                n = invalidate(d, base, idx, n);
+                open.remove(idx);
+            }
+        }
+
+        // cells are popped in order of their old distance, so their supporters are already decided
+        while (!open.isEmpty())
+        {
+            final int c = open.poll();
+            if (!supported(d, base, c))
+                n = invalidate(d, base, c, n);
+        }
+
+        // lower: every invalidated cell gets the best distance offered by its neighbours, then the flood
+        // propagates them (and any shortcut through newly opened cells)
+        for (int i = 0; i < n; i++)
+        {
+            final int c  = affected[i];
+            final int cx = c % width;
+            final int cy = c / width;
+
+            long best = weights[c];
+            if (map.contains(cx, cy) && !map.isObstacle(cx, cy))
+            {
+                for (int k = allowDiagonal ? 0 : 1; k < 8; k += allowDiagonal ? 1 : 2)
+                {
+                    final int nx = cx + DX[k];
+                    final int ny = cy + DY[k];
+                    if (nx < 0 || ny < 0 || nx >= width || ny >= height)
+                        continue;
+
+                    final int dn = d[base + ny * width + nx];
+                    if (dn != UNREACHABLE)
+                        best = Math.min(best, (long) dn + ((k & 1) == 0 ? AStar.DIAGONAL_COST : AStar.STRAIGHT_COST));
+                }
+            }
+
+            if (best < UNREACHABLE && best <= maxDistance)
+            {
+                d[base + c] = (int) best;
+                open.addOrUpdate(c, best);
+            }
+        }
+
+        flood(d, base, maxDistance);
+    }
+
+    /**
+     * @return the distance of the cell from the nearest source, or UNREACHABLE
+     */
+    public int getDistance(final int x, final int y)
+    {
+        return distances[y * width + x];
+    }
+
+    /**
+     * The distances of all cells, as (y * width + x). The array is owned by this map
+     * and must not be modified.
+     *
+     * @return the distances array
+     */
+    public int[] getDistances()
+    {
+        return distances;
+    }
+
+    /**
+     * The best step towards the nearest source: the neighbour on a shortest path, or any neighbour
+     * getting closer if the cell itself is not reachable (eg, an obstacle). Agents on a source whose
+     * weight is not beaten by a neighbour (eg, any obstacle source) have arrived.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the neighbour packed with {@link PackedPoint#pack(int, int)}, or -1 if there is no better cell
+     */
+    public int nextStep(final int x, final int y)
+    {
+        final int idx = y * width + x;
+        if (weights[idx] != UNREACHABLE && distances[idx] == weights[idx])
+            return -1;
+
+        long best    = distances[idx];
+        int  bestIdx = -1;
+
+        for (int i = allowDiagonal ? 0 : 1; i < 8; i += allowDiagonal ? 1 : 2)
+        {
+            final int nx = x + DX[i];
+            final int ny = y + DY[i];
+            if (nx < 0 || ny < 0 || nx >= width || ny >= height)
+                continue;
+
+            final int d = distances[ny * width + nx];
+            if (d == UNREACHABLE)
+                continue;
+
+            final long total = (long) d + ((i & 1) == 0 ? AStar.DIAGONAL_COST : AStar.STRAIGHT_COST);
+            if (total <= best && (bestIdx < 0 || total < best || d < distances[bestIdx]))
+            {
+                best = total;
+                bestIdx = ny * width + nx;
+            }
+        }
+
+        return bestIdx < 0 ? -1 : PackedPoint.pack(bestIdx % width, bestIdx / width);
+    }
+
+    /**
+     * Marks the cell as affected by an update, clears its distance and queues its neighbours for checking.
+     *
+     * @return the new number of affected cells
+     */
+    private int invalidate(final int[] d, final int base, final int c, final int n)
+    {
+        mark[c] = markGeneration;
+        if (n == affected.length)
+            affected = Arrays.copyOf(affected, Math.min(width * height, n * 2));
+        affected[n] = c;
+
+        final int old = d[base + c];
+        d[base + c] = UNREACHABLE;
+        if (old == UNREACHABLE)
+            return n + 1;
+
+        final int cx = c % width;
+        final int cy = c / width;
+        for (int k = allowDiagonal ? 0 : 1; k < 8; k += allowDiagonal ? 1 : 2)
+        {
+            final int nx = cx + DX[k];
+            final int ny = cy + DY[k];
+            if (nx < 0 || ny < 0 || nx >= width || ny >= height)
+                continue;
+
+            final int v  = ny * width + nx;
+            final int dv = d[base + v];
+            if (dv != UNREACHABLE && dv > old && mark[v] != markGeneration && !open.contains(v))
+                open.add(v, dv);
+        }
+
+        return n + 1;
+    }
+
+    /**
+     * @return true if the cell's distance is still justified by its weight or a neighbour outside the update
+     */
+    private boolean supported(final int[] d, final int base, final int c)
+    {
+        final int dist = d[base + c];
+        if (weights[c] == dist)
+            return true;
+
+        final int cx = c % width;
+        final int cy = c / width;
+        for (int k = allowDiagonal ? 0 : 1; k < 8; k += allowDiagonal ? 1 : 2)
+        {
+            final int nx = cx + DX[k];
+            final int ny = cy + DY[k];
+            if (nx < 0 || ny < 0 || nx >= width || ny >= height)
+                continue;
+
+            final int v  = ny * width + nx;
+            final int dv = d[base + v];
+            if (dv != UNREACHABLE && mark[v] != markGeneration &&
+                dv + ((k & 1) == 0 ? AStar.DIAGONAL_COST : AStar.STRAIGHT_COST) == dist)
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Dijkstra from the cells already in the open list, the distance of cell i being d[base + i].
+     */
+    private void flood(final int[] d, final int base, final int maxDistance)
+    {
+        while (!open.isEmpty())
+        {
+            final int c  = open.poll();
+            final int cx = c % width;
+            final int cy = c / width;
+            final int cd = d[base + c];
+
+            for (int i = allowDiagonal ? 0 : 1; i < 8; i += allowDiagonal ? 1 : 2)
+            {
+                final int nx = cx + DX[i];
+                final int ny = cy + DY[i];
+                if (nx < 0 || ny < 0 || nx >= width || ny >= height || !map.contains(nx, ny) ||
+                    map.isObstacle(nx, ny))
+                    continue;
+
+                final int  n  = ny * width + nx;
+                final long dn = (long) cd + ((i & 1) == 0 ? AStar.DIAGONAL_COST : AStar.STRAIGHT_COST);
+                if (dn < d[base + n] && dn <= maxDistance)
+                {
+                    d[base + n] = (int) dn;
+                    open.addOrUpdate(n, dn);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,489 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.IBoard;
+import rlforj.math.PackedPoint;
+import rlforj.math.Point;
+import rlforj.util.IndexedHeap;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical pathfinding (HPA*, Botea et al., 2004) over the entrances of a {@link SectorGraph}.
+ * <p>
+ * The search runs on the entrance nodes rather than on the cells: one or two crossings per entrance between two
+ * sectors. Start and end are connected to the nodes of their sectors with a flood inside each sector, A* finds
+ * the best sequence of nodes, and only the sectors along it are refined into cells. A long query therefore
+ * expands a few nodes per sector crossed, instead of every cell in the way.
+ * <p>
+ * A path is found whenever one exists, with the same rules as {@link AStar}, but it's only near-optimal: it goes
+ * through the chosen crossings, rather than anywhere along an entrance. Queries that can't succeed are rejected
+ * at once by the {@link ConnectivityIndex} of the graph. Queries with a radius are handed to a plain
+ * {@link AStar}, as the sectors ignore it.
+ * <p>
+ * When a cell changes, call {@link #update(int, int)}: only the sectors around it are rebuilt, when next needed.
+ * Like the graph, this class is not thread safe.
+ */
+public class HierarchicalAStar implements IPathAlgorithm
+{
+    /**
+     * Default sector size, in cells.
+     */
+    public static final int DEFAULT_SECTOR_SIZE = 16;
+
+    private final SectorGraph graph;
+    private final AStar       local;
+    private final int         width;
+
+    private final SearchWorkspace workspace;
+
+    // nodes that can reach the end inside their sector, with the cost, valid only if stamped with endGeneration
+    private final int[] endCost;
+    private final int[] endStamp;
+    private       int   endGeneration;
+
+    // scratch space for the in-sector floods
+    private final int[]       dist;
+    private final IndexedHeap distOpen;
+    private final int[]       around = new int[9];
+
+    // the last path found, as flattened cell indexes
+    private int[] path = new int[64];
+    private int[] chain = new int[16];
+
+    private int expansions;
+
+    public HierarchicalAStar(final IBoard map, final int boardWidth, final int boardHeight)
+    {
+        this(map, boardWidth, boardHeight, true);
+    }
+
+    public HierarchicalAStar(final IBoard map, final int boardWidth, final int boardHeight,
+                             final boolean allowDiagonal)
+    {
+        this(new SectorGraph(map, boardWidth, boardHeight, DEFAULT_SECTOR_SIZE, allowDiagonal));
+    }
+
+    /**
+     * Searches an existing graph, which can be shared with other engines (eg, {@link SectorFlowField}).
+     */
+    public HierarchicalAStar(final SectorGraph graph)
+    {
+        this.graph = graph;
+        this.local = new AStar(graph.map, graph.width, graph.height, graph.diagonal);
+        this.width = graph.width;
+
+        this.workspace = new SearchWorkspace(graph.width, graph.height);
+        this.endCost = new int[graph.width * graph.height];
+        this.endStamp = new int[graph.width * graph.height];
+
+        this.dist = new int[graph.size * graph.size];
+        this.distOpen = new IndexedHeap(graph.size * graph.size);
+    }
+
+    public SectorGraph getGraph()
+    {
+        return graph;
+    }
+
+    /**
+     * @return the number of entrance nodes expanded by the last search
+     */
+    public int getExpansions()
+    {
+        return expansions;
+    }
+
+    /**
+     * Rebuilds the sectors around a cell that changed, the next time they are needed.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     */
+    public void update(final int x, final int y)
+    {
+        graph.update(x, y);
+    }
+
+    public Point[] findPath(final int startX, final int startY, final int endX, final int endY)
+    {
+        return findPath(startX, startY, endX, endY, -1);
+    }
+
+    public Point[] findPath(final int startX, final int startY, final int endX, final int endY, final int radius)
+    {
+        if (radius >= 0)
+            return local.findPath(startX, startY, endX, endY, radius);
+
+        final int len = search(startX, startY, endX, endY);
+        if (len < 0)
+            return null;
+
+        final Point[] ret = new Point[len];
+        for (int i = 0; i < len; i++)
+            ret[i] = new Point(path[i] % width, path[i] / width);
+        return ret;
+    }
+
+    @Override
+    public int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                        final IPathSink sink)
+    {
+        if (radius >= 0)
+            return local.findPath(startX, startY, endX, endY, radius, sink);
+
+        final int len = search(startX, startY, endX, endY);
+        for (int i = 0; i < len; i++)
+        {
+            if (!sink.step(path[i] % width, path[i] / width))
+                break;
+        }
+        return len;
+    }
+
+    @Override
+    public int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                        final int[] out)
+    {
+        if (radius >= 0)
+            return local.findPath(startX, startY, endX, endY, radius, out);
+
+        final int len = search(startX, startY, endX, endY);
+        for (int i = 0; i < len && i < out.length; i++)
+            out[i] = PackedPoint.pack(path[i] % width, path[i] / width);
+        return len;
+    }
+
+    @Override
+    public int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                        final long[] out)
+    {
+        if (radius >= 0)
+            return local.findPath(startX, startY, endX, endY, radius, out);
+
+        final int len = search(startX, startY, endX, endY);
+        for (int i = 0; i < len && i < out.length; i++)
+            out[i] = PackedPoint.packLong(path[i] % width, path[i] / width);
+        return len;
+    }
+
+    /**
+     * Runs the abstract search and refines its result, leaving the path in the internal buffer.
+     *
+     * @return the length of the path, or -1 if there is no path
+     */
+    private int search(final int startX, final int startY, final int endX, final int endY)
+    {
+        expansions = 0;
+        if (!graph.map.contains(startX, startY) || !graph.map.contains(endX, endY))
+            return -1;
+
+        if (!graph.connectivity.canReach(startX, startY, endX, endY))
+            return -1;
+
+        if (startX == endX && startY == endY)
+        {
+            path[0] = startY * width + startX;
+            return 1;
+        }
+
+        if (++endGeneration == Integer.MAX_VALUE)
+        {
+            Arrays.fill(endStamp, 0);
+            endGeneration = 1;
+        }
+
+        // nodes that can reach the end without leaving their sector
+        int n = graph.sectorsAround(endX, endY, around);
+        for (int i = 0; i < n; i++)
+        {
+            final int s = around[i];
+            graph.seed(s, endX, endY, dist, distOpen);
+            graph.flood(s, dist, distOpen);
+
+            for (final int node : graph.entrances(s).nodes)
+            {
+                final int d = dist[graph.localIndex(s, node)];
+                if (d != SectorGraph.UNREACHABLE)
+                {
+                    endCost[node] = d;
+                    endStamp[node] = endGeneration;
+                }
+            }
+        }
+
+        // nodes reachable from the start without leaving their sector, and the paths that never leave one
+        workspace.reset();
+        final IndexedHeap open = workspace.open;
+
+        long best       = SectorGraph.UNREACHABLE;
+        int  bestNode   = -1;
+        int  bestSector = -1;
+
+        n = graph.sectorsAround(startX, startY, around);
+        for (int i = 0; i < n; i++)
+        {
+            final int s = around[i];
+            graph.seed(s, startX, startY, dist, distOpen);
+            graph.flood(s, dist, distOpen);
+
+            for (final int node : graph.entrances(s).nodes)
+            {
+                final int d = dist[graph.localIndex(s, node)];
+                if (d != SectorGraph.UNREACHABLE)
+                    relax(node, d, -1, endX, endY);
+            }
+
+            final long direct = directCost(s, endX, endY);
+            if (direct < best)
+            {
+                best = direct;
+                bestSector = s;
+            }
+        }
+
+        // A* over the nodes, until no node can improve on the best path to the end
+        while (!open.isEmpty() && (open.peekKey() >>> 32) < best)
+        {
+            final int node = open.poll();
+            final int g    = workspace.g[node];
+            expansions++;
+
+            if (endStamp[node] == endGeneration && g + endCost[node] < best)
+            {
+                best = g + endCost[node];
+                bestNode = node;
+            }
+
+            final int                   s         = graph.sectorOf(node % width, node / width);
+            final SectorGraph.Entrances entrances = graph.entrances(s);
+            final int                   count     = entrances.nodes.length;
+            final int                   k         = SectorGraph.nodeIndex(entrances, node);
+            for (int j = 0; j < count; j++)
+            {
+                final int c = entrances.costs[k * count + j];
+                if (j != k && c != SectorGraph.UNREACHABLE)
+                    relax(entrances.nodes[j], g + c, node, endX, endY);
+            }
+
+            // the crossings to the entrance nodes of the other sectors
+            for (int j = entrances.partnerStart[k]; j < entrances.partnerStart[k + 1]; j++)
+            {
+                final int other = entrances.partners[j];
+                final int step  = other % width != node % width && other / width != node / width ?
+                                  AStar.DIAGONAL_COST : AStar.STRAIGHT_COST;
+                relax(other, g + step, node, endX, endY);
+            }
+        }
+
+        if (best == SectorGraph.UNREACHABLE)
+            return -1;
+
+        return bestNode < 0 ? refineDirect(bestSector, startX, startY, endX, endY) :
+               refine(bestNode, startX, startY, endX, endY);
+    }
+
+    private void relax(final int node, final int g, final int parent, final int endX, final int endY)
+    {
+        if (!workspace.visited(node))
+        {
+            workspace.visit(node, g, parent);
+            workspace.open.add(node, key(g, heuristic(node, endX, endY)));
+        }
+        else if (g < workspace.g[node] && workspace.open.contains(node))
+        {
+            workspace.g[node] = g;
+            workspace.parent[node] = parent;
+            workspace.open.update(node, key(g, heuristic(node, endX, endY)));
+        }
+    }
+
+    /**
+     * Orders by f, then by highest g: among equal estimates, the nodes closest to the end come first.
+     */
+    private static long key(final int g, final int h)
+    {
+        return ((long) (g + h) << 32) | (0xFFFFFFFFL - g);
+    }
+
+    /**
+     * Octile distance: never more than the real cost, so the node paths are optimal over the entrances.
+     */
+    private int heuristic(final int node, final int endX, final int endY)
+    {
+        final int dx = Math.abs(node % width - endX);
+        final int dy = Math.abs(node / width - endY);
+        if (!graph.diagonal)
+            return (dx + dy) * AStar.STRAIGHT_COST;
+
+        final int min = Math.min(dx, dy);
+        return min * AStar.DIAGONAL_COST + (Math.max(dx, dy) - min) * AStar.STRAIGHT_COST;
+    }
+
+    /**
+     * With the local distances flooded from the start, the cost of reaching the end from this sector.
+     */
+    private long directCost(final int s, final int endX, final int endY)
+    {
+        final int n = bestEndNeighbour(s, endX, endY);
+        if (n < 0)
+            return SectorGraph.UNREACHABLE;
+
+        final int step = n % width != endX && n / width != endY ? AStar.DIAGONAL_COST : AStar.STRAIGHT_COST;
+        return (long) dist[graph.localIndex(s, n)] + step;
+    }
+
+    /**
+     * @return the cell of the sector, adjacent to the end, with the lowest local distance plus step, or -1
+     */
+    private int bestEndNeighbour(final int s, final int endX, final int endY)
+    {
+        int  best     = -1;
+        long bestCost = SectorGraph.UNREACHABLE;
+        for (int i = graph.firstDir(); i < 8; i += graph.dirStep())
+        {
+            final int nx = endX + SectorGraph.DX[i];
+            final int ny = endY + SectorGraph.DY[i];
+            if (nx < 0 || ny < 0 || nx >= graph.width || ny >= graph.height || graph.sectorOf(nx, ny) != s)
+                continue;
+
+            final int d = dist[graph.localIndex(s, ny * width + nx)];
+            if (d != SectorGraph.UNREACHABLE && (long) d + SectorGraph.cost(i) < bestCost)
+            {
+                bestCost = (long) d + SectorGraph.cost(i);
+                best = ny * width + nx;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Builds the path of a start and end connected inside one sector.
+     */
+    private int refineDirect(final int s, final int startX, final int startY, final int endX, final int endY)
+    {
+        graph.seed(s, startX, startY, dist, distOpen);
+        graph.flood(s, dist, distOpen);
+
+        path[0] = endY * width + endX;
+        int len = descend(s, bestEndNeighbour(s, endX, endY), startX, startY, 1);
+        reverse(0, len);
+        return len;
+    }
+
+    /**
+     * Builds the path through the chain of nodes ending with the given one, refining each sector crossed.
+     */
+    private int refine(final int last, final int startX, final int startY, final int endX, final int endY)
+    {
+        int count = 0;
+        for (int node = last; node >= 0; node = workspace.parent[node])
+        {
+            if (count == chain.length)
+                chain = Arrays.copyOf(chain, count * 2);
+            chain[count++] = node;
+        }
+
+        // from the first node back to the start, then reversed
+        final int first = chain[count - 1];
+        int       s     = graph.sectorOf(first % width, first / width);
+        graph.seed(s, startX, startY, dist, distOpen);
+        graph.flood(s, dist, distOpen);
+        int len = descend(s, first, startX, startY, 0);
+        reverse(0, len);
+
+        for (int i = count - 1; i > 0; i--)
+        {
+            final int from = chain[i];
+            final int to   = chain[i - 1];
+
+            s = graph.sectorOf(from % width, from / width);
+            if (s != graph.sectorOf(to % width, to / width))
+            {
+                len = append(len, to);
+                continue;
+            }
+
+            graph.seed(s, to % width, to / width, dist, distOpen);
+            graph.flood(s, dist, distOpen);
+            len = descend(s, from, to % width, to / width, len - 1);
+        }
+
+        s = graph.sectorOf(last % width, last / width);
+        graph.seed(s, endX, endY, dist, distOpen);
+        graph.flood(s, dist, distOpen);
+        return descend(s, last, endX, endY, len - 1);
+    }
+
+    /**
+     * Follows the local distances downhill, from a cell of the sector to the point they were flooded from,
+     * writing the cells into the path (both ends included).
+     *
+     * @return the new length of the path
+     */
+    private int descend(final int s, final int from, final int px, final int py, int len)
+    {
+        final int target = py * width + px;
+
+        int cur = from;
+        len = append(len, cur);
+        while (cur != target)
+        {
+            final int cx = cur % width;
+            final int cy = cur / width;
+            final int d  = dist[graph.localIndex(s, cur)];
+
+            final int adx = Math.abs(cx - px);
+            final int ady = Math.abs(cy - py);
+            if (adx <= 1 && ady <= 1 && (graph.diagonal || adx + ady == 1) &&
+                d == (adx + ady == 2 ? AStar.DIAGONAL_COST : AStar.STRAIGHT_COST))
+            {
+                cur = target;
+            }
+            else
+            {
+                int next = -1;
+                for (int i = graph.firstDir(); i < 8 && next < 0; i += graph.dirStep())
+                {
+                    final int nx = cx + SectorGraph.DX[i];
+                    final int ny = cy + SectorGraph.DY[i];
+                    if (nx < 0 || ny < 0 || nx >= graph.width || ny >= graph.height ||
+                        graph.sectorOf(nx, ny) != s || !graph.walkable(nx, ny))
+                        continue;
+
+                    final int nd = dist[graph.localIndex(s, ny * width + nx)];
+                    if (nd != SectorGraph.UNREACHABLE && nd + SectorGraph.cost(i) == d)
+                        next = ny * width + nx;
+                }
+                cur = next;
+            }
+
+            len = append(len, cur);
+        }
+
+        return len;
+    }
+
+    private int append(final int len, final int cell)
+    {
+        if (len == path.length)
+            path = Arrays.copyOf(path, len * 2);
+        path[len] = cell;
+        return len + 1;
+    }
+
+    private void reverse(final int from, final int to)
+    {
+        for (int i = from, j = to - 1; i < j; i++, j--)
+        {
+            final int t = path[i];
+            path[i] = path[j];
+            path[j] = t;
+        }
+    }
+}
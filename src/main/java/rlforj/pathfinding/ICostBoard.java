@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.IBoard;
+
+/**
+ * A board whose walkable cells have a movement cost (eg, roads cheaper than swamps), for {@link DialSearch}.
+ * <p>
+ * Stepping into a cell costs the usual {@link AStar#STRAIGHT_COST} or {@link AStar#DIAGONAL_COST}, times the
+ * cost of the cell.
+ */
+public interface ICostBoard extends IBoard
+{
+    /**
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the cost multiplier of entering the cell, from 1 to {@link #getMaxCost()}
+     */
+    int getCost(int x, int y);
+
+    /**
+     * @return the highest cost of any cell, now or in the future
+     */
+    int getMaxCost();
+}
@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+/**
+ * Tells which cells a {@link MultiGoalAStar} search can end in.
+ */
+@FunctionalInterface
+public interface IGoalPredicate
+{
+    /**
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return true if the search can end at this cell
+     */
+    boolean isGoal(int x, int y);
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+/**
+ * Estimates the cost of the path from a cell to the end point, for {@link AStar}.
+ * <p>
+ * If the estimate is never more than the real cost (admissible), the paths found are optimal. The higher the
+ * estimate without exceeding the real cost, the fewer nodes the search expands.
+ */
+@FunctionalInterface
+public interface IHeuristic
+{
+    /**
+     * @return the estimated cost from (x, y) to (endX, endY), in {@link AStar#STRAIGHT_COST} units
+     */
+    int estimate(int x, int y, int endX, int endY);
+}
@@ -6,6 +6,7 @@
 
 package rlforj.pathfinding;
 
+import rlforj.math.PackedPoint;
 import rlforj.math.Point;
 
 /**
@@ -15,4 +16,61 @@ import rlforj.math.Point;
 public interface IPathAlgorithm
 {
     Point[] findPath(final int startX, final int starty, final int endX, final int endY, final int radius);
+
+    /**
+     * Finds a path and passes its points to the sink, from start to end, until the sink asks to stop.
+     *
+     * @return the length of the whole path (including start and end), or -1 if there is no path
+     */
+    default int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                         final IPathSink sink)
+    {
+        final Point[] path = findPath(startX, startY, endX, endY, radius);
+        if (path == null)
+            return -1;
+
+        for (final Point p : path)
+        {
+            if (!sink.step(p.x, p.y))
+                break;
+        }
+
+        return path.length;
+    }
+
+    /**
+     * Finds a path and writes its first points, packed with {@link PackedPoint#pack(int, int)}, into the
+     * given array. If the array is shorter than the path, only the first out.length points are written.
+     *
+     * @return the length of the whole path (including start and end), or -1 if there is no path
+     */
+    default int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                         final int[] out)
+    {
+        final int[] i = { 0 };
+        return findPath(startX, startY, endX, endY, radius, (x, y) ->
+        {
+            if (i[0] < out.length)
+                out[i[0]++] = PackedPoint.pack(x, y);
+            return i[0] < out.length;
+        });
+    }
+
+    /**
+     * Finds a path and writes its first points, packed with {@link PackedPoint#packLong(int, int)}, into the
+     * given array. If the array is shorter than the path, only the first out.length points are written.
+     *
+     * @return the length of the whole path (including start and end), or -1 if there is no path
+     */
+    default int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                         final long[] out)
+    {
+        final int[] i = { 0 };
+        return findPath(startX, startY, endX, endY, radius, (x, y) ->
+        {
+            if (i[0] < out.length)
+                out[i[0]++] = PackedPoint.packLong(x, y);
+            return i[0] < out.length;
+        });
+    }
 }
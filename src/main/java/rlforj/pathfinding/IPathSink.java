@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+/**
+ * Receives a path one point at a time, from start to end, without any object being created.
+ */
+@FunctionalInterface
+public interface IPathSink
+{
+    /**
+     * @param x x coordinate of the next point of the path
+     * @param y y coordinate of the next point of the path
+     * @return true to receive the next point, false to stop
+     */
+    boolean step(int x, int y);
+}
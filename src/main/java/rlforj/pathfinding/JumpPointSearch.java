@@ -0,0 +1,577 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.IBoard;
+import rlforj.math.Point;
+import rlforj.util.Directions;
+import rlforj.util.IndexedHeap;
+
+/**
+ * Jump Point Search (Harabor and Grastien, 2011).
+ * <p>
+ * It returns paths of the same cost as an optimal A* on the same board, with the same movement rules
+ * as {@link AStar}: orthogonal and diagonal steps (if allowed) cost {@link AStar#STRAIGHT_COST} and
+ * {@link AStar#DIAGONAL_COST}, diagonals can cut corners and
+ * the end point is always reachable even when it's an obstacle.
+ * <p>
+ * Instead of adding every neighbour to the open list, it "jumps" along straight and diagonal lines
+ * and only stops where the path could be forced to turn, so on open maps the heap only ever sees
+ * a handful of nodes. The returned path is expanded back to adjacent cells.
+ * <p>
+ * For static maps, the JPS+ mode reads precomputed jump distances from a {@link JumpTable} instead
+ * of scanning the board at query time. It always allows diagonal movement, and it falls back to plain
+ * jumps for queries with a radius or with an obstacle as end point.
+ */
+public class JumpPointSearch implements IPathAlgorithm
+{
+    // direction ordinal by (dx + 1) * 3 + (dy + 1)
+    private static final int[] DIRECTION = new int[9];
+
+    static
+    {
+        for (final Directions d : Directions.values())
+            DIRECTION[(d.dx() + 1) * 3 + d.dy() + 1] = d.ordinal();
+    }
+
+    private final IBoard  map;
+    private final int     boardWidth;
+    private final int     boardHeight;
+    private final boolean allowDiagonal;
+
+    private final JumpTable table;
+
+    private final ThreadLocal<SearchWorkspace> workspaces;
+
+    public JumpPointSearch(final IBoard map, final int boardWidth, final int boardHeight)
+    {
+        this(map, boardWidth, boardHeight, true);
+    }
+
+    public JumpPointSearch(final IBoard map, final int boardWidth, final int boardHeight, final boolean allowDiagonal)
+    {
+        this(map, boardWidth, boardHeight, allowDiagonal, null);
+    }
+
+    /**
+     * JPS+ mode: jumps are read from the table, which must be kept up to date with the board.
+     *
+     * @param map   the board
+     * @param table jump distances precomputed from the board
+     */
+    public JumpPointSearch(final IBoard map, final JumpTable table)
+    {
+        this(map, table.getWidth(), table.getHeight(), true, table);
+    }
+
+    private JumpPointSearch(final IBoard map, final int boardWidth, final int boardHeight,
+                            final boolean allowDiagonal, final JumpTable table)
+    {
+        this.map = map;
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.allowDiagonal = allowDiagonal;
+        this.table = table;
+
+        this.workspaces = ThreadLocal.withInitial(() -> new SearchWorkspace(boardWidth, boardHeight));
+    }
+
+    public Point[] findPath(final int startX, final int startY, final int endX, final int endY)
+    {
+        return findPath(startX, startY, endX, endY, -1);
+    }
+
+    public Point[] findPath(final int startX, final int startY, final int endX, final int endY, final int radius)
+    {
+        return findPath(startX, startY, endX, endY, radius, workspaces.get());
+    }
+
+    public Point[] findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                            final SearchWorkspace workspace)
+    {
+        final int end = search(startX, startY, endX, endY, radius, workspace);
+
+        return end < 0 ? null : workspace.toPoints(end);
+    }
+
+    @Override
+    public int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                        final IPathSink sink)
+    {
+        final SearchWorkspace workspace = workspaces.get();
+        final int             end       = search(startX, startY, endX, endY, radius, workspace);
+
+        return end < 0 ? -1 : workspace.toSink(end, sink);
+    }
+
+    @Override
+    public int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                        final int[] out)
+    {
+        final SearchWorkspace workspace = workspaces.get();
+        final int             end       = search(startX, startY, endX, endY, radius, workspace);
+
+        return end < 0 ? -1 : workspace.toPacked(end, out);
+    }
+
+    @Override
+    public int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                        final long[] out)
+    {
+        final SearchWorkspace workspace = workspaces.get();
+        final int             end       = search(startX, startY, endX, endY, radius, workspace);
+
+        return end < 0 ? -1 : workspace.toPacked(end, out);
+    }
+
+    /**
+     * Runs the search, leaving the jump points in the workspace.
+     *
+     * @return the flattened index of the end point, or -1 if there is no path
+     */
+    private int search(final int startX, final int startY, final int endX, final int endY, final int radius,
+                       final SearchWorkspace workspace)
+    {
+        if (workspace.width < boardWidth || workspace.height < boardHeight)
+            throw new IllegalArgumentException("workspace is smaller than the board");
+
+        if (!this.map.contains(startX, startY) || !this.map.contains(endX, endY))
+            return -1;
+
+        if (radius == 0)
+        {
+            workspace.reset();
+            workspace.visit(startY * workspace.width + startX, 0, -1);
+            return startY * workspace.width + startX;
+        }
+
+        if (radius < 0)
+            workspace.setQuery(0, 0, boardWidth - 1, boardHeight - 1, endX, endY);
+        else
+            workspace.setQuery(startX - radius, startY - radius, Math.min(boardWidth - 1, startX + radius),
+                               Math.min(boardHeight - 1, startY + radius), endX, endY);
+
+        workspace.reset();
+
+        final boolean plus = table != null && radius < 0 && !map.isObstacle(endX, endY);
+
+        final IndexedHeap open       = workspace.open;
+        final int         w          = workspace.width;
+        final int[]       successors = workspace.neighbours;
+        final int         start      = startY * w + startX;
+        workspace.visit(start, 0, -1);
+        open.add(start, heuristics(startX, startY, endX, endY));
+        while (!open.isEmpty())
+        {
+            final int step  = open.poll();
+            final int stepX = step % w;
+            final int stepY = step / w;
+            if (stepX == endX && stepY == endY)
+                return step;
+
+            final int count = plus ? tableSuccessors(workspace, step, successors) :
+                              successors(workspace, step, successors);
+            for (int i = 0; i < count; i += 2)
+            {
+                final int jx = successors[i];
+                final int jy = successors[i + 1];
+
+                // jump points are always on a straight or diagonal line from their parent
+                final int dist = Math.max(Math.abs(jx - stepX), Math.abs(jy - stepY));
+                final int g    = workspace.g[step] + dist * (jx != stepX && jy != stepY ?
+                                                             AStar.DIAGONAL_COST :
+                                                             AStar.STRAIGHT_COST);
+
+                final int idx = jy * w + jx;
+                if (!workspace.visited(idx))
+                {
+                    workspace.visit(idx, g, step);
+                    open.add(idx, g + heuristics(jx, jy, endX, endY));
+                }
+                else if (workspace.g[idx] > g)
+                {
+                    workspace.g[idx] = g;
+                    workspace.parent[idx] = step;
+                    open.addOrUpdate(idx, g + heuristics(jx, jy, endX, endY));
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Octile distance: consistent with the movement costs, so the first time the end is polled
+     * the path is optimal.
+     */
+    private int heuristics(final int x, final int y, final int endX, final int endY)
+    {
+        final int dx = Math.abs(x - endX);
+        final int dy = Math.abs(y - endY);
+
+        if (!allowDiagonal)
+            return (dx + dy) * AStar.STRAIGHT_COST;
+
+        final int diagsteps = Math.min(dx, dy);
+        return diagsteps * AStar.DIAGONAL_COST + (Math.max(dx, dy) - diagsteps) * AStar.STRAIGHT_COST;
+    }
+
+    private boolean walkable(final SearchWorkspace ws, final int x, final int y)
+    {
+        if (x < ws.minX || y < ws.minY || x > ws.maxX || y > ws.maxY || !map.contains(x, y))
+            return false;
+
+        // the only allowed obstacle is the end point
+        return (x == ws.endX && y == ws.endY) || !map.isObstacle(x, y);
+    }
+
+    /**
+     * Fills the array with the jump points reachable from a node.
+     *
+     * @return the number of coordinates written (twice the number of jump points)
+     */
+    private int successors(final SearchWorkspace ws, final int node, final int[] out)
+    {
+        final int x     = node % ws.width;
+        final int y     = node / ws.width;
+        final int count = neighbours(ws, node, out);
+
+        int n = 0;
+        for (int i = 0; i < count; i += 2)
+        {
+            final int nx = out[i];
+            final int ny = out[i + 1];
+
+            final int jp = allowDiagonal ?
+                           jump(ws, nx, ny, nx - x, ny - y) :
+                           jumpOrthogonal(ws, nx, ny, nx - x, ny - y);
+            if (jp < 0)
+                continue;
+
+            // never overwrites a neighbour not yet processed, since n <= i
+            out[n++] = jp % ws.width;
+            out[n++] = jp / ws.width;
+        }
+
+        return n;
+    }
+
+    /**
+     * Like {@link #successors}, but reading the jump distances from the table. As in JPS+, when the end
+     * point is in the direction of a jump and closer than the next wall, a jump point is generated right
+     * where the end becomes reachable with a straight line.
+     *
+     * @return the number of coordinates written (twice the number of jump points)
+     */
+    private int tableSuccessors(final SearchWorkspace ws, final int node, final int[] out)
+    {
+        final int x = node % ws.width;
+        final int y = node / ws.width;
+
+        final int gdx = ws.endX - x;
+        final int gdy = ws.endY - y;
+
+        final int dirs = tableDirections(ws, node);
+
+        int n = 0;
+        for (int d = 0; d < 8; d++)
+        {
+            if ((dirs & (1 << d)) == 0)
+                continue;
+
+            final int dx    = Directions.dx[d];
+            final int dy    = Directions.dy[d];
+            final int dist  = table.jump(x, y, d);
+            final int reach = Math.abs(dist);
+
+            // steps along this direction to get aligned with the end point, if it's ahead
+            int k = -1;
+            if (dx != 0 && dy != 0)
+            {
+                if (Integer.signum(gdx) == dx && Integer.signum(gdy) == dy)
+                    k = Math.min(Math.abs(gdx), Math.abs(gdy));
+            }
+            else if (dx != 0)
+            {
+                if (gdy == 0 && Integer.signum(gdx) == dx)
+                    k = Math.abs(gdx);
+            }
+            else if (gdx == 0 && Integer.signum(gdy) == dy)
+            {
+                k = Math.abs(gdy);
+            }
+
+            if (k > 0 && k <= reach)
+            {
+                out[n++] = x + k * dx;
+                out[n++] = y + k * dy;
+            }
+            else if (dist > 0)
+            {
+                out[n++] = x + dist * dx;
+                out[n++] = y + dist * dy;
+            }
+        }
+
+        return n;
+    }
+
+    /**
+     * The pruned directions to explore from a node, as a bit mask of direction ordinals.
+     */
+    private int tableDirections(final SearchWorkspace ws, final int node)
+    {
+        final int prev = ws.parent[node];
+        if (prev < 0)
+            return 0xFF;
+
+        final int x  = node % ws.width;
+        final int y  = node / ws.width;
+        final int dx = Integer.signum(x - prev % ws.width);
+        final int dy = Integer.signum(y - prev / ws.width);
+
+        int dirs = 1 << direction(dx, dy);
+        if (dx != 0 && dy != 0)
+        {
+            dirs |= 1 << direction(dx, 0);
+            dirs |= 1 << direction(0, dy);
+
+            if (!table.walkable(x - dx, y))
+                dirs |= 1 << direction(-dx, dy);
+            if (!table.walkable(x, y - dy))
+                dirs |= 1 << direction(dx, -dy);
+        }
+        else if (dx != 0)
+        {
+            if (!table.walkable(x, y + 1))
+                dirs |= 1 << direction(dx, 1);
+            if (!table.walkable(x, y - 1))
+                dirs |= 1 << direction(dx, -1);
+        }
+        else
+        {
+            if (!table.walkable(x + 1, y))
+                dirs |= 1 << direction(1, dy);
+            if (!table.walkable(x - 1, y))
+                dirs |= 1 << direction(-1, dy);
+        }
+
+        return dirs;
+    }
+
+    private static int direction(final int dx, final int dy)
+    {
+        return DIRECTION[(dx + 1) * 3 + dy + 1];
+    }
+
+    /**
+     * Fills the array with the (pruned) neighbours of a node, depending on the direction
+     * it was reached from.
+     *
+     * @return the number of coordinates written (twice the number of neighbours)
+     */
+    private int neighbours(final SearchWorkspace ws, final int node, final int[] out)
+    {
+        final int x    = node % ws.width;
+        final int y    = node / ws.width;
+        final int prev = ws.parent[node];
+        int       n    = 0;
+
+        if (prev < 0)
+        {
+            for (int dx = -1; dx <= 1; dx++)
+            {
+                for (int dy = -1; dy <= 1; dy++)
+                {
+                    if ((dx == 0 && dy == 0) || (dx != 0 && dy != 0 && !allowDiagonal))
+                        continue;
+
+                    out[n++] = x + dx;
+                    out[n++] = y + dy;
+                }
+            }
+
+            return n;
+        }
+
+        final int dx = Integer.signum(x - prev % ws.width);
+        final int dy = Integer.signum(y - prev / ws.width);
+
+        if (!allowDiagonal)
+        {
+            if (dx != 0)
+            {
+                out[n++] = x + dx;
+                out[n++] = y;
+                out[n++] = x;
+                out[n++] = y + 1;
+                out[n++] = x;
+                out[n++] = y - 1;
+            }
+            else
+            {
+                out[n++] = x;
+                out[n++] = y + dy;
+                out[n++] = x + 1;
+                out[n++] = y;
+                out[n++] = x - 1;
+                out[n++] = y;
+            }
+
+            return n;
+        }
+
+        if (dx != 0 && dy != 0)
+        {
+            // natural neighbours
+            out[n++] = x;
+            out[n++] = y + dy;
+            out[n++] = x + dx;
+            out[n++] = y;
+            out[n++] = x + dx;
+            out[n++] = y + dy;
+
+            // forced neighbours
+            if (!walkable(ws, x - dx, y))
+            {
+                out[n++] = x - dx;
+                out[n++] = y + dy;
+            }
+            if (!walkable(ws, x, y - dy))
+            {
+                out[n++] = x + dx;
+                out[n++] = y - dy;
+            }
+        }
+        else if (dx != 0)
+        {
+            out[n++] = x + dx;
+            out[n++] = y;
+
+            if (!walkable(ws, x, y + 1))
+            {
+                out[n++] = x + dx;
+                out[n++] = y + 1;
+            }
+            if (!walkable(ws, x, y - 1))
+            {
+                out[n++] = x + dx;
+                out[n++] = y - 1;
+            }
+        }
+        else
+        {
+            out[n++] = x;
+            out[n++] = y + dy;
+
+            if (!walkable(ws, x + 1, y))
+            {
+                out[n++] = x + 1;
+                out[n++] = y + dy;
+            }
+            if (!walkable(ws, x - 1, y))
+            {
+                out[n++] = x - 1;
+                out[n++] = y + dy;
+            }
+        }
+
+        return n;
+    }
+
+    /**
+     * Jumps from (x, y) in direction (dx, dy), with diagonal movement allowed.
+     *
+     * @return the flattened index of the jump point, or -1 if there is none
+     */
+    private int jump(final SearchWorkspace ws, int x, int y, final int dx, final int dy)
+    {
+        if (dx == 0 || dy == 0)
+            return jumpStraight(ws, x, y, dx, dy);
+
+        while (walkable(ws, x, y))
+        {
+            if (x == ws.endX && y == ws.endY)
+                return y * ws.width + x;
+
+            if ((!walkable(ws, x - dx, y) && walkable(ws, x - dx, y + dy)) ||
+                (!walkable(ws, x, y - dy) && walkable(ws, x + dx, y - dy)))
+                return y * ws.width + x;
+
+            if (jumpStraight(ws, x + dx, y, dx, 0) >= 0 || jumpStraight(ws, x, y + dy, 0, dy) >= 0)
+                return y * ws.width + x;
+
+            x += dx;
+            y += dy;
+        }
+
+        return -1;
+    }
+
+    private int jumpStraight(final SearchWorkspace ws, int x, int y, final int dx, final int dy)
+    {
+        while (walkable(ws, x, y))
+        {
+            if (x == ws.endX && y == ws.endY)
+                return y * ws.width + x;
+
+            if (dx != 0)
+            {
+                if ((!walkable(ws, x, y + 1) && walkable(ws, x + dx, y + 1)) ||
+                    (!walkable(ws, x, y - 1) && walkable(ws, x + dx, y - 1)))
+                    return y * ws.width + x;
+            }
+            else
+            {
+                if ((!walkable(ws, x + 1, y) && walkable(ws, x + 1, y + dy)) ||
+                    (!walkable(ws, x - 1, y) && walkable(ws, x - 1, y + dy)))
+                    return y * ws.width + x;
+            }
+
+            x += dx;
+            y += dy;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Jumps from (x, y) in direction (dx, dy), without diagonal movement. A node is a jump point
+     * if a side corridor opens up, or (when moving vertically) if a horizontal jump from it succeeds.
+     *
+     * @return the flattened index of the jump point, or -1 if there is none
+     */
+    private int jumpOrthogonal(final SearchWorkspace ws, int x, int y, final int dx, final int dy)
+    {
+        while (walkable(ws, x, y))
+        {
+            if (x == ws.endX && y == ws.endY)
+                return y * ws.width + x;
+
+            if (dx != 0)
+            {
+                if ((walkable(ws, x, y - 1) && !walkable(ws, x - dx, y - 1)) ||
+                    (walkable(ws, x, y + 1) && !walkable(ws, x - dx, y + 1)))
+                    return y * ws.width + x;
+            }
+            else
+            {
+                if ((walkable(ws, x - 1, y) && !walkable(ws, x - 1, y - dy)) ||
+                    (walkable(ws, x + 1, y) && !walkable(ws, x + 1, y - dy)))
+                    return y * ws.width + x;
+
+                if (jumpOrthogonal(ws, x + 1, y, 1, 0) >= 0 || jumpOrthogonal(ws, x - 1, y, -1, 0) >= 0)
+                    return y * ws.width + x;
+            }
+
+            x += dx;
+            y += dy;
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.IBoard;
+import rlforj.util.Directions;
+
+/**
+ * Precomputed jump distances for JPS+ (see {@link JumpPointSearch#JumpPointSearch(IBoard, JumpTable)}).
+ * <p>
+ * For each cell and each of the 8 {@link Directions}, the table stores how far a jump from that cell
+ * goes: a positive value n means there is a jump point n steps away, a value n &lt;= 0 means there is
+ * no jump point and the next -n cells are walkable, followed by an obstacle (or the edge of the board).
+ * <p>
+ * The table is a snapshot of the board: whenever some cells change, call {@link #update(int, int, int, int)}
+ * with the changed area. Only the rows and columns crossing it, and the diagonals depending on them,
+ * are recomputed.
+ */
+public class JumpTable
+{
+    private static final int DIRS = 8;
+
+    private static final int N  = Directions.NORTH.ordinal();
+    private static final int W  = Directions.WEST.ordinal();
+    private static final int S  = Directions.SOUTH.ordinal();
+    private static final int E  = Directions.EAST.ordinal();
+    private static final int NE = Directions.NE.ordinal();
+    private static final int NW = Directions.NW.ordinal();
+    private static final int SE = Directions.SE.ordinal();
+    private static final int SW = Directions.SW.ordinal();
+
+    private final IBoard map;
+    private final int    width;
+    private final int    height;
+
+    private final boolean[] walkable;
+    private final short[]   jumps;
+
+    // scratch space for the incremental update of the diagonals
+    private final boolean[] dirty;
+    private final int[]     dirtyMin;
+    private final int[]     dirtyMax;
+
+    public JumpTable(final IBoard map, final int width, final int height)
+    {
+        if (width <= 0 || height <= 0 || width > Short.MAX_VALUE || height > Short.MAX_VALUE)
+            throw new IllegalArgumentException("unsupported board size: " + width + "x" + height);
+
+        this.map = map;
+        this.width = width;
+        this.height = height;
+
+        this.walkable = new boolean[width * height];
+        this.jumps = new short[width * height * DIRS];
+
+        this.dirty = new boolean[width * height];
+        this.dirtyMin = new int[height];
+        this.dirtyMax = new int[height];
+        for (int y = 0; y < height; y++)
+        {
+            dirtyMin[y] = width;
+            dirtyMax[y] = -1;
+        }
+
+        for (int y = 0; y < height; y++)
+            for (int x = 0; x < width; x++)
+                walkable[y * width + x] = map.contains(x, y) && !map.isObstacle(x, y);
+
+        for (int y = 0; y < height; y++)
+            computeRow(y);
+        for (int x = 0; x < width; x++)
+            computeColumn(x);
+
+        for (final int d : new int[] { NE, NW, SE, SW })
+        {
+            final int dy = Directions.dy[d];
+            for (int y = dy > 0 ? height - 1 : 0; y >= 0 && y < height; y -= dy)
+                for (int x = 0; x < width; x++)
+                    jumps[(y * width + x) * DIRS + d] = (short) computeDiagonal(x, y, d);
+        }
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * The jump distance from (x, y) in the given direction.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @param d direction
+     * @return a positive distance to the next jump point, or minus the number of walkable cells before a wall
+     */
+    public int getJumpDistance(final int x, final int y, final Directions d)
+    {
+        return jumps[(y * width + x) * DIRS + d.ordinal()];
+    }
+
+    int jump(final int x, final int y, final int d)
+    {
+        return jumps[(y * width + x) * DIRS + d];
+    }
+
+    /**
+     * Is the cell walkable, according to the last computation? Out of board cells are not.
+     */
+    boolean walkable(final int x, final int y)
+    {
+        return x >= 0 && y >= 0 && x < width && y < height && walkable[y * width + x];
+    }
+
+    /**
+     * Re-reads the cells in the given rectangle (inclusive) from the board and repairs
+     * all the jump distances depending on them.
+     *
+     * @param minX left edge
+     * @param minY top edge
+     * @param maxX right edge
+     * @param maxY bottom edge
+     */
+    public void update(int minX, int minY, int maxX, int maxY)
+    {
+        minX = Math.max(0, minX);
+        minY = Math.max(0, minY);
+        maxX = Math.min(width - 1, maxX);
+        maxY = Math.min(height - 1, maxY);
+        if (minX > maxX || minY > maxY)
+            return;
+
+        for (int y = minY; y <= maxY; y++)
+            for (int x = minX; x <= maxX; x++)
+                walkable[y * width + x] = map.contains(x, y) && !map.isObstacle(x, y);
+
+        // straight jumps look one row (or column) to each side for forced neighbours
+        final int rowMin = Math.max(0, minY - 1);
+        final int rowMax = Math.min(height - 1, maxY + 1);
+        final int colMin = Math.max(0, minX - 1);
+        final int colMax = Math.min(width - 1, maxX + 1);
+
+        for (int y = rowMin; y <= rowMax; y++)
+            computeRow(y);
+        for (int x = colMin; x <= colMax; x++)
+            computeColumn(x);
+
+        // A diagonal jump from c only depends on the next cell c + d: it must be recomputed if that cell
+        // is in one of the rows or columns above, or if its own diagonal jump changed. Changes are
+        // propagated backwards along the diagonal, so the cost is proportional to what actually changed.
+        for (final int d : new int[] { NE, NW, SE, SW })
+        {
+            final int dx = Directions.dx[d];
+            final int dy = Directions.dy[d];
+
+            for (int y = Math.max(0, rowMin - dy); y <= Math.min(height - 1, rowMax - dy); y++)
+                for (int x = 0; x < width; x++)
+                    markDirty(x, y);
+            for (int x = Math.max(0, colMin - dx); x <= Math.min(width - 1, colMax - dx); x++)
+                for (int y = 0; y < height; y++)
+                    markDirty(x, y);
+
+            // dependencies go from row y + dy to row y, so sweep against the direction
+            for (int y = dy > 0 ? height - 1 : 0; y >= 0 && y < height; y -= dy)
+            {
+                final int from = dirtyMin[y];
+                final int to   = dirtyMax[y];
+                dirtyMin[y] = width;
+                dirtyMax[y] = -1;
+
+                for (int x = from; x <= to; x++)
+                {
+                    final int idx = y * width + x;
+                    if (!dirty[idx])
+                        continue;
+
+                    dirty[idx] = false;
+
+                    final short value = (short) computeDiagonal(x, y, d);
+                    if (value == jumps[idx * DIRS + d])
+                        continue;
+
+                    jumps[idx * DIRS + d] = value;
+
+                    // the previous cell on the diagonal depends on this one
+                    final int px = x - dx;
+                    final int py = y - dy;
+                    if (px >= 0 && py >= 0 && px < width && py < height)
+                        markDirty(px, py);
+                }
+            }
+        }
+    }
+
+    private void markDirty(final int x, final int y)
+    {
+        dirty[y * width + x] = true;
+        dirtyMin[y] = Math.min(dirtyMin[y], x);
+        dirtyMax[y] = Math.max(dirtyMax[y], x);
+    }
+
+    private void computeRow(final int y)
+    {
+        for (int x = width - 1; x >= 0; x--)
+            jumps[(y * width + x) * DIRS + E] = (short) computeStraight(x, y, E);
+        for (int x = 0; x < width; x++)
+            jumps[(y * width + x) * DIRS + W] = (short) computeStraight(x, y, W);
+    }
+
+    private void computeColumn(final int x)
+    {
+        for (int y = height - 1; y >= 0; y--)
+            jumps[(y * width + x) * DIRS + N] = (short) computeStraight(x, y, N);
+        for (int y = 0; y < height; y++)
+            jumps[(y * width + x) * DIRS + S] = (short) computeStraight(x, y, S);
+    }
+
+    /**
+     * Computes the straight jump from (x, y), assuming the one from the next cell is already known.
+     */
+    private int computeStraight(final int x, final int y, final int d)
+    {
+        final int dx = Directions.dx[d];
+        final int dy = Directions.dy[d];
+        final int nx = x + dx;
+        final int ny = y + dy;
+
+        if (!walkable(nx, ny))
+            return 0;
+
+        final boolean forced = dx != 0 ?
+                               (!walkable(nx, ny + 1) && walkable(nx + dx, ny + 1)) ||
+                               (!walkable(nx, ny - 1) && walkable(nx + dx, ny - 1)) :
+                               (!walkable(nx + 1, ny) && walkable(nx + 1, ny + dy)) ||
+                               (!walkable(nx - 1, ny) && walkable(nx - 1, ny + dy));
+        if (forced)
+            return 1;
+
+        final int next = jumps[(ny * width + nx) * DIRS + d];
+        return next > 0 ? next + 1 : next - 1;
+    }
+
+    /**
+     * Computes the diagonal jump from (x, y), assuming all jumps from the next cell are already known.
+     */
+    private int computeDiagonal(final int x, final int y, final int d)
+    {
+        final int dx = Directions.dx[d];
+        final int dy = Directions.dy[d];
+        final int nx = x + dx;
+        final int ny = y + dy;
+
+        if (!walkable(nx, ny))
+            return 0;
+
+        final int idx = (ny * width + nx) * DIRS;
+
+        if ((!walkable(nx - dx, ny) && walkable(nx - dx, ny + dy)) ||
+            (!walkable(nx, ny - dy) && walkable(nx + dx, ny - dy)) ||
+            jumps[idx + (dx > 0 ? E : W)] > 0 || jumps[idx + (dy > 0 ? N : S)] > 0)
+            return 1;
+
+        final int next = jumps[idx + d];
+        return next > 0 ? next + 1 : next - 1;
+    }
+}
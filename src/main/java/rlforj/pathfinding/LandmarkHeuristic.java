@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.IBoard;
+import rlforj.math.PackedPoint;
+
+/**
+ * ALT heuristic (A*, Landmarks and Triangle inequality; Goldberg and Harrelson, 2005).
+ * <p>
+ * A few landmarks are picked far apart from each other, and the distance of every cell from each of them is
+ * computed once, with a {@link DijkstraMap}, and kept in a single array. By the triangle inequality, the cost
+ * from a cell to the end can't be less than the difference of their distances from any landmark: behind a long
+ * wall this is far closer to the real cost than the octile distance, so A* expands much fewer nodes. The estimate
+ * is admissible, so the paths stay optimal.
+ * <p>
+ * When cells of the board change, call {@link #update(int, int)}, or the estimate may exceed the real cost.
+ * Estimating is read only, so the heuristic can be shared by many threads between updates.
+ */
+public class LandmarkHeuristic implements IHeuristic
+{
+    private final IBoard  map;
+    private final int     width;
+    private final int     height;
+    private final boolean allowDiagonal;
+
+    // distance of every cell from each landmark, the cell i of landmark l at (l * cells + i)
+    private final int[] distances;
+    private final int   cells;
+    private final int[] landmarks;
+
+    // repairs the distances of one landmark at a time in place, created on the first update
+    private DijkstraMap scratch;
+
+    public LandmarkHeuristic(final IBoard map, final int width, final int height, final int landmarkCount)
+    {
+        this(map, width, height, true, landmarkCount);
+    }
+
+    /**
+     * Picks the landmarks and computes their distances. The first landmark is the cell farthest from the first
+     * walkable one, and each next one the cell farthest from all the landmarks already picked.
+     *
+     * @param landmarkCount number of landmarks, typically between 4 and 16: more landmarks give better
+     *                      estimates, but cost memory and time for each estimate
+     */
+    public LandmarkHeuristic(final IBoard map, final int width, final int height, final boolean allowDiagonal,
+                             final int landmarkCount)
+    {
+        if (landmarkCount <= 0)
+            throw new IllegalArgumentException("landmark count must be positive: " + landmarkCount);
+
+        this.map = map;
+        this.width = width;
+        this.height = height;
+        this.allowDiagonal = allowDiagonal;
+        this.cells = width * height;
+
+        int seed = -1;
+        for (int i = 0; i < width * height && seed < 0; i++)
+        {
+            if (map.contains(i % width, i / width) && !map.isObstacle(i % width, i / width))
+                seed = i;
+        }
+
+        // only needed while building: the distances are copied out of it
+        final DijkstraMap dm = new DijkstraMap(map, width, height, allowDiagonal);
+        if (seed >= 0)
+        {
+            dm.addSource(seed % width, seed / width);
+            dm.compute();
+        }
+
+        // the distance of each cell from the nearest landmark picked so far
+        final int[] nearest = dm.getDistances().clone();
+
+        distances = new int[landmarkCount * cells];
+        landmarks = new int[landmarkCount];
+        for (int l = 0; l < landmarkCount; l++)
+        {
+            int farthest = seed < 0 ? 0 : seed;
+            for (int i = 0; i < nearest.length; i++)
+            {
+                if (nearest[i] != DijkstraMap.UNREACHABLE && nearest[i] > nearest[farthest])
+                    farthest = i;
+            }
+
+            landmarks[l] = PackedPoint.pack(farthest % width, farthest / width);
+            dm.clearSources();
+            dm.addSource(farthest % width, farthest / width);
+            dm.compute();
+
+            final int[] d = dm.getDistances();
+            System.arraycopy(d, 0, distances, l * cells, cells);
+
+            if (l == 0)
+                System.arraycopy(d, 0, nearest, 0, nearest.length);
+            else
+                for (int i = 0; i < nearest.length; i++)
+                    nearest[i] = Math.min(nearest[i], d[i]);
+        }
+    }
+
+    /**
+     * @return the number of landmarks
+     */
+    public int getLandmarkCount()
+    {
+        return landmarks.length;
+    }
+
+    /**
+     * @param i landmark index
+     * @return the landmark, packed with {@link PackedPoint#pack(int, int)}
+     */
+    public int getLandmark(final int i)
+    {
+        return landmarks[i];
+    }
+
+    /**
+     * Reports a cell of the board that changed, repairing the distances of all the landmarks: only the cells whose
+     * distance changes are touched.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     */
+    public void update(final int x, final int y)
+    {
+        if (scratch == null)
+            scratch = new DijkstraMap(map, width, height, allowDiagonal);
+
+        final int[] changed = { PackedPoint.pack(x, y) };
+        for (int l = 0; l < landmarks.length; l++)
+        {
+            scratch.clearSources();
+            scratch.addSource(PackedPoint.x(landmarks[l]), PackedPoint.y(landmarks[l]));
+            scratch.update(distances, l * cells, changed, 1);
+        }
+    }
+
+    /**
+     * The largest of the octile distance and the landmark bounds. Landmarks that can't reach one of the two
+     * cells (eg, because the end is an obstacle) give no bound.
+     */
+    @Override
+    public int estimate(final int x, final int y, final int endX, final int endY)
+    {
+        final int dx = Math.abs(x - endX);
+        final int dy = Math.abs(y - endY);
+
+        int best;
+        if (allowDiagonal)
+        {
+            final int min = Math.min(dx, dy);
+            best = min * AStar.DIAGONAL_COST + (Math.max(dx, dy) - min) * AStar.STRAIGHT_COST;
+        }
+        else
+        {
+            best = (dx + dy) * AStar.STRAIGHT_COST;
+        }
+
+        final int cell = y * width + x;
+        final int end  = endY * width + endX;
+        for (int offset = 0; offset < distances.length; offset += cells)
+        {
+            final int dc = distances[offset + cell];
+            final int de = distances[offset + end];
+            if (dc != DijkstraMap.UNREACHABLE && de != DijkstraMap.UNREACHABLE)
+                best = Math.max(best, Math.abs(de - dc));
+        }
+        return best;
+    }
+}
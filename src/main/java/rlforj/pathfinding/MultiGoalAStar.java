@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.IBoard;
+import rlforj.math.PackedPoint;
+import rlforj.math.Point;
+import rlforj.util.IndexedHeap;
+
+import java.util.Arrays;
+
+/**
+ * Finds the path to the nearest of many goals with a single search, instead of one search per goal.
+ * <p>
+ * The goals are either a set of cells or an {@link IGoalPredicate}. The search stops as soon as it takes
+ * a goal from the open list, and that goal is the cheapest to reach. With a small set of cells the search
+ * is guided by the distance to the nearest goal; with a predicate, or many cells, it's a plain Dijkstra.
+ * <p>
+ * The movement rules and costs are the same as {@link AStar}, and the paths are optimal. A goal can be an
+ * obstacle, like the end point of AStar, but no other obstacle can be entered.
+ */
+public class MultiGoalAStar
+{
+    /**
+     * Above this number of goal cells, computing the distance to the nearest one for every node costs more than
+     * it saves, and the search falls back to Dijkstra.
+     */
+    private static final int MAX_HEURISTIC_GOALS = 32;
+
+    private final IBoard  map;
+    private final int     boardWidth;
+    private final int     boardHeight;
+    private final boolean allowDiagonal;
+
+    private final ThreadLocal<SearchWorkspace> workspaces;
+
+    public MultiGoalAStar(final IBoard map, final int boardWidth, final int boardHeight)
+    {
+        this(map, boardWidth, boardHeight, true);
+    }
+
+    public MultiGoalAStar(final IBoard map, final int boardWidth, final int boardHeight, final boolean allowDiagonal)
+    {
+        this.map = map;
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.allowDiagonal = allowDiagonal;
+
+        this.workspaces = ThreadLocal.withInitial(() -> new SearchWorkspace(boardWidth, boardHeight));
+    }
+
+    /**
+     * Finds the path to the cheapest goal to reach.
+     *
+     * @param goals  goal cells, packed with {@link PackedPoint#pack(int, int)}
+     * @param count  number of goals
+     * @param radius maximum distance of the search from the start, in each direction, or -1 for no limit
+     * @return the path, from the start to the goal, or null if no goal can be reached
+     */
+    public Point[] findPath(final int startX, final int startY, final int[] goals, final int count, final int radius)
+    {
+        final SearchWorkspace workspace = workspaces.get();
+        final int             end       = search(startX, startY, goals, count, radius, workspace);
+
+        return end < 0 ? null : workspace.toPoints(end);
+    }
+
+    /**
+     * As {@link #findPath(int, int, int[], int, int)}, passing the points to the sink.
+     *
+     * @return the length of the path, or -1 if no goal can be reached
+     */
+    public int findPath(final int startX, final int startY, final int[] goals, final int count, final int radius,
+                        final IPathSink sink)
+    {
+        final SearchWorkspace workspace = workspaces.get();
+        final int             end       = search(startX, startY, goals, count, radius, workspace);
+
+        return end < 0 ? -1 : workspace.toSink(end, sink);
+    }
+
+    /**
+     * Finds the path to the cheapest cell to reach that satisfies the predicate.
+     *
+     * @param radius maximum distance of the search from the start, in each direction, or -1 for no limit
+     * @return the path, from the start to the goal, or null if no goal can be reached
+     */
+    public Point[] findPath(final int startX, final int startY, final IGoalPredicate goal, final int radius)
+    {
+        final SearchWorkspace workspace = workspaces.get();
+        final int             end       = search(startX, startY, goal, null, 0, radius, workspace);
+
+        return end < 0 ? null : workspace.toPoints(end);
+    }
+
+    /**
+     * As {@link #findPath(int, int, IGoalPredicate, int)}, passing the points to the sink.
+     *
+     * @return the length of the path, or -1 if no goal can be reached
+     */
+    public int findPath(final int startX, final int startY, final IGoalPredicate goal, final int radius,
+                        final IPathSink sink)
+    {
+        final SearchWorkspace workspace = workspaces.get();
+        final int             end       = search(startX, startY, goal, null, 0, radius, workspace);
+
+        return end < 0 ? -1 : workspace.toSink(end, sink);
+    }
+
+    private int search(final int startX, final int startY, final int[] goals, final int count, final int radius,
+                       final SearchWorkspace workspace)
+    {
+        if (count > goals.length)
+            throw new IllegalArgumentException("fewer goals than count: " + count);
+
+        // flattened and sorted, so that membership is a binary search
+        final int   w     = workspace.width;
+        final int[] cells = new int[count];
+        int         n     = 0;
+        for (int i = 0; i < count; i++)
+        {
+            final int x = PackedPoint.x(goals[i]);
+            final int y = PackedPoint.y(goals[i]);
+            if (x < boardWidth && y < boardHeight && map.contains(x, y))
+                cells[n++] = y * w + x;
+        }
+        if (n == 0)
+            return -1;
+        Arrays.sort(cells, 0, n);
+
+        final int size = n;
+        return search(startX, startY, (x, y) -> Arrays.binarySearch(cells, 0, size, y * w + x) >= 0,
+                      size <= MAX_HEURISTIC_GOALS ? cells : null, size, radius, workspace);
+    }
+
+    /**
+     * Runs the search, leaving the result in the workspace.
+     *
+     * @param cells goal cells for the heuristic, as flattened indexes, or null for no heuristic
+     * @return the flattened index of the goal reached, or -1 if there is none
+     */
+    private int search(final int startX, final int startY, final IGoalPredicate goal, final int[] cells,
+                       final int count, final int radius, final SearchWorkspace workspace)
+    {
+        if (workspace.width < boardWidth || workspace.height < boardHeight)
+            throw new IllegalArgumentException("workspace is smaller than the board");
+
+        if (!map.contains(startX, startY))
+            return -1;
+
+        workspace.reset();
+        if (radius < 0)
+            workspace.setQuery(0, 0, boardWidth - 1, boardHeight - 1, -1, -1);
+        else
+            workspace.setQuery(startX - radius, startY - radius, Math.min(boardWidth - 1, startX + radius),
+                               Math.min(boardHeight - 1, startY + radius), -1, -1);
+
+        final IndexedHeap open  = workspace.open;
+        final int         w     = workspace.width;
+        final int         start = startY * w + startX;
+        workspace.visit(start, 0, -1);
+        open.add(start, heuristic(startX, startY, cells, count, w));
+
+        while (!open.isEmpty())
+        {
+            final int step  = open.poll();
+            final int stepX = step % w;
+            final int stepY = step / w;
+            workspace.expansions++;
+            if (goal.isGoal(stepX, stepY))
+                return step;
+
+            final int stepG = workspace.g[step];
+            for (int dx = -1; dx <= 1; dx++)
+            {
+                for (int dy = -1; dy <= 1; dy++)
+                {
+                    if ((dx == 0 && dy == 0) || (dx != 0 && dy != 0 && !allowDiagonal))
+                        continue;
+
+                    final int cx = stepX + dx;
+                    final int cy = stepY + dy;
+                    if (cx < workspace.minX || cy < workspace.minY || cx > workspace.maxX || cy > workspace.maxY ||
+                        !map.contains(cx, cy))
+                        continue;
+
+                    // the only allowed obstacles are the goals
+                    if (map.isObstacle(cx, cy) && !goal.isGoal(cx, cy))
+                        continue;
+
+                    final int idx = cy * w + cx;
+                    final int g   = stepG + (dx != 0 && dy != 0 ? AStar.DIAGONAL_COST : AStar.STRAIGHT_COST);
+                    if (!workspace.visited(idx))
+                    {
+                        workspace.visit(idx, g, step);
+                        open.add(idx, g + heuristic(cx, cy, cells, count, w));
+                    }
+                    else if (workspace.g[idx] > g)
+                    {
+                        workspace.g[idx] = g;
+                        workspace.parent[idx] = step;
+                        open.addOrUpdate(idx, g + heuristic(cx, cy, cells, count, w));
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Octile distance to the nearest goal, or 0 if there are no goal cells to look at.
+     */
+    private int heuristic(final int x, final int y, final int[] cells, final int count, final int w)
+    {
+        if (cells == null)
+            return 0;
+
+        int best = Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++)
+        {
+            final int dx = Math.abs(x - cells[i] % w);
+            final int dy = Math.abs(y - cells[i] / w);
+            if (allowDiagonal)
+            {
+                final int min = Math.min(dx, dy);
+                best = Math.min(best, min * AStar.DIAGONAL_COST + (Math.max(dx, dy) - min) * AStar.STRAIGHT_COST);
+            }
+            else
+            {
+                best = Math.min(best, (dx + dy) * AStar.STRAIGHT_COST);
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.math.PackedPoint;
+
+import java.util.Arrays;
+
+/**
+ * Collects the points of a path, packed with {@link PackedPoint#pack(int, int)}.
+ */
+final class PackedPathCollector implements IPathSink
+{
+    int[] points = new int[32];
+    int   size;
+
+    @Override
+    public boolean step(final int x, final int y)
+    {
+        if (size == points.length)
+            points = Arrays.copyOf(points, size * 2);
+        points[size++] = PackedPoint.pack(x, y);
+        return true;
+    }
+
+    /**
+     * @return the points collected so far
+     */
+    int[] toArray()
+    {
+        return Arrays.copyOf(points, size);
+    }
+}
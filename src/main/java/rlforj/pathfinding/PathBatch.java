@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.math.PackedPoint;
+
+/**
+ * The paths found by a {@link BatchPathfinder} or a {@link CooperativeAStar}, all in one primitive array.
+ * <p>
+ * The points of path i are packed with {@link PackedPoint#pack(int, int)} in
+ * {@code getPoints()[getOffset(i) .. getOffset(i) + getLength(i) - 1]}, from start to end.
+ */
+public class PathBatch
+{
+    private final int[] offsets;
+    private final int[] lengths;
+    private final int[] points;
+
+    PathBatch(final int[] offsets, final int[] lengths, final int[] points)
+    {
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.points = points;
+    }
+
+    /**
+     * @return the number of queries
+     */
+    public int size()
+    {
+        return lengths.length;
+    }
+
+    /**
+     * @param i query index
+     * @return the number of points of the path, or -1 if there is no path
+     */
+    public int getLength(final int i)
+    {
+        return lengths[i];
+    }
+
+    /**
+     * @param i query index
+     * @return the position of the first point of the path in {@link #getPoints()}
+     */
+    public int getOffset(final int i)
+    {
+        return offsets[i];
+    }
+
+    /**
+     * @param i query index
+     * @param j point index, from 0 (the start) to getLength(i) - 1 (the end)
+     * @return the point, packed with {@link PackedPoint#pack(int, int)}
+     */
+    public int getPoint(final int i, final int j)
+    {
+        return points[offsets[i] + j];
+    }
+
+    /**
+     * The points of all paths, one after the other. The array is owned by this batch and must not be modified.
+     *
+     * @return the points array
+     */
+    public int[] getPoints()
+    {
+        return points;
+    }
+}
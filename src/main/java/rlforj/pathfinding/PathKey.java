@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+/**
+ * A path query: end points and options, to find identical queries.
+ */
+final class PathKey
+{
+    final int startX, startY;
+    final int endX, endY;
+    final int radius;
+
+    PathKey(final int startX, final int startY, final int endX, final int endY, final int radius)
+    {
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
+        this.radius = radius;
+    }
+
+    @Override
+    public boolean equals(final Object o)
+    {
+        if (this == o)
+            return true;
+        if (!(o instanceof PathKey))
+            return false;
+
+        final PathKey k = (PathKey) o;
+        return startX == k.startX && startY == k.startY && endX == k.endX && endY == k.endY &&
+               radius == k.radius;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int h = startX;
+        h = 31 * h + startY;
+        h = 31 * h + endX;
+        h = 31 * h + endY;
+        return 31 * h + radius;
+    }
+}
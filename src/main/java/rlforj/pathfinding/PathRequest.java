@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.math.PackedPoint;
+
+/**
+ * A query queued in a {@link PathScheduler}, and its result once the search is over.
+ */
+public class PathRequest
+{
+    final PathScheduler scheduler;
+
+    final int    startX, startY;
+    final int    endX, endY;
+    final int    radius;
+    final double epsilon;
+    final int    priority;
+
+    // submission order, to serve equal priorities first come first served
+    final long sequence;
+    final int  submitTick;
+
+    AStarSearch     search;
+    SearchWorkspace workspace;
+    int             finishTick = -1;
+
+    private SearchStatus status = SearchStatus.IN_PROGRESS;
+    private int[]        path;
+
+    PathRequest(final PathScheduler scheduler, final int startX, final int startY, final int endX, final int endY,
+                final int radius, final double epsilon, final int priority, final long sequence,
+                final int submitTick)
+    {
+        this.scheduler = scheduler;
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
+        this.radius = radius;
+        this.epsilon = epsilon;
+        this.priority = priority;
+        this.sequence = sequence;
+        this.submitTick = submitTick;
+    }
+
+    public int getPriority()
+    {
+        return priority;
+    }
+
+    /**
+     * @return IN_PROGRESS while the request is queued or being searched, then FOUND, NO_PATH or CANCELLED
+     */
+    public SearchStatus getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * @return true once the search is over, or the request was cancelled
+     */
+    public boolean isDone()
+    {
+        return status != SearchStatus.IN_PROGRESS;
+    }
+
+    public boolean isCancelled()
+    {
+        return status == SearchStatus.CANCELLED;
+    }
+
+    /**
+     * @return the path, packed with {@link PackedPoint#pack(int, int)}, or null if it was not found (yet)
+     */
+    public int[] getPath()
+    {
+        return path;
+    }
+
+    /**
+     * @return the number of ticks between the submission and the end of the search, or -1 if it's not over
+     */
+    public int getWaitTicks()
+    {
+        return finishTick < 0 ? -1 : finishTick - submitTick;
+    }
+
+    /**
+     * Removes the request from the scheduler, if it's not done yet, freeing its search workspace.
+     */
+    public void cancel()
+    {
+        if (isDone())
+            return;
+
+        status = SearchStatus.CANCELLED;
+        scheduler.cancel(this);
+    }
+
+    void finish(final SearchStatus status, final int[] path, final int tick)
+    {
+        this.status = status;
+        this.path = path;
+        this.finishTick = tick;
+    }
+}
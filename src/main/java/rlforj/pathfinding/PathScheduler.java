@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Serves path requests a few at a time, within a budget per tick (eg, per frame), so that a burst of requests
+ * delays some paths instead of the game.
+ * <p>
+ * Requests are served by priority, highest first, and in submission order among equal priorities. Each
+ * {@link #tick()} runs {@link AStarSearch} slices until the budget, in node expansions and/or time, runs out;
+ * a search that doesn't finish carries over to the next tick, where it continues from where it stopped.
+ * <p>
+ * Each search in progress needs a {@link SearchWorkspace}: at most a given number of them are in progress at
+ * once, so that memory doesn't grow with the queue. A new request with a higher priority than all of them waits
+ * for one to finish. Not thread safe: submit and tick from the same thread.
+ */
+public class PathScheduler
+{
+    private static final Comparator<PathRequest> ORDER = (a, b) -> a.priority != b.priority ?
+                                                                   Integer.compare(b.priority, a.priority) :
+                                                                   Long.compare(a.sequence, b.sequence);
+
+    private final AStar astar;
+    private final int   boardWidth;
+    private final int   boardHeight;
+    private final int   maxActive;
+
+    private final PriorityQueue<PathRequest>  waiting = new PriorityQueue<>(ORDER);
+    private final PriorityQueue<PathRequest>  active  = new PriorityQueue<>(ORDER);
+    // workspaces of the finished searches, so that there are never more than maxActive
+    private final ArrayDeque<SearchWorkspace> spare   = new ArrayDeque<>();
+
+    private int  maxExpansions = Integer.MAX_VALUE;
+    private long maxNanos      = -1;
+
+    private long sequence;
+    private int  tick;
+
+    // metrics
+    private long completed;
+    private long totalWaitTicks;
+    private int  maxWaitTicks;
+    private int  lastExpansions;
+    private long lastNanos;
+
+    /**
+     * @param maxActive maximum number of searches in progress at once
+     */
+    public PathScheduler(final AStar astar, final int boardWidth, final int boardHeight, final int maxActive)
+    {
+        if (maxActive <= 0)
+            throw new IllegalArgumentException("at least one search must be allowed: " + maxActive);
+
+        this.astar = astar;
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.maxActive = maxActive;
+    }
+
+    /**
+     * Sets the budget of each tick. At least one expansion is made per tick, if there is any request.
+     *
+     * @param maxExpansions maximum number of nodes to expand, over all searches
+     * @param maxNanos      maximum time to spend, in nanoseconds, or a negative number for no limit; it's
+     *                      checked every few expansions, so it can be slightly exceeded
+     */
+    public void setBudget(final int maxExpansions, final long maxNanos)
+    {
+        if (maxExpansions <= 0)
+            throw new IllegalArgumentException("the budget must allow some expansions: " + maxExpansions);
+
+        this.maxExpansions = maxExpansions;
+        this.maxNanos = maxNanos;
+    }
+
+    public PathRequest submit(final int startX, final int startY, final int endX, final int endY, final int radius,
+                              final int priority)
+    {
+        return submit(startX, startY, endX, endY, radius, priority, 0.0);
+    }
+
+    /**
+     * Queues a request, searched in a later {@link #tick()}.
+     *
+     * @param priority higher priorities are served first (eg, agents the player can see)
+     * @param epsilon  allowed relative excess over the optimal cost, as in
+     *                 {@link AStar#findPath(int, int, int, int, int, double)}
+     * @return the request, which holds the path when it's done
+     */
+    public PathRequest submit(final int startX, final int startY, final int endX, final int endY, final int radius,
+                              final int priority, final double epsilon)
+    {
+        if (!(epsilon >= 0.0))
+            throw new IllegalArgumentException("epsilon must not be negative: " + epsilon);
+
+        final PathRequest request = new PathRequest(this, startX, startY, endX, endY, radius, epsilon, priority,
+                                                    sequence++, tick);
+        waiting.add(request);
+        return request;
+    }
+
+    /**
+     * Runs the queued searches, highest priority first, until they are all done or the budget runs out.
+     *
+     * @return the number of requests completed in this tick
+     */
+    public int tick()
+    {
+        final long start    = System.nanoTime();
+        final long deadline = maxNanos < 0 ? Long.MAX_VALUE : start + maxNanos;
+
+        tick++;
+        int done     = 0;
+        int expanded = 0;
+        while (expanded < maxExpansions)
+        {
+            // a waiting request is started if it comes before all the searches in progress, and there is room
+            final PathRequest next = waiting.peek();
+            if (next != null && active.size() < maxActive &&
+                (active.isEmpty() || ORDER.compare(next, active.peek()) < 0))
+            {
+                if (start(waiting.poll()))
+                    done++;
+                continue;
+            }
+
+            final PathRequest request = active.peek();
+            if (request == null)
+                break;
+
+            long nanos = -1;
+            if (maxNanos >= 0)
+            {
+                nanos = deadline - System.nanoTime();
+                if (nanos <= 0 && expanded > 0)
+                    break;
+                nanos = Math.max(1, nanos);
+            }
+
+            final AStarSearch search = request.search;
+            final int         before = search.getExpansions();
+            search.step(maxExpansions - expanded, nanos);
+            expanded += search.getExpansions() - before;
+
+            if (search.getStatus() == SearchStatus.IN_PROGRESS)
+            {
+                // the time ran out: the search continues next tick
+                if (maxNanos >= 0 && System.nanoTime() >= deadline)
+                    break;
+                continue;
+            }
+
+            active.poll();
+            complete(request);
+            done++;
+        }
+
+        lastExpansions = expanded;
+        lastNanos = System.nanoTime() - start;
+        return done;
+    }
+
+    /**
+     * @return the number of requests not done yet, waiting or in progress
+     */
+    public int getQueueDepth()
+    {
+        return waiting.size() + active.size();
+    }
+
+    /**
+     * @return the number of searches in progress, carried over from previous ticks
+     */
+    public int getActive()
+    {
+        return active.size();
+    }
+
+    /**
+     * @return the number of ticks run so far
+     */
+    public int getTicks()
+    {
+        return tick;
+    }
+
+    /**
+     * @return the number of requests completed so far (cancelled ones excluded)
+     */
+    public long getCompleted()
+    {
+        return completed;
+    }
+
+    /**
+     * @return the average number of ticks between the submission and the end of the completed requests
+     */
+    public double getAverageWaitTicks()
+    {
+        return completed == 0 ? 0.0 : (double) totalWaitTicks / completed;
+    }
+
+    /**
+     * @return the longest number of ticks between the submission and the end of a completed request
+     */
+    public int getMaxWaitTicks()
+    {
+        return maxWaitTicks;
+    }
+
+    /**
+     * @return the number of nodes expanded by the last tick
+     */
+    public int getLastExpansions()
+    {
+        return lastExpansions;
+    }
+
+    /**
+     * @return the time spent by the last tick, in nanoseconds
+     */
+    public long getLastNanos()
+    {
+        return lastNanos;
+    }
+
+    void cancel(final PathRequest request)
+    {
+        if (request.search == null)
+        {
+            waiting.remove(request);
+            return;
+        }
+
+        if (active.remove(request))
+            release(request);
+    }
+
+    /**
+     * Starts the search of a request, which may be over immediately (eg, the end is unreachable).
+     *
+     * @return true if the request is already done
+     */
+    private boolean start(final PathRequest request)
+    {
+        request.workspace = spare.isEmpty() ? new SearchWorkspace(boardWidth, boardHeight) : spare.poll();
+        request.search = astar.startSearch(request.startX, request.startY, request.endX, request.endY,
+                                           request.radius, request.epsilon, request.workspace);
+        if (request.search.getStatus() != SearchStatus.IN_PROGRESS)
+        {
+            complete(request);
+            return true;
+        }
+
+        active.add(request);
+        return false;
+    }
+
+    private void complete(final PathRequest request)
+    {
+        int[] path = null;
+        if (request.search.getStatus() == SearchStatus.FOUND)
+        {
+            final PackedPathCollector collector = new PackedPathCollector();
+            request.search.getPath(collector);
+            path = collector.toArray();
+        }
+
+        request.finish(request.search.getStatus(), path, tick);
+        release(request);
+
+        completed++;
+        final int wait = request.getWaitTicks();
+        totalWaitTicks += wait;
+        maxWaitTicks = Math.max(maxWaitTicks, wait);
+    }
+
+    private void release(final PathRequest request)
+    {
+        spare.push(request.workspace);
+        request.workspace = null;
+        request.search = null;
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.math.PackedPoint;
+
+import java.util.HashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds paths in the background, so that the caller never waits for a search.
+ * <p>
+ * Each query returns a {@link CompletableFuture} of the path, packed with {@link PackedPoint#pack(int, int)},
+ * or null if there is no path. Identical queries (same start, end and radius) made while the first is still
+ * pending share a single search. Cancelling a future (eg, the agent died or chose another target) only
+ * detaches its caller. When all the callers sharing a search have cancelled, it's skipped if it hasn't started
+ * yet; a search already running can't be interrupted, so it finishes and its result is dropped.
+ * <p>
+ * Searches run on a bounded executor: when its queue is full, new queries fail with a
+ * {@link RejectedExecutionException} instead of piling up. The algorithm is shared by all the executor threads,
+ * so it must be safe to use concurrently, like {@link AStar}. This class is thread safe.
+ */
+public class PathService
+{
+    private final IPathAlgorithm  algorithm;
+    private final Executor        executor;
+    private final ExecutorService ownExecutor;
+
+    private final HashMap<PathKey, Request> pending = new HashMap<>();
+
+    private long searches;
+    private long coalesced;
+
+    /**
+     * Creates a service with its own pool of daemon threads.
+     *
+     * @param algorithm     the algorithm to run, safe to use concurrently
+     * @param threads       number of threads searching
+     * @param queueCapacity maximum number of searches waiting for a thread
+     */
+    public PathService(final IPathAlgorithm algorithm, final int threads, final int queueCapacity)
+    {
+        this.algorithm = algorithm;
+
+        final AtomicInteger count = new AtomicInteger();
+        this.ownExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                                  new ArrayBlockingQueue<>(queueCapacity), r ->
+                                                  {
+                                                      final Thread t = new Thread(r, "path-service-" +
+                                                                                     count.incrementAndGet());
+                                                      t.setDaemon(true);
+                                                      return t;
+                                                  });
+        this.executor = ownExecutor;
+    }
+
+    /**
+     * Creates a service running on an existing executor, which should have a bounded queue.
+     *
+     * @param algorithm the algorithm to run, safe to use concurrently on the executor
+     * @param executor  executor of the searches
+     */
+    public PathService(final IPathAlgorithm algorithm, final Executor executor)
+    {
+        this.algorithm = algorithm;
+        this.executor = executor;
+        this.ownExecutor = null;
+    }
+
+    public CompletableFuture<int[]> findPath(final int startX, final int startY, final int endX, final int endY)
+    {
+        return findPath(startX, startY, endX, endY, -1);
+    }
+
+    /**
+     * Queues a search, or joins an identical one that is still pending.
+     *
+     * @param radius search radius, as in {@link IPathAlgorithm}
+     * @return the future path, shared with the other callers of the same query: it must not be modified
+     */
+    public CompletableFuture<int[]> findPath(final int startX, final int startY, final int endX, final int endY,
+                                             final int radius)
+    {
+        final PathKey                  key    = new PathKey(startX, startY, endX, endY, radius);
+        final CompletableFuture<int[]> caller = new CompletableFuture<>();
+
+        final Request request;
+        final boolean submit;
+        synchronized (pending)
+        {
+            final Request existing = pending.get(key);
+            submit = existing == null;
+            if (submit)
+            {
+                request = new Request(key);
+                pending.put(key, request);
+                searches++;
+            }
+            else
+            {
+                request = existing;
+                coalesced++;
+            }
+            request.callers++;
+        }
+
+        request.result.whenComplete((path, error) ->
+                                    {
+                                        if (error != null)
+                                            caller.completeExceptionally(error);
+                                        else
+                                            caller.complete(path);
+                                    });
+        caller.whenComplete((path, error) ->
+                            {
+                                if (caller.isCancelled())
+                                    release(request);
+                            });
+
+        if (submit)
+        {
+            try
+            {
+                executor.execute(request.task);
+            }
+            catch (final RejectedExecutionException e)
+            {
+                synchronized (pending)
+                {
+                    pending.remove(key, request);
+                }
+                request.result.completeExceptionally(e);
+            }
+        }
+        return caller;
+    }
+
+    /**
+     * @return the number of searches waiting or running
+     */
+    public int getPending()
+    {
+        synchronized (pending)
+        {
+            return pending.size();
+        }
+    }
+
+    /**
+     * @return the number of searches queued since the service was created
+     */
+    public long getSearches()
+    {
+        synchronized (pending)
+        {
+            return searches;
+        }
+    }
+
+    /**
+     * @return the number of queries that joined a pending search instead of starting their own
+     */
+    public long getCoalesced()
+    {
+        synchronized (pending)
+        {
+            return coalesced;
+        }
+    }
+
+    /**
+     * Stops the threads of the service, if it created them, after the searches already queued.
+     */
+    public void shutdown()
+    {
+        if (ownExecutor != null)
+            ownExecutor.shutdown();
+    }
+
+    /**
+     * One of the callers of a search cancelled: if nobody else waits for it, the search is skipped when it hasn't
+     * started yet.
+     */
+    private void release(final Request request)
+    {
+        synchronized (pending)
+        {
+            if (--request.callers > 0 || request.result.isDone())
+                return;
+
+            pending.remove(request.key, request);
+        }
+
+        request.task.cancel(false);
+        request.result.cancel(false);
+
+        // otherwise the cancelled task keeps its slot in the bounded queue until a thread reaches it
+        if (ownExecutor != null)
+            ((ThreadPoolExecutor) ownExecutor).remove(request.task);
+    }
+
+    private void run(final Request request)
+    {
+        final PathKey key   = request.key;
+        int[]         path  = null;
+        Throwable     error = null;
+        try
+        {
+            final PackedPathCollector collector = new PackedPathCollector();
+            final int len = algorithm.findPath(key.startX, key.startY, key.endX, key.endY, key.radius, collector);
+            if (len >= 0)
+                path = collector.toArray();
+        }
+        catch (final Throwable e)
+        {
+            // the callers must never wait forever, whatever went wrong
+            error = e;
+        }
+        finally
+        {
+            // a query made from now on must search again, as the board may have changed
+            synchronized (pending)
+            {
+                pending.remove(key, request);
+            }
+        }
+
+        if (error != null)
+            request.result.completeExceptionally(error);
+        else
+            request.result.complete(path);
+    }
+
+    /**
+     * A pending search, and the number of callers waiting for it.
+     */
+    private final class Request
+    {
+        final PathKey                  key;
+        final CompletableFuture<int[]> result = new CompletableFuture<>();
+        final FutureTask<Void>         task   = new FutureTask<>(() -> run(this), null);
+        int                            callers;
+
+        Request(final PathKey key)
+        {
+            this.key = key;
+        }
+    }
+}
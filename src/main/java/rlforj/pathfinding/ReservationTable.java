@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * Which agent occupies each cell at each time step, for {@link CooperativeAStar}.
+ * <p>
+ * Only the reserved (cell, time) pairs are stored, in an open addressing hash table of primitive arrays,
+ * so its size depends on the number of agents and the time window rather than on the board.
+ */
+public class ReservationTable
+{
+    private static final int FREE = -1;
+
+    private final int width;
+
+    private long[] keys;
+    private int[]  agents;
+    private int    size;
+
+    public ReservationTable(final int width)
+    {
+        this.width = width;
+        this.keys = new long[256];
+        this.agents = new int[256];
+        Arrays.fill(agents, FREE);
+    }
+
+    /**
+     * Reserves a cell at a time step, unless another agent already has it.
+     *
+     * @param agent agent index, not negative
+     * @return false if another agent has the cell at that time step: its reservation is kept
+     */
+    public boolean reserve(final int x, final int y, final int time, final int agent)
+    {
+        if (agent < 0)
+            throw new IllegalArgumentException("agent must not be negative: " + agent);
+
+        final long key = key(x, y, time);
+        int        i   = slot(key, keys.length - 1);
+        while (agents[i] != FREE && keys[i] != key)
+            i = (i + 1) & (keys.length - 1);
+
+        if (agents[i] != FREE)
+            return agents[i] == agent;
+
+        keys[i] = key;
+        agents[i] = agent;
+        if (++size * 2 > keys.length)
+            grow();
+        return true;
+    }
+
+    /**
+     * @return the agent occupying the cell at the time step, or -1 if it's free
+     */
+    public int getAgent(final int x, final int y, final int time)
+    {
+        final long key = key(x, y, time);
+        int        i   = slot(key, keys.length - 1);
+        while (agents[i] != FREE)
+        {
+            if (keys[i] == key)
+                return agents[i];
+            i = (i + 1) & (keys.length - 1);
+        }
+        return FREE;
+    }
+
+    /**
+     * @return the number of reservations
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Removes all reservations.
+     */
+    public void clear()
+    {
+        if (size == 0)
+            return;
+
+        Arrays.fill(agents, FREE);
+        size = 0;
+    }
+
+    private long key(final int x, final int y, final int time)
+    {
+        return ((long) time << 32) | (y * width + x);
+    }
+
+    private void grow()
+    {
+        final long[] oldKeys   = keys;
+        final int[]  oldAgents = agents;
+        keys = new long[oldKeys.length * 2];
+        agents = new int[oldKeys.length * 2];
+        Arrays.fill(agents, FREE);
+
+        final int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++)
+        {
+            if (oldAgents[j] == FREE)
+                continue;
+
+            int i = slot(oldKeys[j], mask);
+            while (agents[i] != FREE)
+                i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            agents[i] = oldAgents[j];
+        }
+    }
+
+    private static int slot(final long key, final int mask)
+    {
+        return (int) (key ^ (key >>> 29)) * 0x9E3779B9 & mask;
+    }
+}
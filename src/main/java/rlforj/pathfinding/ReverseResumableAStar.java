@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.IBoard;
+import rlforj.util.IndexedHeap;
+
+import java.util.Arrays;
+
+/**
+ * Reverse Resumable A* (Silver, 2005): the true distance of cells from a goal, found by an A* running backwards
+ * from the goal towards a target cell, and resumed only when a query asks for a cell it hasn't closed yet.
+ * <p>
+ * The octile heuristic towards the target is consistent, so a closed cell has its true distance, whatever cell
+ * the search was resumed for. Only the cells reached are stored: cells around the way from the goal to the target
+ * are cheap, the others cost what they add to the search. Movement rules and costs are the same as a
+ * {@link DijkstraMap} with the goal as its only source.
+ */
+final class ReverseResumableAStar
+{
+    private static final int[] DX = { -1, 0, 1, 1, 1, 0, -1, -1 };
+    private static final int[] DY = { -1, -1, -1, 0, 1, 1, 1, 0 };
+
+    private final IBoard  map;
+    private final int     width;
+    private final int     height;
+    private final boolean allowDiagonal;
+    private final int     targetX;
+    private final int     targetY;
+
+    // cells reached, by node id, and their distance: final once the node left the open list
+    private int[] cells = new int[64];
+    private int[] g     = new int[64];
+    private int   nodeCount;
+
+    // open addressing hash table from cell to node id, -1 if free
+    private int[] table = new int[128];
+
+    private final IndexedHeap open = new IndexedHeap(64);
+
+    /**
+     * @param goalX   x coordinate of the goal, where the search starts
+     * @param goalY   y coordinate of the goal
+     * @param targetX x coordinate of the cell the search heads for
+     * @param targetY y coordinate of the cell the search heads for
+     */
+    ReverseResumableAStar(final IBoard map, final int width, final int height, final boolean allowDiagonal,
+                          final int goalX, final int goalY, final int targetX, final int targetY)
+    {
+        this.map = map;
+        this.width = width;
+        this.height = height;
+        this.allowDiagonal = allowDiagonal;
+        this.targetX = targetX;
+        this.targetY = targetY;
+
+        Arrays.fill(table, -1);
+        final int goal = goalY * width + goalX;
+        open.add(addNode(slot(goal), goal, 0), heuristic(goalX, goalY));
+    }
+
+    /**
+     * @return the distance of the cell from the goal, or {@link DijkstraMap#UNREACHABLE}
+     */
+    int getDistance(final int x, final int y)
+    {
+        final int cell = y * width + x;
+        final int id   = table[slot(cell)];
+        if (id >= 0 && !open.contains(id))
+            return g[id];
+
+        // only the goal can be an obstacle: no need to search the whole board to find out
+        if (id < 0 && (!map.contains(x, y) || map.isObstacle(x, y)))
+            return DijkstraMap.UNREACHABLE;
+
+        while (!open.isEmpty())
+        {
+            final int node = open.poll();
+            expand(node);
+            if (cells[node] == cell)
+                return g[node];
+        }
+        return DijkstraMap.UNREACHABLE;
+    }
+
+    /**
+     * @return true if a change of the cell can make the distances found so far wrong: the search reached it,
+     * or one of its neighbours
+     */
+    boolean touches(final int x, final int y)
+    {
+        for (int dy = -1; dy <= 1; dy++)
+        {
+            for (int dx = -1; dx <= 1; dx++)
+            {
+                final int nx = x + dx;
+                final int ny = y + dy;
+                if (nx >= 0 && ny >= 0 && nx < width && ny < height && table[slot(ny * width + nx)] >= 0)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private void expand(final int node)
+    {
+        final int c  = cells[node];
+        final int cx = c % width;
+        final int cy = c / width;
+        final int cg = g[node];
+
+        for (int k = allowDiagonal ? 0 : 1; k < 8; k += allowDiagonal ? 1 : 2)
+        {
+            final int nx = cx + DX[k];
+            final int ny = cy + DY[k];
+            if (nx < 0 || ny < 0 || nx >= width || ny >= height || !map.contains(nx, ny) ||
+                map.isObstacle(nx, ny))
+                continue;
+
+            final int n    = ny * width + nx;
+            final int d    = cg + ((k & 1) == 0 ? AStar.DIAGONAL_COST : AStar.STRAIGHT_COST);
+            final int slot = slot(n);
+            final int id   = table[slot];
+            if (id < 0)
+                open.add(addNode(slot, n, d), (long) d + heuristic(nx, ny));
+            else if (d < g[id] && open.contains(id))
+            {
+                g[id] = d;
+                open.update(id, (long) d + heuristic(nx, ny));
+            }
+        }
+    }
+
+    private int heuristic(final int x, final int y)
+    {
+        final int dx = Math.abs(x - targetX);
+        final int dy = Math.abs(y - targetY);
+        if (!allowDiagonal)
+            return (dx + dy) * AStar.STRAIGHT_COST;
+
+        final int min = Math.min(dx, dy);
+        return min * AStar.DIAGONAL_COST + (Math.max(dx, dy) - min) * AStar.STRAIGHT_COST;
+    }
+
+    /**
+     * @return the slot of the cell in the hash table: the one holding it, or the free one where it goes
+     */
+    private int slot(final int cell)
+    {
+        final int mask = table.length - 1;
+        final int hash = cell * 0x9E3779B9;
+        int       i    = (hash ^ (hash >>> 16)) & mask;
+        while (table[i] >= 0 && cells[table[i]] != cell)
+            i = (i + 1) & mask;
+        return i;
+    }
+
+    /**
+     * Stores a new node in a free slot of the hash table.
+     *
+     * @return the id of the node
+     */
+    private int addNode(final int slot, final int cell, final int distance)
+    {
+        if (nodeCount == cells.length)
+        {
+            final int length = nodeCount * 2;
+            cells = Arrays.copyOf(cells, length);
+            g = Arrays.copyOf(g, length);
+            open.ensureCapacity(length);
+        }
+
+        final int id = nodeCount++;
+        cells[id] = cell;
+        g[id] = distance;
+        table[slot] = id;
+
+        if (nodeCount * 2 > table.length)
+        {
+            table = new int[table.length * 2];
+            Arrays.fill(table, -1);
+            for (int n = 0; n < nodeCount; n++)
+                table[slot(cells[n])] = n;
+        }
+        return id;
+    }
+}
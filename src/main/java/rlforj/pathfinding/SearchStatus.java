@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+/**
+ * State of a search that runs a slice at a time.
+ */
+public enum SearchStatus
+{
+    /**
+     * The budget ran out before the search was over: call it again.
+     */
+    IN_PROGRESS,
+
+    /**
+     * A path was found.
+     */
+    FOUND,
+
+    /**
+     * There is no path.
+     */
+    NO_PATH,
+
+    /**
+     * The request was cancelled before the search was over: see {@link PathRequest#cancel()}.
+     */
+    CANCELLED
+}
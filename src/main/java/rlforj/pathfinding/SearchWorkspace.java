@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.math.PackedPoint;
+import rlforj.math.Point;
+import rlforj.util.IndexedHeap;
+
+import java.util.Arrays;
+
+/**
+ * Node storage for a pathfinding search, meant to be reused across many calls.
+ * <p>
+ * Nodes are not objects, but flattened cell indexes (y * width + x) into parallel primitive arrays:
+ * cost from the start, parent cell and last generation in which the cell was touched. The open list
+ * is an {@link IndexedHeap} over the same indexes.
+ * <p>
+ * Instead of clearing the arrays between searches, each search gets a new generation number:
+ * a cell stamped with an older generation is considered not visited, so starting a new search
+ * costs O(1) and allocates nothing.
+ * <p>
+ * A workspace is not thread safe: use one per thread (as {@link AStar} does by default)
+ * or pass one explicitly.
+ */
+public class SearchWorkspace
+{
+    final int width;
+    final int height;
+
+    // cost from the start of each cell, in AStar cost units
+    final int[] g;
+    // flattened index of the previous cell on the path, -1 for the start
+    final int[] parent;
+    // generation in which each cell was last visited
+    final int[] stamp;
+
+    final IndexedHeap open;
+
+    // at most 8 neighbours per node, as (x, y) pairs
+    final int[] neighbours = new int[16];
+
+    // the last traced path, as flattened cell indexes from start to end
+    private int[] path = new int[16];
+
+    // bounds and target of the current search, for the engines that need to share them across methods
+    int minX, minY, maxX, maxY;
+    int endX, endY;
+
+    // factor of the octile heuristic of a bounded search (1 + epsilon), or 0 for AStar's default heuristic
+    double weight;
+
+    // side of the agent searching, in cells
+    int agentSize = 1;
+
+    // nodes taken from the open list since the last reset
+    int expansions;
+
+    private int generation;
+
+    public SearchWorkspace(final int width, final int height)
+    {
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("workspace size must be positive: " + width + "x" + height);
+
+        this.width = width;
+        this.height = height;
+
+        final int size = width * height;
+        this.g = new int[size];
+        this.parent = new int[size];
+        this.stamp = new int[size];
+        this.open = new IndexedHeap(size);
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * @return the number of nodes expanded by the last search run on this workspace
+     */
+    public int getExpansions()
+    {
+        return expansions;
+    }
+
+    /**
+     * Sets the bounds and target of the next search. The area is clipped to the workspace.
+     */
+    void setQuery(final int minX, final int minY, final int maxX, final int maxY, final int endX, final int endY)
+    {
+        this.minX = Math.max(0, minX);
+        this.minY = Math.max(0, minY);
+        this.maxX = Math.min(width - 1, maxX);
+        this.maxY = Math.min(height - 1, maxY);
+        this.endX = endX;
+        this.endY = endY;
+    }
+
+    /**
+     * Invalidates all cells from the previous search and empties the open list.
+     */
+    void reset()
+    {
+        open.clear();
+        expansions = 0;
+
+        if (++generation == Integer.MAX_VALUE)
+        {
+            // stamps are about to wrap: wipe them once, so no stale cell can look current
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * @param idx flattened cell index
+     * @return true if the cell was visited during the current search
+     */
+    boolean visited(final int idx)
+    {
+        return stamp[idx] == generation;
+    }
+
+    /**
+     * Marks a cell as visited during the current search.
+     *
+     * @param idx    flattened cell index
+     * @param cost   cost to reach the cell from the start
+     * @param parent flattened index of the previous cell, or -1
+     */
+    void visit(final int idx, final int cost, final int parent)
+    {
+        this.stamp[idx] = generation;
+        this.g[idx] = cost;
+        this.parent[idx] = parent;
+    }
+
+    /**
+     * Follows the parents from the given cell back to the start, and stores the path in the
+     * internal buffer in the right order. Consecutive cells on the chain don't need to be adjacent,
+     * as long as they are on a straight or diagonal line (eg, jump points): the gaps are filled.
+     *
+     * @param end flattened index of the last cell
+     * @return the length of the path
+     */
+    int tracePath(final int end)
+    {
+        int len = 1;
+        for (int n = end; parent[n] >= 0; n = parent[n])
+            len += Math.max(Math.abs(n % width - parent[n] % width), Math.abs(n / width - parent[n] / width));
+
+        if (path.length < len)
+            path = new int[Math.max(len, Math.min(path.length * 2, width * height))];
+
+        int i = len;
+        int n = end;
+        for (; parent[n] >= 0; n = parent[n])
+        {
+            final int p  = parent[n];
+            final int dx = Integer.signum(p % width - n % width);
+            final int dy = Integer.signum(p / width - n / width);
+
+            for (int c = n; c != p; c += dy * width + dx)
+                path[--i] = c;
+        }
+        path[0] = n;
+
+        return len;
+    }
+
+    Point[] toPoints(final int end)
+    {
+        final int     len = tracePath(end);
+        final Point[] ret = new Point[len];
+        for (int i = 0; i < len; i++)
+            ret[i] = new Point(path[i] % width, path[i] / width);
+        return ret;
+    }
+
+    int toSink(final int end, final IPathSink sink)
+    {
+        final int len = tracePath(end);
+        for (int i = 0; i < len; i++)
+        {
+            if (!sink.step(path[i] % width, path[i] / width))
+                break;
+        }
+        return len;
+    }
+
+    int toPacked(final int end, final int[] out)
+    {
+        final int len = tracePath(end);
+        for (int i = 0; i < len && i < out.length; i++)
+            out[i] = PackedPoint.pack(path[i] % width, path[i] / width);
+        return len;
+    }
+
+    int toPacked(final int end, final long[] out)
+    {
+        final int len = tracePath(end);
+        for (int i = 0; i < len && i < out.length; i++)
+            out[i] = PackedPoint.packLong(path[i] % width, path[i] / width);
+        return len;
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.math.PackedPoint;
+import rlforj.util.IndexedHeap;
+
+import java.util.Arrays;
+
+/**
+ * A flow field towards one goal, like a {@link DijkstraMap} with a single source, but computed lazily one
+ * sector of a {@link SectorGraph} at a time.
+ * <p>
+ * Setting a goal costs almost nothing. When a cell is queried, the distances of the sector's border nodes are
+ * found with a Dijkstra over the sector graph (resumed, not restarted, across queries), and then the sector
+ * alone is integrated from its nodes. Only the sectors where agents actually are (and the ones next to them,
+ * when an agent is on a border) get integrated, so a goal costs O(visited sectors) instead of O(map).
+ * <p>
+ * The distances are exact: the same as a {@link DijkstraMap} with the goal as its only source.
+ * If the graph is updated, the field starts over from its goal on the next query.
+ */
+public class SectorFlowField
+{
+    private final SectorGraph graph;
+    private final int         width;
+
+    private boolean hasGoal;
+    private int     goalX;
+    private int     goalY;
+    private int     version;
+
+    // integrated distances of each cell, valid only in the sectors integrated in this generation
+    private final int[] field;
+    private final int[] sectorStamp;
+    private       int   integrated;
+
+    // distances of the graph nodes, valid only if stamped with this generation
+    private final int[]       nodeDist;
+    private final int[]       nodeStamp;
+    private final IndexedHeap open;
+    private       int         expanded;
+
+    // number of settled nodes of each sector, valid only if stamped with this generation
+    private final int[] settled;
+    private final int[] settledStamp;
+
+    private int generation;
+
+    // scratch space for the in-sector floods
+    private final int[]       local;
+    private final IndexedHeap localOpen;
+    private final int[]       around = new int[9];
+
+    public SectorFlowField(final SectorGraph graph)
+    {
+        this.graph = graph;
+        this.width = graph.width;
+
+        final int cells   = graph.width * graph.height;
+        final int sectors = graph.sectorsX * graph.sectorsY;
+
+        this.field = new int[cells];
+        this.sectorStamp = new int[sectors];
+        this.nodeDist = new int[cells];
+        this.nodeStamp = new int[cells];
+        this.open = new IndexedHeap(cells);
+        this.settled = new int[sectors];
+        this.settledStamp = new int[sectors];
+
+        this.local = new int[graph.size * graph.size];
+        this.localOpen = new IndexedHeap(graph.size * graph.size);
+    }
+
+    /**
+     * Sets a new goal, discarding all the distances towards the old one. The goal can be an obstacle.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     */
+    public void setGoal(final int x, final int y)
+    {
+        if (x < 0 || y < 0 || x >= graph.width || y >= graph.height || !graph.map.contains(x, y))
+            throw new IllegalArgumentException("goal outside of the board: " + x + "," + y);
+
+        goalX = x;
+        goalY = y;
+        hasGoal = true;
+        reset();
+    }
+
+    /**
+     * @return the distance of the cell from the goal, in {@link AStar} cost units, or
+     * {@link DijkstraMap#UNREACHABLE}
+     */
+    public int getDistance(final int x, final int y)
+    {
+        if (version != graph.version)
+            reset();
+
+        integrate(graph.sectorOf(x, y));
+        return field[y * width + x];
+    }
+
+    /**
+     * The best step towards the goal, with the same rules as {@link DijkstraMap#nextStep(int, int)}.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the neighbour packed with {@link PackedPoint#pack(int, int)}, or -1 if there is no better cell
+     */
+    public int nextStep(final int x, final int y)
+    {
+        long best     = getDistance(x, y);
+        int  bestIdx  = -1;
+        int  bestDist = 0;
+
+        for (int i = graph.firstDir(); i < 8; i += graph.dirStep())
+        {
+            final int nx = x + SectorGraph.DX[i];
+            final int ny = y + SectorGraph.DY[i];
+            if (nx < 0 || ny < 0 || nx >= graph.width || ny >= graph.height)
+                continue;
+
+            final int d = getDistance(nx, ny);
+            if (d == SectorGraph.UNREACHABLE)
+                continue;
+
+            final long total = (long) d + SectorGraph.cost(i);
+            if (total <= best && (bestIdx < 0 || total < best || d < bestDist))
+            {
+                best = total;
+                bestIdx = ny * width + nx;
+                bestDist = d;
+            }
+        }
+
+        return bestIdx < 0 ? -1 : PackedPoint.pack(bestIdx % width, bestIdx / width);
+    }
+
+    /**
+     * @return how many sectors have been integrated for the current goal
+     */
+    public int getIntegratedSectors()
+    {
+        return integrated;
+    }
+
+    /**
+     * @return how many nodes of the sector graph have been settled for the current goal
+     */
+    public int getSettledNodes()
+    {
+        return expanded;
+    }
+
+    private void reset()
+    {
+        version = graph.version;
+        open.clear();
+        integrated = 0;
+        expanded = 0;
+
+        if (++generation == Integer.MAX_VALUE)
+        {
+            Arrays.fill(sectorStamp, 0);
+            Arrays.fill(nodeStamp, 0);
+            Arrays.fill(settledStamp, 0);
+            generation = 1;
+        }
+
+        if (!hasGoal)
+            return;
+
+        // the goal's sector, and the sectors of its neighbours if it's on a border, reach their nodes directly
+        final int n = graph.sectorsAround(goalX, goalY, around);
+        for (int i = 0; i < n; i++)
+            seedNodes(around[i]);
+    }
+
+    /**
+     * Puts the nodes of the sector in the open list, with their in-sector distance from the goal.
+     */
+    private void seedNodes(final int s)
+    {
+        graph.seed(s, goalX, goalY, local, localOpen);
+        graph.flood(s, local, localOpen);
+
+        final SectorGraph.Sector sector = graph.sector(s);
+        for (final int node : sector.nodes)
+        {
+            final int d = local[graph.localIndex(s, node)];
+            if (d != SectorGraph.UNREACHABLE)
+                relax(node, d);
+        }
+    }
+
+    private void relax(final int node, final int d)
+    {
+        if (nodeStamp[node] != generation)
+        {
+            nodeStamp[node] = generation;
+            nodeDist[node] = d;
+            open.add(node, d);
+        }
+        else if (d < nodeDist[node] && open.contains(node))
+        {
+            nodeDist[node] = d;
+            open.update(node, d);
+        }
+    }
+
+    /**
+     * Resumes the Dijkstra over the graph until all the nodes of the sector that the goal can reach are settled.
+     * The others would never be: waiting for them would settle the whole component of the goal.
+     */
+    private void settle(final int s)
+    {
+        if (!hasGoal)
+            return;
+
+        int reachable = 0;
+        for (final int node : graph.sector(s).nodes)
+        {
+            if (graph.connectivity.canReach(node % width, node / width, goalX, goalY))
+                reachable++;
+        }
+
+        while (settledCount(s) < reachable && !open.isEmpty())
+            expand(open.poll());
+    }
+
+    private void expand(final int node)
+    {
+        final int s = graph.sectorOf(node % width, node / width);
+        if (settledStamp[s] != generation)
+        {
+            settledStamp[s] = generation;
+            settled[s] = 0;
+        }
+        settled[s]++;
+        expanded++;
+
+        final int d = nodeDist[node];
+
+        // to the other nodes of the sector
+        final SectorGraph.Sector sector = graph.sector(s);
+        final int                n      = sector.nodes.length;
+        final int                i      = SectorGraph.nodeIndex(sector, node);
+        for (int j = 0; j < n; j++)
+        {
+            final int c = sector.costs[i * n + j];
+            if (j != i && c != SectorGraph.UNREACHABLE)
+                relax(sector.nodes[j], d + c);
+        }
+
+        // across the border: a walkable neighbour in another sector is always a node
+        final int x = node % width;
+        final int y = node / width;
+        for (int k = graph.firstDir(); k < 8; k += graph.dirStep())
+        {
+            final int nx = x + SectorGraph.DX[k];
+            final int ny = y + SectorGraph.DY[k];
+            if (nx >= 0 && ny >= 0 && nx < graph.width && ny < graph.height && graph.sectorOf(nx, ny) != s &&
+                graph.walkable(nx, ny))
+                relax(ny * width + nx, d + SectorGraph.cost(k));
+        }
+    }
+
+    private int settledCount(final int s)
+    {
+        return settledStamp[s] == generation ? settled[s] : 0;
+    }
+
+    /**
+     * Computes the distances of all the cells of the sector, from the goal and from the settled border nodes.
+     */
+    private void integrate(final int s)
+    {
+        if (sectorStamp[s] == generation)
+            return;
+
+        settle(s);
+
+        if (hasGoal)
+            graph.seed(s, goalX, goalY, local, localOpen);
+        else
+        {
+            Arrays.fill(local, SectorGraph.UNREACHABLE);
+            localOpen.clear();
+        }
+
+        for (final int node : graph.sector(s).nodes)
+        {
+            if (nodeStamp[node] != generation || open.contains(node))
+                continue;
+
+            final int n = graph.localIndex(s, node);
+            if (nodeDist[node] < local[n])
+            {
+                local[n] = nodeDist[node];
+                localOpen.addOrUpdate(n, local[n]);
+            }
+        }
+
+        graph.flood(s, local, localOpen);
+
+        final int ox = graph.originX(s);
+        final int oy = graph.originY(s);
+        final int ex = Math.min(graph.width, ox + graph.size);
+        final int ey = Math.min(graph.height, oy + graph.size);
+        for (int y = oy; y < ey; y++)
+            System.arraycopy(local, (y - oy) * graph.size, field, y * width + ox, ex - ox);
+
+        sectorStamp[s] = generation;
+        integrated++;
+    }
+}
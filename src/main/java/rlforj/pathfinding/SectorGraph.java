@@ -0,0 +1,545 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.IBoard;
+import rlforj.util.IndexedHeap;
+
+import java.util.Arrays;
+
+/**
+ * The board split in square sectors, with the in-sector distances between their border cells.
+ * <p>
+ * The border cells of a sector that have a walkable neighbour in another sector are the nodes of the graph:
+ * any path leaving a sector goes through one of them. For each sector, the distances between all its nodes
+ * (moving only inside the sector, with the same rules and costs as {@link AStar}) are computed the first time
+ * they are needed and then kept, so engines searching the graph only pay for the sectors they actually visit.
+ * <p>
+ * A coarser layer, the entrances, keeps only one or two crossings per entrance (a run of border cells open on
+ * both sides), as in HPA*: far fewer nodes, for engines that accept paths slightly longer than optimal.
+ * It's built separately, also lazily.
+ * <p>
+ * When a cell changes, call {@link #update(int, int)}: only the sectors around it are discarded, and the
+ * connected components of the board are updated incrementally (see {@link ConnectivityIndex}).
+ * <p>
+ * Not thread safe: sectors are built lazily, even by engines that only read the graph.
+ */
+public class SectorGraph
+{
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    static final int[] DX = { -1, 0, 1, 1, 1, 0, -1, -1 };
+    static final int[] DY = { -1, -1, -1, 0, 1, 1, 1, 0 };
+
+    final IBoard  map;
+    final int     width;
+    final int     height;
+    final int     size;
+    final int     sectorsX;
+    final int     sectorsY;
+    final boolean diagonal;
+
+    private final Sector[]    sectors;
+    private final Entrances[] entrances;
+
+    // components of the whole board, so that engines know which nodes they can never reach
+    final ConnectivityIndex connectivity;
+
+    // incremented on every update, so that engines can discard what they derived from the old sectors
+    int version;
+
+    // scratch space for building sectors
+    private final int[]       local;
+    private final IndexedHeap localOpen;
+
+    /**
+     * Entrances shorter than this get a single crossing, in the middle; longer ones get one at each end.
+     */
+    static final int LONG_ENTRANCE = 6;
+
+    /**
+     * Nodes and in-sector distances of one sector.
+     */
+    static final class Sector
+    {
+        // flattened indexes of the border cells with a walkable neighbour in another sector, ascending
+        final int[] nodes;
+        // distance from node i to node j, at (i * nodes.length + j), UNREACHABLE if there is no path inside the sector
+        final int[] costs;
+
+        Sector(final int[] nodes, final int[] costs)
+        {
+            this.nodes = nodes;
+            this.costs = costs;
+        }
+    }
+
+    public SectorGraph(final IBoard map, final int width, final int height, final int sectorSize,
+                       final boolean diagonal)
+    {
+        if (sectorSize < 2)
+            throw new IllegalArgumentException("sector size must be at least 2: " + sectorSize);
+
+        this.map = map;
+        this.width = width;
+        this.height = height;
+        this.size = sectorSize;
+        this.diagonal = diagonal;
+
+        this.sectorsX = (width + sectorSize - 1) / sectorSize;
+        this.sectorsY = (height + sectorSize - 1) / sectorSize;
+        this.sectors = new Sector[sectorsX * sectorsY];
+        this.entrances = new Entrances[sectorsX * sectorsY];
+        this.connectivity = new ConnectivityIndex(map, width, height, diagonal);
+
+        this.local = new int[sectorSize * sectorSize];
+        this.localOpen = new IndexedHeap(sectorSize * sectorSize);
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    public int getSectorSize()
+    {
+        return size;
+    }
+
+    public boolean isDiagonal()
+    {
+        return diagonal;
+    }
+
+    /**
+     * Discards the sectors whose nodes or distances may depend on the cell. Call it after the cell changed.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     */
+    public void update(final int x, final int y)
+    {
+        if (x < 0 || y < 0 || x >= width || y >= height)
+            return;
+
+        // the cell's own sector, plus the sectors for which it is an outside neighbour
+        for (int dy = -1; dy <= 1; dy++)
+        {
+            for (int dx = -1; dx <= 1; dx++)
+            {
+                final int nx = x + dx;
+                final int ny = y + dy;
+                if (nx >= 0 && ny >= 0 && nx < width && ny < height)
+                {
+                    sectors[sectorOf(nx, ny)] = null;
+                    entrances[sectorOf(nx, ny)] = null;
+                }
+            }
+        }
+
+        connectivity.update(x, y);
+        version++;
+    }
+
+    int sectorOf(final int x, final int y)
+    {
+        return (y / size) * sectorsX + x / size;
+    }
+
+    int originX(final int s)
+    {
+        return (s % sectorsX) * size;
+    }
+
+    int originY(final int s)
+    {
+        return (s / sectorsX) * size;
+    }
+
+    /**
+     * @return the sector, building it if needed
+     */
+    Sector sector(final int s)
+    {
+        Sector sector = sectors[s];
+        if (sector == null)
+        {
+            sector = build(s);
+            sectors[s] = sector;
+        }
+        return sector;
+    }
+
+    /**
+     * @return the entrances of the sector, building them if needed
+     */
+    Entrances entrances(final int s)
+    {
+        Entrances e = entrances[s];
+        if (e == null)
+        {
+            e = buildEntrances(s);
+            entrances[s] = e;
+        }
+        return e;
+    }
+
+    /**
+     * @return the position of the cell in the nodes of the sector, or a negative number if it's not a node
+     */
+    static int nodeIndex(final Sector sector, final int cell)
+    {
+        return Arrays.binarySearch(sector.nodes, cell);
+    }
+
+    /**
+     * @return the position of the cell in the entrance nodes of the sector, or a negative number if it's not one
+     */
+    static int nodeIndex(final Entrances entrances, final int cell)
+    {
+        return Arrays.binarySearch(entrances.nodes, cell);
+    }
+
+    boolean walkable(final int x, final int y)
+    {
+        return map.contains(x, y) && !map.isObstacle(x, y);
+    }
+
+    int firstDir()
+    {
+        return diagonal ? 0 : 1;
+    }
+
+    int dirStep()
+    {
+        return diagonal ? 1 : 2;
+    }
+
+    static int cost(final int dir)
+    {
+        return (dir & 1) == 0 ? AStar.DIAGONAL_COST : AStar.STRAIGHT_COST;
+    }
+
+    /**
+     * Clears the local distances of a sector, and seeds them with a point if it's in the sector, or with its
+     * walkable neighbours in the sector otherwise (at the cost of the step). The point itself is never checked,
+     * so it can be an obstacle.
+     *
+     * @param s     the sector
+     * @param px    x coordinate of the point
+     * @param py    y coordinate of the point
+     * @param dist  local distances, as in {@link #flood(int, int[], IndexedHeap)}
+     * @param open  open list for the flood
+     */
+    void seed(final int s, final int px, final int py, final int[] dist, final IndexedHeap open)
+    {
+        Arrays.fill(dist, UNREACHABLE);
+        open.clear();
+
+        final int ox = originX(s);
+        final int oy = originY(s);
+        if (sectorOf(px, py) == s)
+        {
+            final int p = (py - oy) * size + px - ox;
+            dist[p] = 0;
+            open.add(p, 0);
+            return;
+        }
+
+        for (int i = firstDir(); i < 8; i += dirStep())
+        {
+            final int nx = px + DX[i];
+            final int ny = py + DY[i];
+            if (nx < 0 || ny < 0 || nx >= width || ny >= height || sectorOf(nx, ny) != s || !walkable(nx, ny))
+                continue;
+
+            final int n = (ny - oy) * size + nx - ox;
+            dist[n] = cost(i);
+            open.add(n, dist[n]);
+        }
+    }
+
+    /**
+     * Finds the distinct sectors of a point and of its neighbours: the only sectors that a path starting
+     * or ending at the point can reach without going through a node.
+     *
+     * @param out at least 9 elements
+     * @return the number of sectors written
+     */
+    int sectorsAround(final int px, final int py, final int[] out)
+    {
+        int n = 0;
+        out[n++] = sectorOf(px, py);
+        for (int i = firstDir(); i < 8; i += dirStep())
+        {
+            final int nx = px + DX[i];
+            final int ny = py + DY[i];
+            if (nx < 0 || ny < 0 || nx >= width || ny >= height)
+                continue;
+
+            final int s     = sectorOf(nx, ny);
+            boolean   found = false;
+            for (int j = 0; j < n && !found; j++)
+                found = out[j] == s;
+            if (!found)
+                out[n++] = s;
+        }
+        return n;
+    }
+
+    /**
+     * @return the local index of a cell in the sector, as in {@link #flood(int, int[], IndexedHeap)}
+     */
+    int localIndex(final int s, final int cell)
+    {
+        return (cell / width - originY(s)) * size + cell % width - originX(s);
+    }
+
+    /**
+     * Dijkstra restricted to a sector. Cells are indexed locally, as ((y - originY) * size + x - originX).
+     *
+     * @param s    the sector
+     * @param dist distances, already holding the seeds and UNREACHABLE everywhere else
+     * @param open open list, already holding the seeds
+     */
+    void flood(final int s, final int[] dist, final IndexedHeap open)
+    {
+        final int ox = originX(s);
+        final int oy = originY(s);
+        final int ex = Math.min(width, ox + size);
+        final int ey = Math.min(height, oy + size);
+
+        while (!open.isEmpty())
+        {
+            final int c  = open.poll();
+            final int cx = ox + c % size;
+            final int cy = oy + c / size;
+            final int cd = dist[c];
+
+            for (int i = firstDir(); i < 8; i += dirStep())
+            {
+                final int nx = cx + DX[i];
+                final int ny = cy + DY[i];
+                if (nx < ox || ny < oy || nx >= ex || ny >= ey || !walkable(nx, ny))
+                    continue;
+
+                final int n = (ny - oy) * size + nx - ox;
+                final int d = cd + cost(i);
+                if (d < dist[n])
+                {
+                    dist[n] = d;
+                    open.addOrUpdate(n, d);
+                }
+            }
+        }
+    }
+
+    private Sector build(final int s)
+    {
+        final int ox = originX(s);
+        final int oy = originY(s);
+        final int ex = Math.min(width, ox + size);
+        final int ey = Math.min(height, oy + size);
+
+        int[] nodes = new int[4 * size];
+        int   n     = 0;
+        for (int y = oy; y < ey; y++)
+        {
+            for (int x = ox; x < ex; x++)
+            {
+                final boolean border = x == ox || y == oy || x == ex - 1 || y == ey - 1;
+                if (border && walkable(x, y) && leadsOut(s, x, y))
+                    nodes[n++] = y * width + x;
+            }
+        }
+        nodes = Arrays.copyOf(nodes, n);
+        return new Sector(nodes, costs(s, nodes));
+    }
+
+    /**
+     * @return the in-sector distances between all the given cells of the sector, as in {@link Sector#costs}
+     */
+    private int[] costs(final int s, final int[] nodes)
+    {
+        final int   n     = nodes.length;
+        final int[] costs = new int[n * n];
+        for (int i = 0; i < n; i++)
+        {
+            Arrays.fill(local, UNREACHABLE);
+            final int start = localIndex(s, nodes[i]);
+            local[start] = 0;
+            localOpen.add(start, 0);
+            flood(s, local, localOpen);
+
+            for (int j = 0; j < n; j++)
+                costs[i * n + j] = local[localIndex(s, nodes[j])];
+        }
+        return costs;
+    }
+
+    private Entrances buildEntrances(final int s)
+    {
+        // crossings towards each neighbouring sector, as (cell of this sector, cell of the other)
+        final int[] pairs = new int[16 * size + 8];
+        int         n     = 0;
+        for (int k = firstDir(); k < 8; k += dirStep())
+            n = crossings(s, k, pairs, n);
+
+        // sorted by the cell of this sector, so that its crossings are grouped
+        final long[] sorted = new long[n / 2];
+        for (int i = 0; i < sorted.length; i++)
+            sorted[i] = ((long) pairs[2 * i] << 32) | pairs[2 * i + 1];
+        Arrays.sort(sorted);
+
+        final int[] nodes        = new int[sorted.length];
+        final int[] partnerStart = new int[sorted.length + 1];
+        final int[] partners     = new int[sorted.length];
+        int         count        = 0;
+        for (int i = 0; i < sorted.length; i++)
+        {
+            final int own = (int) (sorted[i] >>> 32);
+            if (count == 0 || nodes[count - 1] != own)
+            {
+                nodes[count] = own;
+                partnerStart[count++] = i;
+            }
+            partners[i] = (int) sorted[i];
+        }
+        partnerStart[count] = sorted.length;
+
+        final int[] own = Arrays.copyOf(nodes, count);
+        return new Entrances(own, costs(s, own), Arrays.copyOf(partnerStart, count + 1), partners);
+    }
+
+    /**
+     * Appends the crossings from the sector to its neighbour in direction k, both cells walkable and adjacent.
+     * Along a side, each run of positions where both the cell and the one facing it are walkable gives one
+     * crossing, or two if it's long; a diagonal crossing between two such runs is only added if neither of its
+     * positions is in one, as otherwise a run already connects its cells. A corner gives its only crossing.
+     * Both sectors find the same crossings, mirrored.
+     *
+     * @return the new number of elements in out
+     */
+    private int crossings(final int s, final int k, final int[] out, int n)
+    {
+        final int ox = originX(s);
+        final int oy = originY(s);
+        final int ex = Math.min(width, ox + size);
+        final int ey = Math.min(height, oy + size);
+
+        // the first own cell of the side, the step along it, and the offset to the facing cell
+        final int fx = DX[k] > 0 ? ex - 1 : ox;
+        final int fy = DY[k] > 0 ? ey - 1 : oy;
+        if (fx + DX[k] < 0 || fy + DY[k] < 0 || fx + DX[k] >= width || fy + DY[k] >= height)
+            return n;
+
+        if ((k & 1) == 0)
+        {
+            if (walkable(fx, fy) && walkable(fx + DX[k], fy + DY[k]))
+            {
+                out[n++] = fy * width + fx;
+                out[n++] = (fy + DY[k]) * width + fx + DX[k];
+            }
+            return n;
+        }
+
+        final int sx     = DX[k] == 0 ? 1 : 0;
+        final int sy     = DY[k] == 0 ? 1 : 0;
+        final int length = DX[k] == 0 ? ex - ox : ey - oy;
+
+        int runStart = -1;
+        for (int i = 0; i <= length; i++)
+        {
+            final boolean open = i < length && open(fx + i * sx, fy + i * sy, DX[k], DY[k]);
+            if (open && runStart < 0)
+                runStart = i;
+            else if (!open && runStart >= 0)
+            {
+                if (i - runStart < LONG_ENTRANCE)
+                    n = cross(fx, fy, sx, sy, DX[k], DY[k], (runStart + i - 1) / 2, 0, out, n);
+                else
+                {
+                    n = cross(fx, fy, sx, sy, DX[k], DY[k], runStart, 0, out, n);
+                    n = cross(fx, fy, sx, sy, DX[k], DY[k], i - 1, 0, out, n);
+                }
+                runStart = -1;
+            }
+
+            // diagonal crossings between two positions, when neither is open
+            if (diagonal && i + 1 < length && !open && !open(fx + (i + 1) * sx, fy + (i + 1) * sy, DX[k], DY[k]))
+            {
+                n = cross(fx, fy, sx, sy, DX[k], DY[k], i, 1, out, n);
+                n = cross(fx, fy, sx, sy, DX[k], DY[k], i + 1, -1, out, n);
+            }
+        }
+        return n;
+    }
+
+    private boolean open(final int x, final int y, final int dx, final int dy)
+    {
+        return walkable(x, y) && walkable(x + dx, y + dy);
+    }
+
+    /**
+     * Appends the crossing from the own cell at position i of a side to the facing cell shifted by j positions,
+     * if both are walkable.
+     */
+    private int cross(final int fx, final int fy, final int sx, final int sy, final int dx, final int dy,
+                      final int i, final int j, final int[] out, int n)
+    {
+        final int x  = fx + i * sx;
+        final int y  = fy + i * sy;
+        final int cx = x + dx + j * sx;
+        final int cy = y + dy + j * sy;
+        if (walkable(x, y) && walkable(cx, cy))
+        {
+            out[n++] = y * width + x;
+            out[n++] = cy * width + cx;
+        }
+        return n;
+    }
+
+    /**
+     * The entrance nodes of one sector: the cells crossing to another sector, with their in-sector distances
+     * and the cells they cross to.
+     */
+    static final class Entrances
+    {
+        // flattened indexes, ascending
+        final int[] nodes;
+        // distance from node i to node j, at (i * nodes.length + j), UNREACHABLE if there is no path inside the sector
+        final int[] costs;
+        // the cells in other sectors that node i crosses to, from partners[partnerStart[i]] to partnerStart[i + 1]
+        final int[] partnerStart;
+        final int[] partners;
+
+        Entrances(final int[] nodes, final int[] costs, final int[] partnerStart, final int[] partners)
+        {
+            this.nodes = nodes;
+            this.costs = costs;
+            this.partnerStart = partnerStart;
+            this.partners = partners;
+        }
+    }
+
+    private boolean leadsOut(final int s, final int x, final int y)
+    {
+        for (int i = firstDir(); i < 8; i += dirStep())
+        {
+            final int nx = x + DX[i];
+            final int ny = y + DY[i];
+            if (nx >= 0 && ny >= 0 && nx < width && ny < height && sectorOf(nx, ny) != s && walkable(nx, ny))
+                return true;
+        }
+        return false;
+    }
+}
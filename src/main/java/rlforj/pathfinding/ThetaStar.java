@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding;
+
+import rlforj.IBoard;
+import rlforj.los.BresLos;
+import rlforj.los.ILosAlgorithm;
+import rlforj.math.Point;
+import rlforj.util.IndexedHeap;
+
+import java.util.Arrays;
+
+/**
+ * Theta* (Nash et al., 2007): any-angle pathfinding.
+ * <p>
+ * It searches like A* over the 8 neighbours of each cell, but a cell can take its parent's parent as its own
+ * parent when there is a line of sight between them. The result is a list of waypoints joined by straight
+ * lines, usually only where the path turns around an obstacle, instead of a chain of adjacent cells.
+ * <p>
+ * Lines of sight are checked with an {@link ILosAlgorithm} (eg, {@link BresLos}) on a view of the board where
+ * only the cells that block movement block the line, and the start and end are always clear. Costs are
+ * Euclidean distances, in {@link AStar#STRAIGHT_COST} units. Paths are not guaranteed to be the shortest
+ * possible, but are usually very close to it.
+ * <p>
+ * The LoS algorithms keep state, so this class is not thread safe: use one instance per thread.
+ */
+public class ThetaStar
+{
+    private final IBoard        map;
+    private final int           boardWidth;
+    private final int           boardHeight;
+    private final ILosAlgorithm los;
+
+    private final WalkableBoard   walkable;
+    private final SearchWorkspace workspace;
+
+    // LoS results of the current search, keyed by the pair of flattened cells (open addressing)
+    private boolean cacheEnabled;
+    private long[]  cacheKeys;
+    private byte[]  cacheValues;
+    private int     cacheSize;
+
+    private int losChecks;
+
+    public ThetaStar(final IBoard map, final int boardWidth, final int boardHeight)
+    {
+        this(map, boardWidth, boardHeight, new BresLos(false));
+    }
+
+    public ThetaStar(final IBoard map, final int boardWidth, final int boardHeight, final ILosAlgorithm los)
+    {
+        this.map = map;
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.los = los;
+
+        this.walkable = new WalkableBoard(map);
+        this.workspace = new SearchWorkspace(boardWidth, boardHeight);
+    }
+
+    /**
+     * Enables a cache of the line of sight checks, cleared at every search. The same pair of cells is
+     * often checked several times in a search, which matters when the LoS algorithm is expensive.
+     *
+     * @param enabled true to cache the checks
+     */
+    public void setLosCache(final boolean enabled)
+    {
+        this.cacheEnabled = enabled;
+        if (enabled && cacheKeys == null)
+        {
+            cacheKeys = new long[1024];
+            cacheValues = new byte[1024];
+        }
+    }
+
+    /**
+     * @return the number of times the LoS algorithm was called by the last search (cached checks excluded)
+     */
+    public int getLosChecks()
+    {
+        return losChecks;
+    }
+
+    public Point[] findPath(final int startX, final int startY, final int endX, final int endY)
+    {
+        return findPath(startX, startY, endX, endY, -1);
+    }
+
+    /**
+     * Finds an any-angle path.
+     *
+     * @param radius maximum distance of the search from the start, in each direction, or -1 for no limit
+     * @return the waypoints, from start to end, each in sight of the previous one according to the LoS
+     * algorithm, or null if there is no path
+     */
+    public Point[] findPath(final int startX, final int startY, final int endX, final int endY, final int radius)
+    {
+        final int end = search(startX, startY, endX, endY, radius);
+
+        if (end < 0)
+            return null;
+
+        // only the waypoints: unlike other searches, the parents are not in straight or diagonal lines
+        final int[] parent = workspace.parent;
+        final int   w      = workspace.width;
+        int         len    = 1;
+        for (int n = end; parent[n] >= 0; n = parent[n])
+            len++;
+
+        final Point[] ret = new Point[len];
+        for (int n = end, i = len - 1; i >= 0; n = parent[n], i--)
+            ret[i] = new Point(n % w, n / w);
+        return ret;
+    }
+
+    private int search(final int startX, final int startY, final int endX, final int endY, final int radius)
+    {
+        losChecks = 0;
+        if (!map.contains(startX, startY) || !map.contains(endX, endY))
+            return -1;
+
+        workspace.reset();
+        if (cacheEnabled && cacheSize > 0)
+        {
+            Arrays.fill(cacheValues, (byte) 0);
+            cacheSize = 0;
+        }
+
+        if (radius < 0)
+            workspace.setQuery(0, 0, boardWidth - 1, boardHeight - 1, endX, endY);
+        else
+            workspace.setQuery(startX - radius, startY - radius, Math.min(boardWidth - 1, startX + radius),
+                               Math.min(boardHeight - 1, startY + radius), endX, endY);
+
+        walkable.setEnds(startX, startY, endX, endY);
+
+        final IndexedHeap open  = workspace.open;
+        final int         w     = workspace.width;
+        final int         start = startY * w + startX;
+        workspace.visit(start, 0, -1);
+        open.add(start, distance(startX - endX, startY - endY));
+
+        while (!open.isEmpty())
+        {
+            final int step  = open.poll();
+            final int stepX = step % w;
+            final int stepY = step / w;
+            workspace.expansions++;
+            if (stepX == endX && stepY == endY)
+                return step;
+
+            final int parent = workspace.parent[step];
+            for (int dx = -1; dx <= 1; dx++)
+            {
+                for (int dy = -1; dy <= 1; dy++)
+                {
+                    if (dx == 0 && dy == 0)
+                        continue;
+
+                    final int cx = stepX + dx;
+                    final int cy = stepY + dy;
+                    if (cx < workspace.minX || cy < workspace.minY || cx > workspace.maxX ||
+                        cy > workspace.maxY || !map.contains(cx, cy))
+                        continue;
+
+                    // the only allowed obstacle is the end point
+                    if ((cx != endX || cy != endY) && map.isObstacle(cx, cy))
+                        continue;
+
+                    // closed cells are never improved
+                    final int idx = cy * w + cx;
+                    if (workspace.visited(idx) && !open.contains(idx))
+                        continue;
+
+                    // straight from the grandparent if it's in sight, as in A* otherwise
+                    int from = step;
+                    if (parent >= 0 && lineOfSight(parent, idx, w))
+                        from = parent;
+
+                    final int g = workspace.g[from] + distance(cx - from % w, cy - from / w);
+                    if (!workspace.visited(idx) || g < workspace.g[idx])
+                    {
+                        workspace.visit(idx, g, from);
+                        open.addOrUpdate(idx, g + distance(cx - endX, cy - endY));
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    private boolean lineOfSight(final int a, final int b, final int w)
+    {
+        if (!cacheEnabled)
+        {
+            losChecks++;
+            return los.exists(walkable, a % w, a / w, b % w, b / w, false);
+        }
+
+        final long key  = ((long) a << 32) | b;
+        final int  mask = cacheKeys.length - 1;
+        int        i    = slot(key, mask);
+        while (cacheValues[i] != 0)
+        {
+            if (cacheKeys[i] == key)
+                return cacheValues[i] == 2;
+            i = (i + 1) & mask;
+        }
+
+        losChecks++;
+        final boolean sight = los.exists(walkable, a % w, a / w, b % w, b / w, false);
+        cacheKeys[i] = key;
+        cacheValues[i] = (byte) (sight ? 2 : 1);
+        if (++cacheSize * 2 > cacheKeys.length)
+            growCache();
+
+        return sight;
+    }
+
+    private void growCache()
+    {
+        final long[] keys   = cacheKeys;
+        final byte[] values = cacheValues;
+        cacheKeys = new long[keys.length * 2];
+        cacheValues = new byte[keys.length * 2];
+
+        final int mask = cacheKeys.length - 1;
+        for (int j = 0; j < keys.length; j++)
+        {
+            if (values[j] == 0)
+                continue;
+
+            int i = slot(keys[j], mask);
+            while (cacheValues[i] != 0)
+                i = (i + 1) & mask;
+            cacheKeys[i] = keys[j];
+            cacheValues[i] = values[j];
+        }
+    }
+
+    private static int slot(final long key, final int mask)
+    {
+        return (int) (key ^ (key >>> 29)) * 0x9E3779B9 & mask;
+    }
+
+    /**
+     * Euclidean length of a segment, in cost units.
+     */
+    private static int distance(final int dx, final int dy)
+    {
+        return (int) Math.round(Math.sqrt(dx * dx + dy * dy) * AStar.STRAIGHT_COST);
+    }
+
+    /**
+     * The board as seen by the LoS algorithm: a cell blocks the line if it blocks movement, except for the
+     * start and end of the search.
+     */
+    private static final class WalkableBoard implements IBoard
+    {
+        private final IBoard map;
+
+        private int startX, startY;
+        private int endX, endY;
+
+        WalkableBoard(final IBoard map)
+        {
+            this.map = map;
+        }
+
+        void setEnds(final int startX, final int startY, final int endX, final int endY)
+        {
+            this.startX = startX;
+            this.startY = startY;
+            this.endX = endX;
+            this.endY = endY;
+        }
+
+        @Override
+        public boolean contains(final int x, final int y)
+        {
+            return map.contains(x, y);
+        }
+
+        @Override
+        public boolean isObstacle(final int x, final int y)
+        {
+            return blocksStep(x, y);
+        }
+
+        @Override
+        public boolean blocksLight(final int x, final int y)
+        {
+            return blocksStep(x, y);
+        }
+
+        @Override
+        public boolean blocksStep(final int x, final int y)
+        {
+            if ((x == startX && y == startY) || (x == endX && y == endY))
+                return false;
+
+            return !map.contains(x, y) || map.isObstacle(x, y);
+        }
+
+        @Override
+        public void visit(final int x, final int y)
+        {
+        }
+    }
+}
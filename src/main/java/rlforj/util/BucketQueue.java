@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.util;
+
+import java.util.Arrays;
+
+/**
+ * A monotone bucket queue (Dial, 1969) of int items with int keys: a circular array of buckets, one per key,
+ * each a doubly linked list of items. Adding, updating and removing an item are O(1), and polling is O(1)
+ * amortised over the keys scanned.
+ * <p>
+ * It only works for monotone searches: keys must not be negative, never lower than the last key polled, nor
+ * higher than it plus the span given at construction. Dijkstra and A* with a consistent heuristic over integer
+ * costs satisfy this, with the span equal to the largest increase of a key in one step. Among equal keys, the
+ * last item added is polled first.
+ */
+public class BucketQueue
+{
+    private final int[] head;
+    private final int[] next;
+    private final int[] prev;
+    private final int[] keys;
+    // bucket of each item, -1 if it's not in the queue
+    private final int[] bucket;
+
+    private int size;
+    private int cursor;
+
+    /**
+     * @param capacity maximum item index + 1
+     * @param span     maximum difference between any key and the lowest one
+     */
+    public BucketQueue(final int capacity, final int span)
+    {
+        if (span < 0)
+            throw new IllegalArgumentException("span must not be negative: " + span);
+
+        this.head = new int[span + 1];
+        this.next = new int[capacity];
+        this.prev = new int[capacity];
+        this.keys = new int[capacity];
+        this.bucket = new int[capacity];
+        Arrays.fill(head, -1);
+        Arrays.fill(bucket, -1);
+    }
+
+    public int capacity()
+    {
+        return bucket.length;
+    }
+
+    /**
+     * @return the maximum difference between any key and the lowest one
+     */
+    public int span()
+    {
+        return head.length - 1;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public boolean contains(final int item)
+    {
+        return bucket[item] >= 0;
+    }
+
+    /**
+     * Adds an item which must not be in the queue already.
+     *
+     * @param item item index
+     * @param key  priority of the item, lower is polled first
+     */
+    public void add(final int item, final int key)
+    {
+        if (bucket[item] >= 0)
+            throw new IllegalArgumentException("item " + item + " is already in the queue");
+
+        if (key < 0)
+            throw new IllegalArgumentException("key must not be negative: " + key);
+
+        // an empty queue can start again from any key
+        if (size == 0 && !inRange(key))
+            cursor = key;
+        checkRange(key);
+
+        link(item, key);
+        size++;
+    }
+
+    /**
+     * Changes the key of an item already in the queue.
+     *
+     * @param item item index
+     * @param key  new priority
+     */
+    public void update(final int item, final int key)
+    {
+        if (bucket[item] < 0)
+            throw new IllegalArgumentException("item " + item + " is not in the queue");
+
+        checkRange(key);
+
+        unlink(item);
+        link(item, key);
+    }
+
+    /**
+     * Adds the item, or changes its key if it's already in the queue.
+     *
+     * @param item item index
+     * @param key  priority of the item
+     */
+    public void addOrUpdate(final int item, final int key)
+    {
+        if (bucket[item] >= 0)
+            update(item, key);
+        else
+            add(item, key);
+    }
+
+    /**
+     * @param item item index
+     * @return the key of an item in the queue
+     */
+    public int getKey(final int item)
+    {
+        return keys[item];
+    }
+
+    /**
+     * @return the lowest key, or Integer.MAX_VALUE if the queue is empty
+     */
+    public int peekKey()
+    {
+        if (size == 0)
+            return Integer.MAX_VALUE;
+
+        // the cursor stays at the last key polled, so that lower keys can still be added
+        int key = cursor;
+        while (head[key % head.length] < 0)
+            key++;
+        return key;
+    }
+
+    /**
+     * Removes an item with the lowest key.
+     *
+     * @return the removed item, or -1 if the queue is empty
+     */
+    public int poll()
+    {
+        if (size == 0)
+            return -1;
+
+        advance();
+        final int item = head[cursor % head.length];
+        unlink(item);
+        size--;
+        return item;
+    }
+
+    /**
+     * Removes an item, if it's in the queue.
+     *
+     * @param item item index
+     */
+    public void remove(final int item)
+    {
+        if (bucket[item] < 0)
+            return;
+
+        unlink(item);
+        size--;
+    }
+
+    /**
+     * Empties the queue, in time proportional to its size plus its span.
+     */
+    public void clear()
+    {
+        for (int b = 0; b < head.length && size > 0; b++)
+        {
+            while (head[b] >= 0)
+            {
+                unlink(head[b]);
+                size--;
+            }
+        }
+    }
+
+    private boolean inRange(final int key)
+    {
+        return key >= cursor && key - cursor < head.length;
+    }
+
+    private void checkRange(final int key)
+    {
+        if (!inRange(key))
+            throw new IllegalArgumentException("key " + key + " is out of the range of the queue: " + cursor +
+                                               " + " + span());
+    }
+
+    /**
+     * Moves the cursor to the first non empty bucket. The queue must not be empty.
+     */
+    private void advance()
+    {
+        while (head[cursor % head.length] < 0)
+            cursor++;
+    }
+
+    private void link(final int item, final int key)
+    {
+        final int b = key % head.length;
+        final int h = head[b];
+
+        keys[item] = key;
+        bucket[item] = b;
+        prev[item] = -1;
+        next[item] = h;
+        if (h >= 0)
+            prev[h] = item;
+        head[b] = item;
+    }
+
+    private void unlink(final int item)
+    {
+        final int p = prev[item];
+        final int n = next[item];
+        if (p >= 0)
+            next[p] = n;
+        else
+            head[bucket[item]] = n;
+        if (n >= 0)
+            prev[n] = p;
+
+        bucket[item] = -1;
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.util;
+
+import java.util.Arrays;
+
+/**
+ * A min-heap of int items, each with an integer key. Like {@link SimpleHeap}, but without objects:
+ * items are indexes in [0, capacity) (eg, flattened cell indexes), and the position of each item
+ * in the heap is kept in a primitive array indexed by the item itself, so that {@link #update(int, long)}
+ * and {@link #contains(int)} are O(log n) and O(1) respectively.
+ * <p>
+ * Keys are longs, so that costs can be stored exactly and composite keys can be packed in one value.
+ * Among equal keys, there is no guaranteed order.
+ */
+public class IndexedHeap
+{
+    private int[] position;
+
+    private int[]  items;
+    private long[] keys;
+    private int    size;
+
+    /**
+     * @param capacity maximum item index + 1
+     */
+    public IndexedHeap(final int capacity)
+    {
+        this.position = new int[capacity];
+        Arrays.fill(position, -1);
+
+        final int initial = Math.max(16, Math.min(capacity, 1024));
+        this.items = new int[initial];
+        this.keys = new long[initial];
+    }
+
+    public int capacity()
+    {
+        return position.length;
+    }
+
+    /**
+     * Allows items up to a new capacity, for item indexes assigned on the fly.
+     *
+     * @param capacity maximum item index + 1
+     */
+    public void ensureCapacity(final int capacity)
+    {
+        if (capacity <= position.length)
+            return;
+
+        final int old = position.length;
+        position = Arrays.copyOf(position, Math.max(capacity, old + (old >> 1)));
+        Arrays.fill(position, old, position.length, -1);
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public boolean contains(final int item)
+    {
+        return position[item] >= 0;
+    }
+
+    /**
+     * Adds an item which must not be in the heap already.
+     *
+     * @param item item index
+     * @param key  priority of the item, lower is polled first
+     */
+    public void add(final int item, final long key)
+    {
+        if (position[item] >= 0)
+            throw new IllegalArgumentException("item " + item + " is already in the heap");
+
+        if (size == items.length)
+        {
+            final int newLength = Math.min(position.length, Math.max(size + 1, size + (size >> 1)));
+            items = Arrays.copyOf(items, newLength);
+            keys = Arrays.copyOf(keys, newLength);
+        }
+
+        siftUp(size++, item, key);
+    }
+
+    /**
+     * Changes the key of an item already in the heap, in either direction.
+     *
+     * @param item item index
+     * @param key  new priority
+     */
+    public void update(final int item, final long key)
+    {
+        final int pos = position[item];
+        if (pos < 0)
+            throw new IllegalArgumentException("item " + item + " is not in the heap");
+
+        if (key < keys[pos])
+            siftUp(pos, item, key);
+        else
+            siftDown(pos, item, key);
+    }
+
+    /**
+     * Adds the item, or changes its key if it's already in the heap.
+     *
+     * @param item item index
+     * @param key  priority of the item
+     */
+    public void addOrUpdate(final int item, final long key)
+    {
+        if (position[item] >= 0)
+            update(item, key);
+        else
+            add(item, key);
+    }
+
+    /**
+     * @param item item index
+     * @return the key of an item in the heap
+     */
+    public long getKey(final int item)
+    {
+        return keys[position[item]];
+    }
+
+    /**
+     * @return the item with the lowest key, or -1 if the heap is empty
+     */
+    public int peek()
+    {
+        return size == 0 ? -1 : items[0];
+    }
+
+    /**
+     * @return the lowest key, or Long.MAX_VALUE if the heap is empty
+     */
+    public long peekKey()
+    {
+        return size == 0 ? Long.MAX_VALUE : keys[0];
+    }
+
+    /**
+     * Removes the item with the lowest key.
+     *
+     * @return the removed item, or -1 if the heap is empty
+     */
+    public int poll()
+    {
+        if (size == 0)
+            return -1;
+
+        final int result = items[0];
+        position[result] = -1;
+
+        final int s = --size;
+        if (s != 0)
+            siftDown(0, items[s], keys[s]);
+
+        return result;
+    }
+
+    /**
+     * Removes an item, if it's in the heap.
+     *
+     * @param item item index
+     */
+    public void remove(final int item)
+    {
+        final int pos = position[item];
+        if (pos < 0)
+            return;
+
+        position[item] = -1;
+
+        final int s = --size;
+        if (pos == s)
+            return;
+
+        final int  last    = items[s];
+        final long lastKey = keys[s];
+        if (lastKey < keys[pos])
+            siftUp(pos, last, lastKey);
+        else
+            siftDown(pos, last, lastKey);
+    }
+
+    /**
+     * Empties the heap, in time proportional to its size (not its capacity).
+     */
+    public void clear()
+    {
+        for (int i = 0; i < size; i++)
+            position[items[i]] = -1;
+        size = 0;
+    }
+
+    private void siftUp(int k, final int item, final long key)
+    {
+        while (k > 0)
+        {
+            final int parent = (k - 1) >>> 1;
+            if (key >= keys[parent])
+                break;
+            items[k] = items[parent];
+            keys[k] = keys[parent];
+            position[items[k]] = k;
+            k = parent;
+        }
+        items[k] = item;
+        keys[k] = key;
+        position[item] = k;
+    }
+
+    private void siftDown(int k, final int item, final long key)
+    {
+        final int half = size >>> 1;
+        while (k < half)
+        {
+            int       child = (k << 1) + 1;
+            final int right = child + 1;
+            if (right < size && keys[right] < keys[child])
+                child = right;
+            if (key <= keys[child])
+                break;
+            items[k] = items[child];
+            keys[k] = keys[child];
+            position[items[k]] = k;
+            k = child;
+        }
+        items[k] = item;
+        keys[k] = key;
+        position[item] = k;
+    }
+}
@@ -9,7 +9,10 @@ package rlforj.pathfinding.test;
 import org.junit.Test;
 import rlforj.math.Point;
 import rlforj.pathfinding.AStar;
+import rlforj.pathfinding.AStarSearch;
 import rlforj.pathfinding.IPathAlgorithm;
+import rlforj.pathfinding.SearchStatus;
+import rlforj.pathfinding.SearchWorkspace;
 import rlforj.util.Directions;
 
 import java.util.ArrayList;
@@ -121,6 +124,158 @@ public class AStarTest
         }
     }
 
+    /**
+     * A workspace shared by many searches, over boards of different sizes, must give
+     * exactly the same paths as a fresh workspace for each search.
+     */
+    @Test
+    public void testWorkspaceReuse()
+    {
+        final Random          rand   = new Random();
+        final SearchWorkspace shared = new SearchWorkspace(100, 100);
+        for (int i = 0; i < 200; i++)
+        {
+            final int w = rand.nextInt(80) + 20;
+            final int h = rand.nextInt(80) + 20;
+
+            final StringBuilder sb = new StringBuilder();
+            for (int k = 0; k < h; k++)
+            {
+                for (int j = 0; j < w; j++)
+                    sb.append(rand.nextInt(100) < 30 ? '#' : ' ');
+                sb.append('\n');
+            }
+            final MockBoard m    = new MockBoard(sb.toString());
+            final AStar     algo = new AStar(m, w, h);
+
+            for (int q = 0; q < 5; q++)
+            {
+                final int startx = rand.nextInt(w);
+                final int starty = rand.nextInt(h);
+                final int endx   = rand.nextInt(w);
+                final int endy   = rand.nextInt(h);
+                final int radius = rand.nextBoolean() ? -1 : rand.nextInt(40) + 1;
+
+                final Point[] expected = algo.findPath(startx, starty, endx, endy, radius, new SearchWorkspace(w, h));
+                final Point[] actual   = algo.findPath(startx, starty, endx, endy, radius, shared);
+
+                assertArrayEquals("Reused workspace gave a different path", expected, actual);
+            }
+        }
+    }
+
+    /**
+     * A search run in small slices must end with the same path as a search run in one go.
+     */
+    @Test
+    public void testResumableSearch()
+    {
+        final Random rand = new Random();
+        for (int i = 0; i < 200; i++)
+        {
+            final int       w    = rand.nextInt(60) + 5;
+            final int       h    = rand.nextInt(60) + 5;
+            final MockBoard m    = PathTestUtils.randomBoard(rand, w, h, rand.nextInt(40));
+            final AStar     algo = new AStar(m, w, h, rand.nextBoolean());
+
+            final int startx = rand.nextInt(w);
+            final int starty = rand.nextInt(h);
+            final int endx   = rand.nextInt(w);
+            final int endy   = rand.nextInt(h);
+            final int radius = rand.nextBoolean() ? -1 : rand.nextInt(20);
+
+            final Point[]     expected = algo.findPath(startx, starty, endx, endy, radius);
+            final AStarSearch search   = algo.startSearch(startx, starty, endx, endy, radius,
+                                                              new SearchWorkspace(w, h));
+
+            int slices = 0;
+            while (search.step(rand.nextInt(20) + 1) == SearchStatus.IN_PROGRESS)
+                slices++;
+
+            assertEquals(expected == null ? SearchStatus.NO_PATH : SearchStatus.FOUND, search.getStatus());
+            assertArrayEquals("Sliced search gave a different path", expected, search.getPath());
+            assertTrue(slices <= search.getExpansions());
+        }
+    }
+
+    @Test
+    public void testTimeBudget()
+    {
+        final MockBoard   m      = PathTestUtils.randomBoard(new Random(), 300, 300, 0);
+        final AStarSearch search = new AStar(m, 300, 300).startSearch(0, 0, 299, 299, -1,
+                                                                          new SearchWorkspace(300, 300));
+
+        // no time at all: the search stops at the first clock check
+        assertEquals(SearchStatus.IN_PROGRESS, search.step(Integer.MAX_VALUE, 0));
+        assertTrue(search.getExpansions() < 100);
+
+        assertEquals(SearchStatus.FOUND, search.step(Integer.MAX_VALUE, -1));
+        assertEquals(300, search.getPath().length);
+        assertEquals(SearchStatus.FOUND, search.step(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoExpansions()
+    {
+        final MockBoard m = PathTestUtils.randomBoard(new Random(), 10, 10, 0);
+        new AStar(m, 10, 10).startSearch(0, 0, 9, 9, -1, new SearchWorkspace(10, 10)).step(0);
+    }
+
+    /**
+     * A bounded search must never exceed the optimal cost by more than epsilon, and epsilon 0 must be optimal.
+     */
+    @Test
+    public void testBoundedSuboptimal()
+    {
+        final Random   rand     = new Random();
+        final double[] epsilons = { 0.0, 0.1, 0.2, 0.5, 2.0 };
+        for (int i = 0; i < 500; i++)
+        {
+            final int       w        = rand.nextInt(60) + 1;
+            final int       h        = rand.nextInt(60) + 1;
+            final boolean   diagonal = rand.nextBoolean();
+            final MockBoard m        = PathTestUtils.randomBoard(rand, w, h, rand.nextInt(40));
+            final AStar     algo     = new AStar(m, w, h, diagonal);
+
+            final int    startx  = rand.nextInt(w);
+            final int    starty  = rand.nextInt(h);
+            final int    endx    = rand.nextInt(w);
+            final int    endy    = rand.nextInt(h);
+            final int    radius  = rand.nextInt(5) == 0 ? rand.nextInt(10) + 1 : -1;
+            final double epsilon = epsilons[rand.nextInt(epsilons.length)];
+
+            final Point[] path     = algo.findPath(startx, starty, endx, endy, radius, epsilon);
+            final double  expected = PathTestUtils.referenceCost(m, startx, starty, endx, endy, radius, diagonal);
+            if (expected < 0)
+            {
+                assertNull(path);
+            }
+            else
+            {
+                assertNotNull(path);
+                PathTestUtils.assertValidPath(m, path, startx, starty, endx, endy, diagonal);
+                assertTrue("cost " + PathTestUtils.cost(path) + " exceeds the bound for " + expected,
+                           PathTestUtils.cost(path) <= expected * (1.0 + epsilon) + PathTestUtils.EPSILON);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeEpsilon()
+    {
+        final MockBoard m = new MockBoard("    \n    \n");
+
+        new AStar(m, 4, 2).findPath(0, 0, 3, 1, -1, -0.1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWorkspaceTooSmall()
+    {
+        final MockBoard m = new MockBoard("    \n    \n");
+
+        new AStar(m, 4, 2).findPath(0, 0, 3, 1, -1, new SearchWorkspace(2, 2));
+    }
+
     /**
      * FloodFill the board from point 1 and see if point2 is same color. If not,
      * points are not reachable from each other.
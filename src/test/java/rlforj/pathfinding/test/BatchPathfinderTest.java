@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding.test;
+
+import org.junit.Test;
+import rlforj.math.PackedPoint;
+import rlforj.pathfinding.AStar;
+import rlforj.pathfinding.BatchPathfinder;
+import rlforj.pathfinding.JumpPointSearch;
+import rlforj.pathfinding.PathBatch;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class BatchPathfinderTest
+{
+    /**
+     * The paths found in parallel must be the same as the ones found one by one.
+     */
+    @Test
+    public void testSameAsSequential()
+    {
+        final Random       rand = new Random();
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            for (int i = 0; i < 20; i++)
+            {
+                final int       w = rand.nextInt(60) + 5;
+                final int       h = rand.nextInt(60) + 5;
+                final MockBoard m = PathTestUtils.randomBoard(rand, w, h, rand.nextInt(40));
+
+                final AStar           algo   = new AStar(m, w, h, rand.nextBoolean());
+                final BatchPathfinder batch  = new BatchPathfinder(algo, pool);
+                final int             count  = rand.nextInt(300);
+                final int             radius = rand.nextBoolean() ? -1 : rand.nextInt(20) + 1;
+
+                final int[] starts = new int[count];
+                final int[] ends   = new int[count];
+                for (int q = 0; q < count; q++)
+                {
+                    starts[q] = PackedPoint.pack(rand.nextInt(w), rand.nextInt(h));
+                    ends[q] = PackedPoint.pack(rand.nextInt(w), rand.nextInt(h));
+                }
+
+                final PathBatch result = batch.findPaths(starts, ends, count, radius);
+                assertEquals(count, result.size());
+
+                final int[] path = new int[w * h];
+                for (int q = 0; q < count; q++)
+                {
+                    final int len = algo.findPath(PackedPoint.x(starts[q]), PackedPoint.y(starts[q]),
+                                                  PackedPoint.x(ends[q]), PackedPoint.y(ends[q]), radius, path);
+                    assertEquals(len, result.getLength(q));
+                    for (int j = 0; j < len; j++)
+                        assertEquals(path[j], result.getPoint(q, j));
+                }
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testCommonPool()
+    {
+        final MockBoard       m     = new MockBoard("     \n ### \n     \n");
+        final BatchPathfinder batch = new BatchPathfinder(new JumpPointSearch(m, 5, 3));
+
+        final PathBatch result = batch.findPaths(new int[] { PackedPoint.pack(0, 0), PackedPoint.pack(2, 1) },
+                                                 new int[] { PackedPoint.pack(4, 2), PackedPoint.pack(0, 0) });
+
+        assertEquals(6, result.getLength(0));
+        assertEquals(PackedPoint.pack(0, 0), result.getPoint(0, 0));
+        assertEquals(PackedPoint.pack(4, 2), result.getPoint(0, 5));
+        assertEquals(3, result.getLength(1));
+        assertEquals(6, result.getOffset(1));
+        assertEquals(9, result.getPoints().length);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding.test;
+
+import org.junit.Test;
+import rlforj.math.Point;
+import rlforj.pathfinding.AStar;
+import rlforj.pathfinding.BidirectionalAStar;
+import rlforj.pathfinding.SearchWorkspace;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BidirectionalAStarTest
+{
+    @Test
+    public void testOptimalPaths()
+    {
+        final Random rand = new Random();
+        for (int i = 0; i < 500; i++)
+        {
+            final int       w        = rand.nextInt(40) + 1;
+            final int       h        = rand.nextInt(40) + 1;
+            final boolean   diagonal = rand.nextBoolean();
+            final MockBoard m        = PathTestUtils.randomBoard(rand, w, h, rand.nextInt(40));
+
+            final BidirectionalAStar algo = new BidirectionalAStar(m, w, h, diagonal);
+
+            final int startx = rand.nextInt(w);
+            final int starty = rand.nextInt(h);
+            final int endx   = rand.nextInt(w);
+            final int endy   = rand.nextInt(h);
+            final int radius = rand.nextInt(5) == 0 ? rand.nextInt(10) : -1;
+
+            final Point[] path     = algo.findPath(startx, starty, endx, endy, radius);
+            final double  expected = PathTestUtils.referenceCost(m, startx, starty, endx, endy, radius, diagonal);
+            if (radius == 0)
+            {
+                assertEquals(1, path.length);
+            }
+            else if (expected < 0)
+            {
+                assertNull("Bidirectional A* found a path that does not exist", path);
+            }
+            else
+            {
+                assertNotNull("Path existed but bidirectional A* failed", path);
+                PathTestUtils.assertValidPath(m, path, startx, starty, endx, endy, diagonal);
+                assertEquals("Bidirectional A* path is not optimal", expected, PathTestUtils.cost(path),
+                             PathTestUtils.EPSILON);
+            }
+        }
+    }
+
+    /**
+     * Corner to corner across mazes, the two searches together must expand fewer nodes than a single one.
+     */
+    @Test
+    public void testMazeExpansions()
+    {
+        final Random rand = new Random(42);
+
+        int single        = 0;
+        int bidirectional = 0;
+        for (int i = 0; i < 10; i++)
+        {
+            final MockBoard m = maze(rand, 40, 40);
+            final int       w = m.getWidth();
+            final int       h = m.getHeight();
+
+            final SearchWorkspace ws       = new SearchWorkspace(w, h);
+            final SearchWorkspace forward  = new SearchWorkspace(w, h);
+            final SearchWorkspace backward = new SearchWorkspace(w, h);
+
+            final Point[] path = new BidirectionalAStar(m, w, h).findPath(1, 1, w - 2, h - 2, -1, forward, backward);
+            assertNotNull(new AStar(m, w, h).findPath(1, 1, w - 2, h - 2, -1, ws));
+            assertNotNull(path);
+            assertEquals(PathTestUtils.referenceCost(m, 1, 1, w - 2, h - 2, -1, true), PathTestUtils.cost(path),
+                         PathTestUtils.EPSILON);
+
+            single += ws.getExpansions();
+            bidirectional += forward.getExpansions() + backward.getExpansions();
+        }
+
+        assertTrue("bidirectional: " + bidirectional + ", single: " + single, bidirectional < single);
+    }
+
+    /**
+     * A maze carved with a randomised depth first search: cells at odd coordinates, walls in between.
+     */
+    private static MockBoard maze(final Random rand, final int cellsX, final int cellsY)
+    {
+        final int         w    = cellsX * 2 + 1;
+        final int         h    = cellsY * 2 + 1;
+        final boolean[][] open = new boolean[h][w];
+
+        final int[] stack = new int[cellsX * cellsY];
+        int         top   = 0;
+        stack[top++] = 0;
+        open[1][1] = true;
+        while (top > 0)
+        {
+            final int cx = stack[top - 1] % cellsX;
+            final int cy = stack[top - 1] / cellsX;
+
+            final int[] dirs = new int[4];
+            int         n    = 0;
+            if (cx > 0 && !open[cy * 2 + 1][cx * 2 - 1])
+                dirs[n++] = 0;
+            if (cx < cellsX - 1 && !open[cy * 2 + 1][cx * 2 + 3])
+                dirs[n++] = 1;
+            if (cy > 0 && !open[cy * 2 - 1][cx * 2 + 1])
+                dirs[n++] = 2;
+            if (cy < cellsY - 1 && !open[cy * 2 + 3][cx * 2 + 1])
+                dirs[n++] = 3;
+
+            if (n == 0)
+            {
+                top--;
+                continue;
+            }
+
+            final int d  = dirs[rand.nextInt(n)];
+            final int nx = cx + (d == 0 ? -1 : d == 1 ? 1 : 0);
+            final int ny = cy + (d == 2 ? -1 : d == 3 ? 1 : 0);
+            open[cy + ny + 1][cx + nx + 1] = true;
+            open[ny * 2 + 1][nx * 2 + 1] = true;
+            stack[top++] = ny * cellsX + nx;
+        }
+
+        // knock down some walls, so that there are loops and the searches can meet from many sides
+        for (int k = 0; k < cellsX * cellsY / 8; k++)
+        {
+            final int x = rand.nextInt(w - 2) + 1;
+            final int y = rand.nextInt(h - 2) + 1;
+            if ((x + y) % 2 == 1)
+                open[y][x] = true;
+        }
+
+        final StringBuilder sb = new StringBuilder();
+        for (int y = 0; y < h; y++)
+        {
+            for (int x = 0; x < w; x++)
+                sb.append(open[y][x] ? '.' : '#');
+            sb.append('\n');
+        }
+        return new MockBoard(sb.toString());
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding.test;
+
+import org.junit.Test;
+import rlforj.pathfinding.BitParallelBfs;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BitParallelBfsTest
+{
+    /**
+     * Distances, reachable sets and single queries must match a plain breadth-first search, also across the
+     * words of wide boards and after updates.
+     */
+    @Test
+    public void testAgainstBfs()
+    {
+        final Random rand = new Random();
+        for (int i = 0; i < 200; i++)
+        {
+            final int       w        = rand.nextInt(150) + 1;
+            final int       h        = rand.nextInt(40) + 1;
+            final boolean   diagonal = rand.nextBoolean();
+            final MockBoard m        = PathTestUtils.randomBoard(rand, w, h, rand.nextInt(40));
+            final BitParallelBfs bfs = new BitParallelBfs(m, w, h, diagonal);
+
+            for (int k = 0; k < 5; k++)
+            {
+                final int x = rand.nextInt(w);
+                final int y = rand.nextInt(h);
+                m.setObstacle(x, y, !m.isObstacle(x, y));
+                bfs.update(x, y);
+            }
+
+            final int startx   = rand.nextInt(w);
+            final int starty   = rand.nextInt(h);
+            final int maxSteps = rand.nextBoolean() ? -1 : rand.nextInt(30);
+
+            final int[] expected = referenceDistances(m, w, h, startx, starty, diagonal, maxSteps);
+            final int[] actual   = new int[w * h];
+            bfs.distances(startx, starty, maxSteps, actual);
+            assertArrayEquals(expected, actual);
+
+            final long[] set = bfs.reachable(startx, starty, maxSteps);
+            for (int x = 0; x < w; x++)
+            {
+                for (int y = 0; y < h; y++)
+                    assertEquals(expected[y * w + x] >= 0, bfs.contains(set, x, y));
+            }
+
+            final int endx = rand.nextInt(w);
+            final int endy = rand.nextInt(h);
+            assertEquals(expected[endy * w + endx], bfs.distance(startx, starty, endx, endy, maxSteps));
+            assertEquals(expected[endy * w + endx] >= 0, bfs.isReachable(startx, starty, endx, endy, maxSteps));
+        }
+    }
+
+    private static int[] referenceDistances(final MockBoard m, final int w, final int h, final int startX,
+                                            final int startY, final boolean diagonal, final int maxSteps)
+    {
+        final int[] dist = new int[w * h];
+        Arrays.fill(dist, -1);
+        dist[startY * w + startX] = 0;
+
+        final ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(startY * w + startX);
+        while (!queue.isEmpty())
+        {
+            final int c = queue.poll();
+            if (maxSteps >= 0 && dist[c] == maxSteps)
+                continue;
+
+            for (int dx = -1; dx <= 1; dx++)
+            {
+                for (int dy = -1; dy <= 1; dy++)
+                {
+                    if ((dx == 0 && dy == 0) || (dx != 0 && dy != 0 && !diagonal))
+                        continue;
+
+                    final int x = c % w + dx;
+                    final int y = c / w + dy;
+                    if (!m.contains(x, y) || m.isObstacle(x, y) || dist[y * w + x] >= 0)
+                        continue;
+
+                    dist[y * w + x] = dist[c] + 1;
+                    queue.add(y * w + x);
+                }
+            }
+        }
+        return dist;
+    }
+}
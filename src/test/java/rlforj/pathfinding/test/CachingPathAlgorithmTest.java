@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding.test;
+
+import org.junit.Test;
+import rlforj.math.Point;
+import rlforj.pathfinding.AStar;
+import rlforj.pathfinding.CachingPathAlgorithm;
+import rlforj.pathfinding.IPathAlgorithm;
+import rlforj.pathfinding.IPathSink;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CachingPathAlgorithmTest
+{
+    @Test
+    public void testInvalidation()
+    {
+        final MockBoard            m     = PathTestUtils.randomBoard(new Random(), 40, 40, 0);
+        final AStar                astar = new AStar(m, 40, 40);
+        final CachingPathAlgorithm cache = new CachingPathAlgorithm(astar, 40, 40, 8, 16);
+
+        final Point[] first = cache.findPath(0, 0, 20, 0, -1);
+        assertArrayEquals(astar.findPath(0, 0, 20, 0, -1), first);
+        assertArrayEquals(first, cache.findPath(0, 0, 20, 0, -1));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // far from the path: still cached
+        m.setObstacle(30, 30, true);
+        cache.update(30, 30);
+        assertArrayEquals(first, cache.findPath(0, 0, 20, 0, -1));
+        assertEquals(2, cache.getHits());
+
+        // on the path: searched again, around the new obstacle
+        m.setObstacle(10, 0, true);
+        cache.update(10, 0);
+        final Point[] second = cache.findPath(0, 0, 20, 0, -1);
+        assertEquals(2, cache.getMisses());
+        PathTestUtils.assertValidPath(m, second, 0, 0, 20, 0, true);
+
+        // the radius is part of the query
+        assertNull(cache.findPath(0, 0, 20, 0, 5));
+        assertEquals(3, cache.getMisses());
+        assertNull(cache.findPath(0, 0, 20, 0, 5));
+        assertEquals(3, cache.getMisses());
+
+        // "no path" depends on the whole board
+        cache.update(39, 39);
+        assertNull(cache.findPath(0, 0, 20, 0, 5));
+        assertEquals(4, cache.getMisses());
+
+        // outside of the board: ignored
+        cache.update(-1, 0);
+        cache.update(0, 40);
+        assertNull(cache.findPath(0, 0, 20, 0, 5));
+        assertEquals(4, cache.getMisses());
+    }
+
+    /**
+     * A path found while the board changed may be based on the old cells: it must not be cached.
+     */
+    @Test
+    public void testUpdateDuringSearch()
+    {
+        final MockBoard              m      = PathTestUtils.randomBoard(new Random(), 20, 20, 0);
+        final AStar                  astar  = new AStar(m, 20, 20);
+        final CachingPathAlgorithm[] holder = new CachingPathAlgorithm[1];
+        final IPathAlgorithm         racing = new IPathAlgorithm()
+        {
+            @Override
+            public Point[] findPath(final int startX, final int startY, final int endX, final int endY,
+                                    final int radius)
+            {
+                return astar.findPath(startX, startY, endX, endY, radius);
+            }
+
+            @Override
+            public int findPath(final int startX, final int startY, final int endX, final int endY,
+                                final int radius, final IPathSink sink)
+            {
+                // another thread changes a far cell
+                holder[0].update(19, 19);
+                return astar.findPath(startX, startY, endX, endY, radius, sink);
+            }
+        };
+        final CachingPathAlgorithm cache = new CachingPathAlgorithm(racing, 20, 20, 4, 16);
+        holder[0] = cache;
+
+        assertNotNull(cache.findPath(0, 0, 5, 0, -1));
+        assertNotNull(cache.findPath(0, 0, 5, 0, -1));
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testEviction()
+    {
+        final MockBoard            m     = PathTestUtils.randomBoard(new Random(), 10, 10, 0);
+        final CachingPathAlgorithm cache = new CachingPathAlgorithm(new AStar(m, 10, 10), 10, 10, 4, 2);
+
+        cache.findPath(0, 0, 9, 9, -1);
+        cache.findPath(0, 0, 5, 5, -1);
+        cache.findPath(0, 0, 9, 9, -1); // most recent now
+        cache.findPath(0, 0, 3, 3, -1); // evicts (5, 5)
+        assertEquals(1, cache.getHits());
+
+        cache.findPath(0, 0, 9, 9, -1);
+        assertEquals(2, cache.getHits());
+        cache.findPath(0, 0, 5, 5, -1);
+        assertEquals(2, cache.getHits());
+    }
+
+    /**
+     * Random queries and changes: the cached paths must always be walkable.
+     */
+    @Test
+    public void testValidPaths()
+    {
+        final Random               rand  = new Random();
+        final MockBoard            m     = PathTestUtils.randomBoard(rand, 30, 30, 20);
+        final CachingPathAlgorithm cache = new CachingPathAlgorithm(new AStar(m, 30, 30), 30, 30, 5, 64);
+
+        final int[] hotspots = new int[8];
+        for (int i = 0; i < hotspots.length; i++)
+            hotspots[i] = rand.nextInt(900);
+
+        final int[] packed = new int[900];
+        for (int i = 0; i < 2000; i++)
+        {
+            final int s   = hotspots[rand.nextInt(hotspots.length)];
+            final int e   = hotspots[rand.nextInt(hotspots.length)];
+            final int len = cache.findPath(s % 30, s / 30, e % 30, e / 30, -1, packed);
+            if (len > 0)
+            {
+                final Point[] path = new Point[len];
+                for (int k = 0; k < len; k++)
+                    path[k] = new Point(packed[k] >>> 16, packed[k] & 0xFFFF);
+                PathTestUtils.assertValidPath(m, path, s % 30, s / 30, e % 30, e / 30, true);
+            }
+
+            final int x = rand.nextInt(30);
+            final int y = rand.nextInt(30);
+            m.setObstacle(x, y, !m.isObstacle(x, y));
+            cache.update(x, y);
+        }
+        assertTrue(cache.getHits() > 0);
+    }
+}
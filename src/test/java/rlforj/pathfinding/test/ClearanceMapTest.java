@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding.test;
+
+import org.junit.Test;
+import rlforj.math.Point;
+import rlforj.pathfinding.AStar;
+import rlforj.pathfinding.ClearanceMap;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ClearanceMapTest
+{
+    /**
+     * Clearances match a brute force check of the squares, after computing and after each update.
+     */
+    @Test
+    public void testUpdates()
+    {
+        final Random rand = new Random();
+        for (int i = 0; i < 100; i++)
+        {
+            final int          w    = rand.nextInt(30) + 1;
+            final int          h    = rand.nextInt(30) + 1;
+            final MockBoard    m    = PathTestUtils.randomBoard(rand, w, h, rand.nextInt(30));
+            final ClearanceMap cmap = new ClearanceMap(m, w, h);
+            assertClearance(m, cmap, w, h);
+
+            for (int k = 0; k < 10; k++)
+            {
+                final int x = rand.nextInt(w);
+                final int y = rand.nextInt(h);
+                m.setObstacle(x, y, !m.isObstacle(x, y));
+                cmap.update(x, y);
+                assertClearance(m, cmap, w, h);
+            }
+        }
+    }
+
+    /**
+     * A large agent takes the optimal path among those where it fits.
+     */
+    @Test
+    public void testAgentSize()
+    {
+        final Random rand = new Random();
+        for (int i = 0; i < 300; i++)
+        {
+            final int          w        = rand.nextInt(40) + 1;
+            final int          h        = rand.nextInt(40) + 1;
+            final boolean      diagonal = rand.nextBoolean();
+            final int          size     = rand.nextInt(3) + 1;
+            final MockBoard    m        = PathTestUtils.randomBoard(rand, w, h, rand.nextInt(15));
+            final AStar        algo     = new AStar(m, w, h, diagonal);
+            algo.setClearanceMap(new ClearanceMap(m, w, h));
+
+            // the same board, where the cells that don't fit the agent are obstacles
+            final MockBoard fat = PathTestUtils.randomBoard(rand, w, h, 0);
+            for (int x = 0; x < w; x++)
+            {
+                for (int y = 0; y < h; y++)
+                    fat.setObstacle(x, y, bruteClearance(m, x, y, w, h) < size);
+            }
+
+            final int startx = rand.nextInt(w);
+            final int starty = rand.nextInt(h);
+            final int endx   = rand.nextInt(w);
+            final int endy   = rand.nextInt(h);
+
+            final Point[] path     = algo.findPath(startx, starty, endx, endy, -1, size, 0.0);
+            final double  expected = PathTestUtils.referenceCost(fat, startx, starty, endx, endy, -1, diagonal);
+            if (expected < 0)
+            {
+                assertNull(path);
+            }
+            else
+            {
+                assertNotNull(path);
+                PathTestUtils.assertValidPath(fat, path, startx, starty, endx, endy, diagonal);
+                assertEquals(expected, PathTestUtils.cost(path), PathTestUtils.EPSILON);
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNoClearanceMap()
+    {
+        final MockBoard m = new MockBoard("    \n    \n");
+
+        new AStar(m, 4, 2).findPath(0, 0, 3, 0, -1, 2, 0.0);
+    }
+
+    private static void assertClearance(final MockBoard m, final ClearanceMap cmap, final int w, final int h)
+    {
+        for (int x = 0; x < w; x++)
+        {
+            for (int y = 0; y < h; y++)
+                assertEquals("clearance of " + x + "," + y, bruteClearance(m, x, y, w, h), cmap.getClearance(x, y));
+        }
+    }
+
+    private static int bruteClearance(final MockBoard m, final int x, final int y, final int w, final int h)
+    {
+        int n = 0;
+        while (x + n < w && y + n < h && squareFree(m, x, y, n + 1))
+            n++;
+        return n;
+    }
+
+    private static boolean squareFree(final MockBoard m, final int x, final int y, final int n)
+    {
+        for (int dx = 0; dx < n; dx++)
+        {
+            for (int dy = 0; dy < n; dy++)
+            {
+                if (m.isObstacle(x + dx, y + dy))
+                    return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding.test;
+
+import org.junit.Test;
+import rlforj.math.Point;
+import rlforj.pathfinding.AStar;
+import rlforj.pathfinding.ConnectivityIndex;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ConnectivityIndexTest
+{
+    /**
+     * After random toggles, the incrementally updated index must describe the same partition
+     * of the board as an index built from scratch.
+     */
+    @Test
+    public void testUpdate()
+    {
+        final Random rand = new Random();
+        for (int i = 0; i < 200; i++)
+        {
+            final int       w        = rand.nextInt(30) + 3;
+            final int       h        = rand.nextInt(30) + 3;
+            final boolean   diagonal = rand.nextBoolean();
+            final MockBoard m        = PathTestUtils.randomBoard(rand, w, h, rand.nextInt(60));
+
+            final ConnectivityIndex index = new ConnectivityIndex(m, w, h, diagonal);
+            for (int u = 0; u < 50; u++)
+            {
+                final int x = rand.nextInt(w);
+                final int y = rand.nextInt(h);
+                m.setObstacle(x, y, !m.isObstacle(x, y));
+                index.update(x, y);
+
+                assertSamePartition(new ConnectivityIndex(m, w, h, diagonal), index, w, h);
+            }
+        }
+    }
+
+    /**
+     * With the index, AStar must still find a path if and only if one exists.
+     */
+    @Test
+    public void testAStar()
+    {
+        final Random rand = new Random();
+        for (int i = 0; i < 500; i++)
+        {
+            final int       w        = rand.nextInt(40) + 3;
+            final int       h        = rand.nextInt(40) + 3;
+            final boolean   diagonal = rand.nextBoolean();
+            final MockBoard m        = PathTestUtils.randomBoard(rand, w, h, rand.nextInt(60));
+
+            final AStar algo = new AStar(m, w, h, diagonal);
+            algo.setConnectivityIndex(new ConnectivityIndex(m, w, h, diagonal));
+
+            final int startx = rand.nextInt(w);
+            final int starty = rand.nextInt(h);
+            final int endx   = rand.nextInt(w);
+            final int endy   = rand.nextInt(h);
+
+            final Point[] path = algo.findPath(startx, starty, endx, endy, -1);
+            assertEquals("The index rejected a reachable end, or accepted an unreachable one",
+                         PathTestUtils.referenceCost(m, startx, starty, endx, endy, -1, diagonal) >= 0, path != null);
+        }
+    }
+
+    /**
+     * Labels of the components that disappear are reused, so that they don't grow with the number of updates.
+     */
+    @Test
+    public void testLabelReuse()
+    {
+        final MockBoard         m     = new MockBoard("# # #\n#####\n# # #\n");
+        final ConnectivityIndex index = new ConnectivityIndex(m, 5, 3, true);
+
+        int maxLabel = 0;
+        for (int i = 0; i < 1000; i++)
+        {
+            // an isolated cell opens and closes, and a wall splits a component and joins it again
+            m.setObstacle(2, 1, false);
+            index.update(2, 1);
+            m.setObstacle(1, 1, false);
+            index.update(1, 1);
+            m.setObstacle(2, 1, true);
+            index.update(2, 1);
+            maxLabel = Math.max(maxLabel, Math.max(index.getComponent(1, 1), index.getComponent(1, 0)));
+            m.setObstacle(1, 1, true);
+            index.update(1, 1);
+        }
+
+        assertTrue("labels keep growing: " + maxLabel, maxLabel <= 8);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMismatch()
+    {
+        final MockBoard m = new MockBoard("   \n   \n");
+        new AStar(m, 3, 2, true).setConnectivityIndex(new ConnectivityIndex(m, 3, 2, false));
+    }
+
+    private void assertSamePartition(final ConnectivityIndex expected, final ConnectivityIndex actual, final int w,
+                                     final int h)
+    {
+        final Map<Integer, Integer> forward  = new HashMap<>();
+        final Map<Integer, Integer> backward = new HashMap<>();
+        for (int y = 0; y < h; y++)
+        {
+            for (int x = 0; x < w; x++)
+            {
+                final int e = expected.getComponent(x, y);
+                final int a = actual.getComponent(x, y);
+                assertEquals("Obstacle mismatch at " + x + "," + y, e == 0, a == 0);
+
+                assertEquals("Components differ at " + x + "," + y, e, (int) forward.computeIfAbsent(a, k -> e));
+                assertEquals("Components differ at " + x + "," + y, a, (int) backward.computeIfAbsent(e, k -> a));
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding.test;
+
+import org.junit.Test;
+import rlforj.math.PackedPoint;
+import rlforj.pathfinding.CooperativeAStar;
+import rlforj.pathfinding.PathBatch;
+
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CooperativeAStarTest
+{
+    /**
+     * Two agents crossing a corridor in opposite directions: one must step into the alcove to let the other pass.
+     */
+    @Test
+    public void testCorridor()
+    {
+        final MockBoard m = new MockBoard("#####.####\n" + "..........\n" + "##########\n");
+
+        final CooperativeAStar algo   = new CooperativeAStar(m, 10, 3, 16);
+        final int[]            starts = { PackedPoint.pack(0, 1), PackedPoint.pack(9, 1) };
+        final int[]            goals  = { PackedPoint.pack(9, 1), PackedPoint.pack(0, 1) };
+
+        final PathBatch paths = algo.findPaths(starts, goals, 2);
+        assertNoCollisions(m, paths, starts, goals);
+
+        // both arrive within the window, and stay there
+        for (int i = 0; i < 2; i++)
+        {
+            assertEquals(algo.getWindow() + 1, paths.getLength(i));
+            assertEquals(goals[i], paths.getPoint(i, algo.getWindow()));
+        }
+
+        // the first agent has priority, and walks straight
+        assertEquals(goals[0], paths.getPoint(0, 9));
+    }
+
+    /**
+     * Crowds on random boards never meet, nor swap places.
+     */
+    @Test
+    public void testNoCollisions()
+    {
+        final Random rand = new Random();
+        for (int i = 0; i < 30; i++)
+        {
+            final int       w        = rand.nextInt(20) + 10;
+            final int       h        = rand.nextInt(20) + 10;
+            final boolean   diagonal = rand.nextBoolean();
+            final MockBoard m        = PathTestUtils.randomBoard(rand, w, h, rand.nextInt(20));
+
+            // distinct free starts, any goals
+            final int              count  = rand.nextInt(20) + 1;
+            final int[]            starts = new int[count];
+            final int[]            goals  = new int[count];
+            final HashSet<Integer> used   = new HashSet<>();
+            for (int k = 0; k < count; k++)
+            {
+                int x, y;
+                do
+                {
+                    x = rand.nextInt(w);
+                    y = rand.nextInt(h);
+                } while (m.isObstacle(x, y) || !used.add(PackedPoint.pack(x, y)));
+
+                starts[k] = PackedPoint.pack(x, y);
+                goals[k] = PackedPoint.pack(rand.nextInt(w), rand.nextInt(h));
+            }
+
+            final CooperativeAStar algo  = new CooperativeAStar(m, w, h, rand.nextInt(20) + 1, diagonal);
+            final PathBatch        paths = algo.findPaths(starts, goals, count);
+            assertNoCollisions(m, paths, starts, goals);
+        }
+    }
+
+    /**
+     * An agent that can't reach its goal stays on its start, and the others must not walk into it.
+     */
+    @Test
+    public void testUnreachableGoal()
+    {
+        final MockBoard m = new MockBoard(".....#.\n" + "######.\n");
+
+        final CooperativeAStar algo   = new CooperativeAStar(m, 7, 2, 8);
+        final int[]            starts = { PackedPoint.pack(0, 0), PackedPoint.pack(2, 0) };
+        final int[]            goals  = { PackedPoint.pack(4, 0), PackedPoint.pack(6, 0) };
+
+        final PathBatch paths = algo.findPaths(starts, goals, 2);
+        assertEquals(-1, paths.getLength(1));
+        assertFalse(algo.isBlocked(1));
+        assertEquals(algo.getWindow() + 1, paths.getLength(0));
+        assertNoCollisions(m, paths, starts, goals);
+
+        // the first agent gets as close as it can
+        assertEquals(PackedPoint.pack(1, 0), paths.getPoint(0, algo.getWindow()));
+    }
+
+    /**
+     * An agent boxed in by the agents planned before it can't move: it waits, and they must be planned again
+     * around it.
+     */
+    @Test
+    public void testBoxedIn()
+    {
+        final MockBoard m = new MockBoard("...\n");
+
+        final CooperativeAStar algo   = new CooperativeAStar(m, 3, 1, 4);
+        final int[]            starts = { PackedPoint.pack(0, 0), PackedPoint.pack(1, 0) };
+        final int[]            goals  = { PackedPoint.pack(2, 0), PackedPoint.pack(0, 0) };
+
+        final PathBatch paths = algo.findPaths(starts, goals, 2);
+        assertTrue(algo.isBlocked(1));
+        assertFalse(algo.isBlocked(0));
+        assertEquals(algo.getWindow() + 1, paths.getLength(1));
+        for (int t = 0; t <= algo.getWindow(); t++)
+            assertEquals(starts[1], paths.getPoint(1, t));
+        assertNoCollisions(m, paths, starts, goals);
+    }
+
+    /**
+     * After an update, the distances kept from the last plan must still be right: the plans are the same as those
+     * of a new instance.
+     */
+    @Test
+    public void testUpdate()
+    {
+        final Random    rand = new Random();
+        final MockBoard m    = PathTestUtils.randomBoard(rand, 20, 20, 25);
+
+        final CooperativeAStar algo   = new CooperativeAStar(m, 20, 20, 24);
+        final int[]            starts = new int[4];
+        final int[]            goals  = new int[4];
+        final HashSet<Integer> used   = new HashSet<>();
+        for (int k = 0; k < starts.length; k++)
+        {
+            int x, y;
+            do
+            {
+                x = rand.nextInt(20);
+                y = rand.nextInt(20);
+            } while (m.isObstacle(x, y) || !used.add(PackedPoint.pack(x, y)));
+
+            starts[k] = PackedPoint.pack(x, y);
+            goals[k] = PackedPoint.pack(rand.nextInt(20), rand.nextInt(20));
+        }
+
+        for (int round = 0; round < 10; round++)
+        {
+            final CooperativeAStar fresh    = new CooperativeAStar(m, 20, 20, 24);
+            final PathBatch        paths    = algo.findPaths(starts, goals, starts.length);
+            final PathBatch        expected = fresh.findPaths(starts, goals, starts.length);
+            assertNoCollisions(m, paths, starts, goals);
+            for (int k = 0; k < starts.length; k++)
+            {
+                assertEquals(expected.getLength(k), paths.getLength(k));
+                assertEquals(fresh.isBlocked(k), algo.isBlocked(k));
+                for (int t = 0; t < paths.getLength(k); t++)
+                    assertEquals(expected.getPoint(k, t), paths.getPoint(k, t));
+            }
+
+            // change cells that are not starts
+            for (int u = 0; u < 5; u++)
+            {
+                final int x = rand.nextInt(20);
+                final int y = rand.nextInt(20);
+                if (used.contains(PackedPoint.pack(x, y)))
+                    continue;
+
+                m.setObstacle(x, y, !m.isObstacle(x, y));
+                algo.update(x, y);
+            }
+        }
+    }
+
+    /**
+     * Agents that couldn't be planned stay on their start at every time step.
+     */
+    private static void assertNoCollisions(final MockBoard m, final PathBatch paths, final int[] starts,
+                                           final int[] goals)
+    {
+        int steps = 1;
+        for (int i = 0; i < paths.size(); i++)
+        {
+            final int len = paths.getLength(i);
+            if (len < 0)
+                continue;
+
+            steps = len;
+            assertEquals(starts[i], paths.getPoint(i, 0));
+            for (int t = 1; t < len; t++)
+            {
+                final int p = paths.getPoint(i, t);
+                final int q = paths.getPoint(i, t - 1);
+                assertTrue("not a step", Math.abs(PackedPoint.x(p) - PackedPoint.x(q)) <= 1 &&
+                                         Math.abs(PackedPoint.y(p) - PackedPoint.y(q)) <= 1);
+                assertTrue("walked into an obstacle",
+                           p == goals[i] || !m.isObstacle(PackedPoint.x(p), PackedPoint.y(p)));
+            }
+        }
+
+        for (int i = 0; i < paths.size(); i++)
+        {
+            for (int j = i + 1; j < paths.size(); j++)
+            {
+                for (int t = 0; t < steps; t++)
+                {
+                    assertNotEquals("agents " + i + " and " + j + " collide at time " + t,
+                                    position(paths, starts, i, t), position(paths, starts, j, t));
+                    if (t > 0)
+                        assertFalse("agents " + i + " and " + j + " swap at time " + t,
+                                    position(paths, starts, i, t) == position(paths, starts, j, t - 1) &&
+                                    position(paths, starts, j, t) == position(paths, starts, i, t - 1));
+                }
+            }
+        }
+    }
+
+    private static int position(final PathBatch paths, final int[] starts, final int agent, final int t)
+    {
+        return paths.getLength(agent) < 0 ? starts[agent] : paths.getPoint(agent, t);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding.test;
+
+import org.junit.Test;
+import rlforj.math.Point;
+import rlforj.pathfinding.DStarLite;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DStarLiteTest
+{
+    /**
+     * An agent walks towards a fixed goal while the board changes around it: every replanned path
+     * must be optimal for the current board.
+     */
+    @Test
+    public void testReplanning()
+    {
+        final Random rand = new Random();
+        for (int i = 0; i < 300; i++)
+        {
+            final int       w        = rand.nextInt(40) + 3;
+            final int       h        = rand.nextInt(40) + 3;
+            final boolean   diagonal = rand.nextBoolean();
+            final MockBoard m        = PathTestUtils.randomBoard(rand, w, h, rand.nextInt(40));
+
+            final DStarLite algo = new DStarLite(m, w, h, diagonal);
+
+            int       x    = rand.nextInt(w);
+            int       y    = rand.nextInt(h);
+            final int endx = rand.nextInt(w);
+            final int endy = rand.nextInt(h);
+
+            for (int step = 0; step < 20; step++)
+            {
+                final Point[] path     = algo.findPath(x, y, endx, endy);
+                final double  expected = PathTestUtils.referenceCost(m, x, y, endx, endy, -1, diagonal);
+                if (expected < 0)
+                {
+                    assertNull("D* Lite found a path that does not exist", path);
+                }
+                else
+                {
+                    assertNotNull("Path existed but D* Lite failed", path);
+                    PathTestUtils.assertValidPath(m, path, x, y, endx, endy, diagonal);
+                    assertEquals("D* Lite path is not optimal", expected, PathTestUtils.cost(path),
+                                 PathTestUtils.EPSILON);
+
+                    // move along the path
+                    if (path.length > 1)
+                    {
+                        x = path[1].x;
+                        y = path[1].y;
+                    }
+                }
+
+                for (int u = rand.nextInt(4); u > 0; u--)
+                {
+                    final int cx = rand.nextInt(w);
+                    final int cy = rand.nextInt(h);
+                    m.setObstacle(cx, cy, !m.isObstacle(cx, cy));
+                    algo.update(cx, cy);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replanning after a change away from the path must cost a small fraction of the first search.
+     */
+    @Test
+    public void testIncremental()
+    {
+        final MockBoard m = PathTestUtils.randomBoard(new Random(), 100, 100, 0);
+        for (int y = 0; y < 99; y++)
+            m.setObstacle(50, y, true);
+
+        final DStarLite algo = new DStarLite(m, 100, 100);
+        assertNotNull(algo.findPath(0, 50, 99, 50));
+        final int first = algo.getExpansions();
+
+        m.setObstacle(95, 5, true);
+        algo.update(95, 5);
+        assertNotNull(algo.findPath(1, 51, 99, 50));
+        assertTrue("Replanning expanded too many cells", algo.getExpansions() * 10 < first);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding.test;
+
+import org.junit.Test;
+import rlforj.math.Point;
+import rlforj.pathfinding.CostGrid;
+import rlforj.pathfinding.DialSearch;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DialSearchTest
+{
+    /**
+     * On random boards with random terrain, the bucket queue search must find optimal paths.
+     */
+    @Test
+    public void testOptimalPaths()
+    {
+        final Random rand = new Random();
+        for (int i = 0; i < 300; i++)
+        {
+            final int       w        = rand.nextInt(40) + 1;
+            final int       h        = rand.nextInt(40) + 1;
+            final boolean   diagonal = rand.nextBoolean();
+            final MockBoard m        = PathTestUtils.randomBoard(rand, w, h, rand.nextInt(30));
+
+            // mostly cheap terrain, with some expensive patches
+            final CostGrid costs = new CostGrid(m, w, h);
+            for (int k = 0; k < w * h / 3; k++)
+                costs.setCost(rand.nextInt(w), rand.nextInt(h), rand.nextBoolean() ? 2 + rand.nextInt(5) :
+                                                                 1 + rand.nextInt(CostGrid.MAX_COST));
+
+            final DialSearch algo = new DialSearch(costs, w, h, diagonal);
+
+            final int startx = rand.nextInt(w);
+            final int starty = rand.nextInt(h);
+            final int endx   = rand.nextInt(w);
+            final int endy   = rand.nextInt(h);
+            final int radius = rand.nextInt(5) == 0 ? rand.nextInt(10) + 1 : -1;
+
+            final Point[] path = algo.findPath(startx, starty, endx, endy, radius);
+            final double expected = PathTestUtils.referenceCost(m, startx, starty, endx, endy, radius, diagonal,
+                                                                costs);
+            if (expected < 0)
+            {
+                assertNull("Dial search found a path that does not exist", path);
+            }
+            else
+            {
+                assertNotNull("Path existed but Dial search failed", path);
+                PathTestUtils.assertValidPath(m, path, startx, starty, endx, endy, diagonal);
+                assertEquals("Dial search path is not optimal", expected, cost(path, costs), 1e-3);
+            }
+        }
+    }
+
+    /**
+     * A road around a swamp is longer, but cheaper.
+     */
+    @Test
+    public void testRoad()
+    {
+        final MockBoard m     = PathTestUtils.randomBoard(new Random(), 11, 5, 0);
+        final CostGrid  costs = new CostGrid(m, 11, 5);
+        for (int x = 1; x < 10; x++)
+        {
+            for (int y = 0; y < 4; y++)
+                costs.setCost(x, y, 10);
+        }
+
+        final Point[] path = new DialSearch(costs, 11, 5).findPath(0, 0, 10, 0);
+        assertNotNull(path);
+        for (final Point p : path)
+            assertEquals(1, costs.getCost(p.x, p.y));
+    }
+
+    private static double cost(final Point[] path, final CostGrid costs)
+    {
+        double c = 0.0;
+        for (int i = 1; i < path.length; i++)
+        {
+            final double step = path[i].x != path[i - 1].x && path[i].y != path[i - 1].y ? 1.1 : 1.0;
+            c += step * costs.getCost(path[i].x, path[i].y);
+        }
+        return c;
+    }
+}
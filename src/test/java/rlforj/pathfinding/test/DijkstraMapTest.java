@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding.test;
+
+import org.junit.Test;
+import rlforj.math.PackedPoint;
+import rlforj.pathfinding.DijkstraMap;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DijkstraMapTest
+{
+    /**
+     * Distances must be the cost of the optimal path to the best source (plus its weight), and following
+     * nextStep must reach a source spending exactly that.
+     */
+    @Test
+    public void testDistances()
+    {
+        final Random rand = new Random();
+        for (int i = 0; i < 200; i++)
+        {
+            final int       w        = rand.nextInt(30) + 3;
+            final int       h        = rand.nextInt(30) + 3;
+            final boolean   diagonal = rand.nextBoolean();
+            final MockBoard m        = PathTestUtils.randomBoard(rand, w, h, rand.nextInt(40));
+
+            final DijkstraMap dm      = new DijkstraMap(m, w, h, diagonal);
+            final int         sources = rand.nextInt(3) + 1;
+            final int[][]     src     = new int[sources][];
+            for (int s = 0; s < sources; s++)
+            {
+                src[s] = new int[] { rand.nextInt(w), rand.nextInt(h), rand.nextInt(3) * 100 };
+                // adding the same cell again replaces its weight
+                for (int t = 0; t < s; t++)
+                {
+                    if (src[t][0] == src[s][0] && src[t][1] == src[s][1])
+                        src[t][2] = src[s][2];
+                }
+                dm.addSource(src[s][0], src[s][1], src[s][2]);
+            }
+            dm.compute();
+
+            for (int q = 0; q < 10; q++)
+            {
+                final int x = rand.nextInt(w);
+                final int y = rand.nextInt(h);
+                if (m.isObstacle(x, y))
+                    continue;
+
+                assertEquals(expectedDistance(m, x, y, src, diagonal), dm.getDistance(x, y));
+                checkDescent(dm, x, y, diagonal);
+            }
+        }
+    }
+
+    /**
+     * After random changes to the board, the repaired distances must match a map computed from scratch.
+     */
+    @Test
+    public void testUpdate()
+    {
+        final Random rand = new Random();
+        for (int i = 0; i < 200; i++)
+        {
+            final int       w        = rand.nextInt(30) + 3;
+            final int       h        = rand.nextInt(30) + 3;
+            final boolean   diagonal = rand.nextBoolean();
+            final int       limit    = rand.nextBoolean() ? DijkstraMap.UNREACHABLE : rand.nextInt(2000);
+            final MockBoard m        = PathTestUtils.randomBoard(rand, w, h, rand.nextInt(50));
+
+            final DijkstraMap dm    = new DijkstraMap(m, w, h, diagonal);
+            final DijkstraMap fresh = new DijkstraMap(m, w, h, diagonal);
+            for (int s = rand.nextInt(3) + 1; s > 0; s--)
+            {
+                final int x      = rand.nextInt(w);
+                final int y      = rand.nextInt(h);
+                final int weight = rand.nextInt(3) * 100;
+                dm.addSource(x, y, weight);
+                fresh.addSource(x, y, weight);
+            }
+            dm.compute(limit);
+
+            for (int u = 0; u < 20; u++)
+            {
+                final int[] changed = new int[rand.nextInt(4) + 1];
+                for (int c = 0; c < changed.length; c++)
+                {
+                    final int x = rand.nextInt(w);
+                    final int y = rand.nextInt(h);
+                    m.setObstacle(x, y, !m.isObstacle(x, y));
+                    changed[c] = PackedPoint.pack(x, y);
+                }
+                dm.update(changed, changed.length);
+
+                fresh.compute(limit);
+                assertArrayEquals(fresh.getDistances(), dm.getDistances());
+            }
+        }
+    }
+
+    @Test
+    public void testMaxDistance()
+    {
+        final MockBoard   m  = new MockBoard("      \n");
+        final DijkstraMap dm = new DijkstraMap(m, 6, 1);
+        dm.addSource(0, 0);
+        dm.compute(300);
+
+        assertEquals(300, dm.getDistance(3, 0));
+        assertEquals(DijkstraMap.UNREACHABLE, dm.getDistance(4, 0));
+        assertEquals(PackedPoint.pack(3, 0), dm.nextStep(4, 0));
+        assertEquals(-1, dm.nextStep(5, 0));
+        assertEquals(PackedPoint.pack(2, 0), dm.nextStep(3, 0));
+        assertEquals(-1, dm.nextStep(0, 0));
+    }
+
+    static int expectedDistance(final MockBoard m, final int x, final int y, final int[][] src,
+                                final boolean diagonal)
+    {
+        int best = DijkstraMap.UNREACHABLE;
+        for (final int[] s : src)
+        {
+            final double c = PathTestUtils.referenceCost(m, x, y, s[0], s[1], -1, diagonal);
+            if (c >= 0)
+                best = (int) Math.min(best, Math.round(c * 100) + s[2]);
+        }
+        return best;
+    }
+
+    /**
+     * Walks down the gradient and checks that the cost paid matches the distance.
+     */
+    static void checkDescent(final DijkstraMap dm, int x, int y, final boolean diagonal)
+    {
+        final int start = dm.getDistance(x, y);
+        if (start == DijkstraMap.UNREACHABLE)
+        {
+            assertEquals(-1, dm.nextStep(x, y));
+            return;
+        }
+
+        int paid = 0;
+        int next;
+        while ((next = dm.nextStep(x, y)) >= 0)
+        {
+            final int nx = PackedPoint.x(next);
+            final int ny = PackedPoint.y(next);
+            assertTrue(diagonal || Math.abs(nx - x) + Math.abs(ny - y) == 1);
+
+            paid += nx != x && ny != y ? 110 : 100;
+            x = nx;
+            y = ny;
+        }
+
+        assertEquals("Descent cost does not match the distance", start, paid + dm.getDistance(x, y));
+    }
+}
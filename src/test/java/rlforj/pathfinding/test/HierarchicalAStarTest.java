@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding.test;
+
+import org.junit.Test;
+import rlforj.math.Point;
+import rlforj.pathfinding.AStar;
+import rlforj.pathfinding.AStarSearch;
+import rlforj.pathfinding.HierarchicalAStar;
+import rlforj.pathfinding.SearchStatus;
+import rlforj.pathfinding.SearchWorkspace;
+import rlforj.pathfinding.SectorGraph;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class HierarchicalAStarTest
+{
+    /**
+     * On random boards, with small sectors so that most paths cross many of them, HPA* must find
+     * a valid path exactly when one exists, also after the board changes.
+     */
+    @Test
+    public void testPaths()
+    {
+        final Random rand = new Random();
+        for (int i = 0; i < 300; i++)
+        {
+            final int       w        = rand.nextInt(40) + 3;
+            final int       h        = rand.nextInt(40) + 3;
+            final boolean   diagonal = rand.nextBoolean();
+            final MockBoard m        = PathTestUtils.randomBoard(rand, w, h, rand.nextInt(40));
+
+            final HierarchicalAStar algo =
+                new HierarchicalAStar(new SectorGraph(m, w, h, rand.nextInt(7) + 2, diagonal));
+
+            for (int q = 0; q < 10; q++)
+            {
+                final int startx = rand.nextInt(w);
+                final int starty = rand.nextInt(h);
+                final int endx   = rand.nextInt(w);
+                final int endy   = rand.nextInt(h);
+                final int radius = rand.nextInt(5) == 0 ? rand.nextInt(10) + 1 : -1;
+
+                final Point[] path     = algo.findPath(startx, starty, endx, endy, radius);
+                final double  expected = PathTestUtils.referenceCost(m, startx, starty, endx, endy, radius,
+                                                                     diagonal);
+                if (expected < 0)
+                {
+                    assertNull("HPA* found a path that does not exist", path);
+                }
+                else
+                {
+                    assertNotNull("Path existed but HPA* failed", path);
+                    PathTestUtils.assertValidPath(m, path, startx, starty, endx, endy, diagonal);
+                    if (radius < 0)
+                        assertTrue("HPA* path is shorter than optimal",
+                                   PathTestUtils.cost(path) > expected - PathTestUtils.EPSILON);
+                    else
+                        assertEquals("AStar path is not optimal", expected, PathTestUtils.cost(path),
+                                     PathTestUtils.EPSILON);
+                }
+
+                final int x = rand.nextInt(w);
+                final int y = rand.nextInt(h);
+                m.setObstacle(x, y, !m.isObstacle(x, y));
+                algo.update(x, y);
+            }
+        }
+    }
+
+    /**
+     * On a large board, long queries must expand fewer nodes than AStar, for paths only slightly longer.
+     */
+    @Test
+    public void testLargeBoard()
+    {
+        final Random            rand  = new Random();
+        final int               size  = 256;
+        final MockBoard         m     = PathTestUtils.randomBoard(rand, size, size, 20);
+        final HierarchicalAStar algo  = new HierarchicalAStar(m, size, size);
+        final AStar             astar = new AStar(m, size, size);
+        final SearchWorkspace   ws    = new SearchWorkspace(size, size);
+
+        long   hpaExpansions   = 0;
+        long   astarExpansions = 0;
+        double hpaCost         = 0.0;
+        double optimalCost     = 0.0;
+        for (int q = 0; q < 20; q++)
+        {
+            final int startx = rand.nextInt(size / 4);
+            final int starty = rand.nextInt(size);
+            final int endx   = size - 1 - rand.nextInt(size / 4);
+            final int endy   = rand.nextInt(size);
+
+            final AStarSearch search = astar.startSearch(startx, starty, endx, endy, -1, ws);
+            search.step(Integer.MAX_VALUE);
+            final Point[] path = algo.findPath(startx, starty, endx, endy);
+            if (search.getStatus() != SearchStatus.FOUND)
+            {
+                assertNull(path);
+                continue;
+            }
+
+            PathTestUtils.assertValidPath(m, path, startx, starty, endx, endy, true);
+            hpaExpansions += algo.getExpansions();
+            astarExpansions += search.getExpansions();
+            hpaCost += PathTestUtils.cost(path);
+            optimalCost += PathTestUtils.cost(search.getPath());
+        }
+
+        assertTrue(hpaExpansions * 2 < astarExpansions);
+        assertTrue(hpaCost <= optimalCost * 1.1);
+    }
+
+    /**
+     * An enclosed end is rejected without searching.
+     */
+    @Test
+    public void testEnclosedEnd()
+    {
+        final MockBoard m = PathTestUtils.randomBoard(new Random(), 64, 64, 0);
+        for (int dy = -1; dy <= 1; dy++)
+        {
+            for (int dx = -1; dx <= 1; dx++)
+            {
+                if (dx != 0 || dy != 0)
+                    m.setObstacle(50 + dx, 50 + dy, true);
+            }
+        }
+
+        final HierarchicalAStar algo = new HierarchicalAStar(new SectorGraph(m, 64, 64, 8, true));
+        assertNull(algo.findPath(0, 0, 50, 50));
+        assertEquals(0, algo.getExpansions());
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding.test;
+
+import org.junit.Test;
+import rlforj.math.Point;
+import rlforj.pathfinding.IPathAlgorithm;
+import rlforj.pathfinding.JumpPointSearch;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class JumpPointSearchTest
+{
+    /**
+     * On random boards, with and without diagonals and radius, JPS must find a path
+     * exactly when one exists, and it must be optimal.
+     */
+    @Test
+    public void testOptimalPaths()
+    {
+        final Random rand = new Random();
+        for (int i = 0; i < 1000; i++)
+        {
+            final int w = rand.nextInt(60) + 5;
+            final int h = rand.nextInt(60) + 5;
+
+            final MockBoard m        = PathTestUtils.randomBoard(rand, w, h, rand.nextInt(40));
+            final boolean   diagonal = rand.nextBoolean();
+
+            final int startx = rand.nextInt(w);
+            final int starty = rand.nextInt(h);
+            final int endx   = rand.nextInt(w);
+            final int endy   = rand.nextInt(h);
+            final int radius = rand.nextInt(3) == 0 ? rand.nextInt(30) + 1 : -1;
+
+            final IPathAlgorithm algo = new JumpPointSearch(m, w, h, diagonal);
+
+            final Point[] path     = algo.findPath(startx, starty, endx, endy, radius);
+            final double  expected = PathTestUtils.referenceCost(m, startx, starty, endx, endy, radius, diagonal);
+            if (expected < 0)
+            {
+                assertNull("JPS found a path that does not exist", path);
+            }
+            else
+            {
+                assertNotNull("Path existed but JPS failed", path);
+                PathTestUtils.assertValidPath(m, path, startx, starty, endx, endy, diagonal);
+                assertEquals("JPS path is not optimal", expected, PathTestUtils.cost(path), PathTestUtils.EPSILON);
+            }
+        }
+    }
+
+    @Test
+    public void testOpenField()
+    {
+        final Random    rand = new Random();
+        final MockBoard m    = PathTestUtils.randomBoard(rand, 200, 200, 0);
+        final Point[]   path = new JumpPointSearch(m, 200, 200).findPath(3, 5, 190, 120, -1);
+
+        PathTestUtils.assertValidPath(m, path, 3, 5, 190, 120, true);
+        assertEquals(PathTestUtils.referenceCost(m, 3, 5, 190, 120, -1, true), PathTestUtils.cost(path),
+                     PathTestUtils.EPSILON);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding.test;
+
+import org.junit.Test;
+import rlforj.math.Point;
+import rlforj.pathfinding.JumpPointSearch;
+import rlforj.pathfinding.JumpTable;
+import rlforj.util.Directions;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class JumpTableTest
+{
+    /**
+     * JPS+ must find a path exactly when one exists, and it must be optimal.
+     */
+    @Test
+    public void testOptimalPaths()
+    {
+        final Random rand = new Random();
+        for (int i = 0; i < 300; i++)
+        {
+            final int w = rand.nextInt(60) + 5;
+            final int h = rand.nextInt(60) + 5;
+
+            final MockBoard       m    = PathTestUtils.randomBoard(rand, w, h, rand.nextInt(40));
+            final JumpPointSearch algo = new JumpPointSearch(m, new JumpTable(m, w, h));
+
+            for (int q = 0; q < 10; q++)
+                checkQuery(rand, m, algo, w, h);
+        }
+    }
+
+    /**
+     * After changing random rectangles of a board, the incrementally updated table must be
+     * identical to one built from scratch, and JPS+ must still be optimal.
+     */
+    @Test
+    public void testUpdate()
+    {
+        final Random rand = new Random();
+        for (int i = 0; i < 200; i++)
+        {
+            final int w = rand.nextInt(50) + 5;
+            final int h = rand.nextInt(50) + 5;
+
+            final MockBoard       m     = PathTestUtils.randomBoard(rand, w, h, rand.nextInt(40));
+            final JumpTable       table = new JumpTable(m, w, h);
+            final JumpPointSearch algo  = new JumpPointSearch(m, table);
+
+            for (int u = 0; u < 5; u++)
+            {
+                final int minX = rand.nextInt(w);
+                final int minY = rand.nextInt(h);
+                final int maxX = Math.min(w - 1, minX + rand.nextInt(4));
+                final int maxY = Math.min(h - 1, minY + rand.nextInt(4));
+                for (int y = minY; y <= maxY; y++)
+                    for (int x = minX; x <= maxX; x++)
+                        m.setObstacle(x, y, rand.nextBoolean());
+
+                table.update(minX, minY, maxX, maxY);
+
+                final JumpTable fresh = new JumpTable(m, w, h);
+                for (int y = 0; y < h; y++)
+                    for (int x = 0; x < w; x++)
+                        for (final Directions d : Directions.values())
+                            assertEquals("Jump distance not repaired at " + x + "," + y + " " + d,
+                                         fresh.getJumpDistance(x, y, d), table.getJumpDistance(x, y, d));
+
+                checkQuery(rand, m, algo, w, h);
+            }
+        }
+    }
+
+    @Test
+    public void testJumpDistances()
+    {
+        final MockBoard m = new MockBoard("     \n" + " #   \n" + "     \n");
+        final JumpTable t = new JumpTable(m, 5, 3);
+
+        // moving east from (0, 0), (1, 0) has a forced neighbour (2, 1) because (1, 1) is a wall
+        assertEquals(1, t.getJumpDistance(0, 0, Directions.EAST));
+        assertEquals(-3, t.getJumpDistance(1, 0, Directions.EAST));
+        // same thing moving west from (4, 2), with (1, 2) as jump point
+        assertEquals(3, t.getJumpDistance(4, 2, Directions.WEST));
+        // moving along the y axis from (4, 0), nothing but the edge of the board
+        assertEquals(-2, t.getJumpDistance(4, 0, Directions.NORTH));
+        // straight into the wall
+        assertEquals(0, t.getJumpDistance(1, 0, Directions.NORTH));
+    }
+
+    private void checkQuery(final Random rand, final MockBoard m, final JumpPointSearch algo, final int w,
+                            final int h)
+    {
+        final int startx = rand.nextInt(w);
+        final int starty = rand.nextInt(h);
+        final int endx   = rand.nextInt(w);
+        final int endy   = rand.nextInt(h);
+
+        final Point[] path     = algo.findPath(startx, starty, endx, endy, -1);
+        final double  expected = PathTestUtils.referenceCost(m, startx, starty, endx, endy, -1, true);
+        if (expected < 0)
+        {
+            assertNull("JPS+ found a path that does not exist", path);
+        }
+        else
+        {
+            assertNotNull("Path existed but JPS+ failed", path);
+            PathTestUtils.assertValidPath(m, path, startx, starty, endx, endy, true);
+            assertEquals("JPS+ path is not optimal", expected, PathTestUtils.cost(path), PathTestUtils.EPSILON);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding.test;
+
+import org.junit.Test;
+import rlforj.math.PackedPoint;
+import rlforj.math.Point;
+import rlforj.pathfinding.AStar;
+import rlforj.pathfinding.AStarSearch;
+import rlforj.pathfinding.DijkstraMap;
+import rlforj.pathfinding.LandmarkHeuristic;
+import rlforj.pathfinding.SearchStatus;
+import rlforj.pathfinding.SearchWorkspace;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LandmarkHeuristicTest
+{
+    /**
+     * With landmarks, AStar must find optimal paths, also after the board changes.
+     */
+    @Test
+    public void testOptimalPaths()
+    {
+        final Random rand = new Random();
+        for (int i = 0; i < 200; i++)
+        {
+            final int       w        = rand.nextInt(40) + 1;
+            final int       h        = rand.nextInt(40) + 1;
+            final boolean   diagonal = rand.nextBoolean();
+            final MockBoard m        = PathTestUtils.randomBoard(rand, w, h, rand.nextInt(40));
+
+            final LandmarkHeuristic landmarks = new LandmarkHeuristic(m, w, h, diagonal, rand.nextInt(8) + 1);
+            final AStar             algo      = new AStar(m, w, h, diagonal);
+            algo.setHeuristic(landmarks);
+
+            for (int q = 0; q < 10; q++)
+            {
+                final int startx = rand.nextInt(w);
+                final int starty = rand.nextInt(h);
+                final int endx   = rand.nextInt(w);
+                final int endy   = rand.nextInt(h);
+                final int radius = rand.nextInt(5) == 0 ? rand.nextInt(10) + 1 : -1;
+
+                final Point[] path     = algo.findPath(startx, starty, endx, endy, radius);
+                final double  expected = PathTestUtils.referenceCost(m, startx, starty, endx, endy, radius, diagonal);
+                if (expected < 0)
+                {
+                    assertNull("AStar found a path that does not exist", path);
+                }
+                else
+                {
+                    assertNotNull("Path existed but AStar failed", path);
+                    PathTestUtils.assertValidPath(m, path, startx, starty, endx, endy, diagonal);
+                    assertEquals("AStar path with landmarks is not optimal", expected, PathTestUtils.cost(path),
+                                 PathTestUtils.EPSILON);
+                }
+
+                final int x = rand.nextInt(w);
+                final int y = rand.nextInt(h);
+                m.setObstacle(x, y, !m.isObstacle(x, y));
+                landmarks.update(x, y);
+            }
+        }
+    }
+
+    /**
+     * Across rooms joined by single doors, the landmarks must expand far fewer nodes than the octile distance.
+     */
+    @Test
+    public void testIndoorExpansions()
+    {
+        final Random    rand = new Random(7);
+        final int       size = 81;
+        final MockBoard m    = PathTestUtils.randomBoard(rand, size, size, 0);
+
+        // 8x8 rooms, with a door in each wall
+        for (int k = 0; k < size; k += 10)
+        {
+            for (int j = 0; j < size; j++)
+            {
+                m.setObstacle(k, j, true);
+                m.setObstacle(j, k, true);
+            }
+        }
+        for (int a = 0; a + 10 < size; a += 10)
+        {
+            for (int b = 0; b + 10 < size; b += 10)
+            {
+                m.setObstacle(a + 10, b + 1 + rand.nextInt(9), false);
+                m.setObstacle(a + 1 + rand.nextInt(9), b + 10, false);
+            }
+        }
+
+        final AStar octile = new AStar(m, size, size);
+        final AStar alt    = new AStar(m, size, size);
+        alt.setHeuristic(new LandmarkHeuristic(m, size, size, 8));
+
+        int octileExpansions = 0;
+        int altExpansions    = 0;
+        for (int q = 0; q < 20; q++)
+        {
+            final int startx = rand.nextInt(9) + 1;
+            final int starty = rand.nextInt(9) + 1;
+            final int endx   = size - 2 - rand.nextInt(9);
+            final int endy   = size - 2 - rand.nextInt(9);
+
+            final AStarSearch s1 = octile.startSearch(startx, starty, endx, endy, -1, 0.0,
+                                                      new SearchWorkspace(size, size));
+            final AStarSearch s2 = alt.startSearch(startx, starty, endx, endy, -1, 0.0,
+                                                   new SearchWorkspace(size, size));
+            assertEquals(SearchStatus.FOUND, s1.step(Integer.MAX_VALUE));
+            assertEquals(SearchStatus.FOUND, s2.step(Integer.MAX_VALUE));
+            assertEquals(PathTestUtils.cost(s1.getPath()), PathTestUtils.cost(s2.getPath()), PathTestUtils.EPSILON);
+
+            octileExpansions += s1.getExpansions();
+            altExpansions += s2.getExpansions();
+        }
+
+        assertTrue("landmarks: " + altExpansions + ", octile: " + octileExpansions,
+                   altExpansions * 2 < octileExpansions);
+    }
+
+    /**
+     * After updates, the estimate towards a landmark must be the distance of a new Dijkstra map from it: the
+     * distances repaired in place are exact.
+     */
+    @Test
+    public void testUpdate()
+    {
+        final Random rand = new Random();
+        for (int i = 0; i < 100; i++)
+        {
+            final int       w        = rand.nextInt(30) + 1;
+            final int       h        = rand.nextInt(30) + 1;
+            final boolean   diagonal = rand.nextBoolean();
+            final MockBoard m        = PathTestUtils.randomBoard(rand, w, h, rand.nextInt(40));
+
+            final LandmarkHeuristic landmarks = new LandmarkHeuristic(m, w, h, diagonal, rand.nextInt(4) + 1);
+            for (int u = 0; u < 10; u++)
+            {
+                final int x = rand.nextInt(w);
+                final int y = rand.nextInt(h);
+                m.setObstacle(x, y, !m.isObstacle(x, y));
+                landmarks.update(x, y);
+            }
+
+            for (int l = 0; l < landmarks.getLandmarkCount(); l++)
+            {
+                final int lx = PackedPoint.x(landmarks.getLandmark(l));
+                final int ly = PackedPoint.y(landmarks.getLandmark(l));
+
+                final DijkstraMap dm = new DijkstraMap(m, w, h, diagonal);
+                dm.addSource(lx, ly);
+                dm.compute();
+                for (int y = 0; y < h; y++)
+                {
+                    for (int x = 0; x < w; x++)
+                    {
+                        if (dm.getDistance(x, y) != DijkstraMap.UNREACHABLE)
+                            assertEquals(dm.getDistance(x, y), landmarks.estimate(x, y, lx, ly));
+                    }
+                }
+            }
+        }
+    }
+}
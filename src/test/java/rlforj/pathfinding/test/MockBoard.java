@@ -56,6 +56,11 @@ class MockBoard implements IBoard
         return isObstacle(x, y);
     }
 
+    public void setObstacle(final int x, final int y, final boolean obstacle)
+    {
+        this.obstacle[y][x] = obstacle;
+    }
+
     public void visit(final int x, final int y)
     {
     }
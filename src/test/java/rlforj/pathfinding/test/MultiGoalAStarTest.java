@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding.test;
+
+import org.junit.Test;
+import rlforj.math.PackedPoint;
+import rlforj.math.Point;
+import rlforj.pathfinding.MultiGoalAStar;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MultiGoalAStarTest
+{
+    /**
+     * The path must lead to one of the goals, and cost as much as the cheapest of the single-goal paths.
+     */
+    @Test
+    public void testNearestGoal()
+    {
+        final Random rand = new Random();
+        for (int i = 0; i < 300; i++)
+        {
+            final int       w        = rand.nextInt(40) + 1;
+            final int       h        = rand.nextInt(40) + 1;
+            final boolean   diagonal = rand.nextBoolean();
+            final MockBoard m        = PathTestUtils.randomBoard(rand, w, h, rand.nextInt(40));
+
+            final MultiGoalAStar algo = new MultiGoalAStar(m, w, h, diagonal);
+
+            final int   startx = rand.nextInt(w);
+            final int   starty = rand.nextInt(h);
+            final int   radius = rand.nextInt(5) == 0 ? rand.nextInt(10) : -1;
+            final int   count  = rand.nextInt(50) + 1;
+            final int[] goals  = new int[count];
+            for (int k = 0; k < count; k++)
+                goals[k] = PackedPoint.pack(rand.nextInt(w), rand.nextInt(h));
+
+            double expected = -1;
+            for (final int goal : goals)
+            {
+                final double c = PathTestUtils.referenceCost(m, startx, starty, PackedPoint.x(goal),
+                                                             PackedPoint.y(goal), radius, diagonal);
+                if (c >= 0 && (expected < 0 || c < expected))
+                    expected = c;
+            }
+
+            final Point[] path = algo.findPath(startx, starty, goals, count, radius);
+            if (expected < 0)
+            {
+                assertNull("Multi-goal A* found a path that does not exist", path);
+                continue;
+            }
+
+            assertNotNull("Path existed but multi-goal A* failed", path);
+            final Point end = path[path.length - 1];
+            boolean     hit = false;
+            for (final int goal : goals)
+                hit |= PackedPoint.pack(end.x, end.y) == goal;
+            assertTrue("the path does not end at a goal", hit);
+            PathTestUtils.assertValidPath(m, path, startx, starty, end.x, end.y, diagonal);
+            assertEquals("Multi-goal path is not optimal", expected, PathTestUtils.cost(path), PathTestUtils.EPSILON);
+        }
+    }
+
+    @Test
+    public void testPredicate()
+    {
+        final MockBoard m = new MockBoard("" +
+                                          "     \n" +
+                                          " ### \n" +
+                                          " # # \n" +
+                                          " ### \n" +
+                                          "     \n");
+
+        final MultiGoalAStar algo = new MultiGoalAStar(m, 5, 5);
+
+        // the nearest cell of the right column
+        final Point[] path = algo.findPath(0, 2, (x, y) -> x == 4, -1);
+        assertNotNull(path);
+        assertEquals(4, path[path.length - 1].x);
+        assertEquals(5.1, PathTestUtils.cost(path), PathTestUtils.EPSILON);
+
+        // the inside of the box can't be reached, but a wall can be if it's a goal
+        assertNull(algo.findPath(0, 2, (x, y) -> x == 2 && y == 2, -1));
+        assertEquals(2, algo.findPath(0, 2, (x, y) -> m.isObstacle(x, y), -1, (x, y) -> true));
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding.test;
+
+import org.junit.Test;
+import rlforj.math.PackedPoint;
+import rlforj.math.Point;
+import rlforj.pathfinding.AStar;
+import rlforj.pathfinding.HierarchicalAStar;
+import rlforj.pathfinding.IPathAlgorithm;
+import rlforj.pathfinding.JumpPointSearch;
+import rlforj.pathfinding.SectorGraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * The primitive outputs of the path algorithms must agree with the Point[] one.
+ */
+public class PackedPathTest
+{
+    @Test
+    public void testPacking()
+    {
+        assertEquals(65535, PackedPoint.x(PackedPoint.pack(65535, 3)));
+        assertEquals(3, PackedPoint.y(PackedPoint.pack(65535, 3)));
+        assertEquals(-7, PackedPoint.x(PackedPoint.packLong(-7, -100000)));
+        assertEquals(-100000, PackedPoint.y(PackedPoint.packLong(-7, -100000)));
+    }
+
+    @Test
+    public void testAStar()
+    {
+        checkOutputs((m, w, h) -> new AStar(m, w, h));
+    }
+
+    @Test
+    public void testJumpPointSearch()
+    {
+        checkOutputs((m, w, h) -> new JumpPointSearch(m, w, h));
+    }
+
+    @Test
+    public void testHierarchicalAStar()
+    {
+        checkOutputs((m, w, h) -> new HierarchicalAStar(new SectorGraph(m, w, h, 8, true)));
+    }
+
+    /**
+     * The default implementations, built on the Point[] method.
+     */
+    @Test
+    public void testDefaults()
+    {
+        checkOutputs((m, w, h) ->
+                     {
+                         final AStar a = new AStar(m, w, h);
+                         return (IPathAlgorithm) a::findPath;
+                     });
+    }
+
+    private void checkOutputs(final AlgorithmFactory factory)
+    {
+        final Random rand = new Random();
+        for (int i = 0; i < 300; i++)
+        {
+            final int w = rand.nextInt(40) + 5;
+            final int h = rand.nextInt(40) + 5;
+
+            final MockBoard      m    = PathTestUtils.randomBoard(rand, w, h, 25);
+            final IPathAlgorithm algo = factory.create(m, w, h);
+
+            final int startx = rand.nextInt(w);
+            final int starty = rand.nextInt(h);
+            final int endx   = rand.nextInt(w);
+            final int endy   = rand.nextInt(h);
+            final int radius = rand.nextBoolean() ? -1 : rand.nextInt(20);
+
+            final Point[] path = algo.findPath(startx, starty, endx, endy, radius);
+            final int     len  = path == null ? -1 : path.length;
+
+            final int[] full = new int[w * h];
+            assertEquals(len, algo.findPath(startx, starty, endx, endy, radius, full));
+
+            final long[] longs = new long[w * h];
+            assertEquals(len, algo.findPath(startx, starty, endx, endy, radius, longs));
+
+            // only the first steps
+            final int[] few = new int[3];
+            assertEquals(len, algo.findPath(startx, starty, endx, endy, radius, few));
+
+            final List<Point> streamed = new ArrayList<>();
+            assertEquals(len, algo.findPath(startx, starty, endx, endy, radius, (x, y) ->
+            {
+                streamed.add(new Point(x, y));
+                return streamed.size() < 4;
+            }));
+
+            if (path == null)
+            {
+                assertTrue(streamed.isEmpty());
+                continue;
+            }
+
+            assertEquals(Math.min(4, len), streamed.size());
+            for (int p = 0; p < len; p++)
+            {
+                assertEquals(path[p], new Point(PackedPoint.x(full[p]), PackedPoint.y(full[p])));
+                assertEquals(path[p], new Point(PackedPoint.x(longs[p]), PackedPoint.y(longs[p])));
+
+                if (p < few.length)
+                    assertEquals(path[p], new Point(PackedPoint.x(few[p]), PackedPoint.y(few[p])));
+                if (p < streamed.size())
+                    assertEquals(path[p], streamed.get(p));
+            }
+        }
+    }
+
+    private interface AlgorithmFactory
+    {
+        IPathAlgorithm create(MockBoard m, int w, int h);
+    }
+}
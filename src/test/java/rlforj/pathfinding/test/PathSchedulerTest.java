@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding.test;
+
+import org.junit.Test;
+import rlforj.math.PackedPoint;
+import rlforj.math.Point;
+import rlforj.pathfinding.AStar;
+import rlforj.pathfinding.PathRequest;
+import rlforj.pathfinding.PathScheduler;
+import rlforj.pathfinding.SearchStatus;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PathSchedulerTest
+{
+    /**
+     * With a small budget, searches carry over several ticks and still find optimal paths.
+     */
+    @Test
+    public void testBudget()
+    {
+        final Random        rand      = new Random();
+        final MockBoard     m         = PathTestUtils.randomBoard(rand, 50, 50, 25);
+        final AStar         astar     = new AStar(m, 50, 50);
+        final PathScheduler scheduler = new PathScheduler(astar, 50, 50, 4);
+        scheduler.setBudget(100, -1);
+
+        final PathRequest[] requests = new PathRequest[30];
+        for (int i = 0; i < requests.length; i++)
+            requests[i] = scheduler.submit(rand.nextInt(50), rand.nextInt(50), rand.nextInt(50), rand.nextInt(50), -1,
+                                           rand.nextInt(3));
+        assertEquals(requests.length, scheduler.getQueueDepth());
+
+        while (scheduler.getQueueDepth() > 0)
+        {
+            scheduler.tick();
+            assertTrue(scheduler.getLastExpansions() <= 100);
+            assertTrue(scheduler.getActive() <= 4);
+        }
+
+        for (final PathRequest r : requests)
+        {
+            assertTrue(r.isDone());
+            assertTrue(r.getWaitTicks() >= 1);
+            final int[] path = r.getPath();
+            if (r.getStatus() == SearchStatus.NO_PATH)
+            {
+                assertNull(path);
+                continue;
+            }
+
+            final Point[] points = new Point[path.length];
+            for (int j = 0; j < path.length; j++)
+                points[j] = new Point(PackedPoint.x(path[j]), PackedPoint.y(path[j]));
+            final Point[] expected = astar.findPath(PackedPoint.x(path[0]), PackedPoint.y(path[0]),
+                                                    PackedPoint.x(path[path.length - 1]),
+                                                    PackedPoint.y(path[path.length - 1]), -1, 0.0);
+            assertEquals(PathTestUtils.cost(expected), PathTestUtils.cost(points), PathTestUtils.EPSILON);
+        }
+
+        assertEquals(requests.length, scheduler.getCompleted());
+        assertTrue(scheduler.getMaxWaitTicks() > 1);
+        assertTrue(scheduler.getAverageWaitTicks() >= 1.0);
+    }
+
+    /**
+     * A request with a higher priority is served first, even if it came last.
+     */
+    @Test
+    public void testPriorities()
+    {
+        final MockBoard     m         = PathTestUtils.randomBoard(new Random(), 40, 40, 0);
+        final PathScheduler scheduler = new PathScheduler(new AStar(m, 40, 40), 40, 40, 1);
+        scheduler.setBudget(20, -1);
+
+        final PathRequest[] low = new PathRequest[5];
+        for (int i = 0; i < low.length; i++)
+            low[i] = scheduler.submit(0, i, 39, 39 - i, -1, 0);
+        final PathRequest high = scheduler.submit(39, 0, 0, 39, -1, 10);
+
+        while (!high.isDone())
+        {
+            scheduler.tick();
+            for (final PathRequest r : low)
+                assertFalse(r.isDone());
+        }
+
+        // the others, first come first served
+        while (scheduler.getQueueDepth() > 0)
+            scheduler.tick();
+        for (int i = 1; i < low.length; i++)
+            assertTrue(low[i - 1].getWaitTicks() <= low[i].getWaitTicks());
+    }
+
+    @Test
+    public void testCancel()
+    {
+        final MockBoard     m         = PathTestUtils.randomBoard(new Random(), 40, 40, 0);
+        final PathScheduler scheduler = new PathScheduler(new AStar(m, 40, 40), 40, 40, 1);
+        scheduler.setBudget(10, -1);
+
+        final PathRequest running = scheduler.submit(0, 0, 39, 39, -1, 0);
+        final PathRequest queued  = scheduler.submit(0, 39, 39, 0, -1, 0);
+        final PathRequest kept    = scheduler.submit(0, 0, 39, 0, -1, 0);
+        scheduler.tick();
+        assertEquals(1, scheduler.getActive());
+
+        running.cancel();
+        queued.cancel();
+        assertTrue(running.isCancelled());
+        assertTrue(running.isDone());
+        assertTrue(queued.isDone());
+        assertEquals(SearchStatus.CANCELLED, queued.getStatus());
+        assertEquals(1, scheduler.getQueueDepth());
+
+        while (scheduler.getQueueDepth() > 0)
+            scheduler.tick();
+        assertNotNull(kept.getPath());
+        assertNull(running.getPath());
+        assertNull(queued.getPath());
+        assertEquals(SearchStatus.CANCELLED, running.getStatus());
+        assertEquals(-1, running.getWaitTicks());
+        assertEquals(1, scheduler.getCompleted());
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding.test;
+
+import org.junit.Test;
+import rlforj.math.PackedPoint;
+import rlforj.math.Point;
+import rlforj.pathfinding.AStar;
+import rlforj.pathfinding.IPathAlgorithm;
+import rlforj.pathfinding.IPathSink;
+import rlforj.pathfinding.PathService;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PathServiceTest
+{
+    @Test
+    public void testPaths() throws Exception
+    {
+        final Random      rand    = new Random();
+        final MockBoard   m       = PathTestUtils.randomBoard(rand, 40, 40, 25);
+        final AStar       astar   = new AStar(m, 40, 40);
+        final PathService service = new PathService(astar, 4, 1000);
+
+        final int[][]                             queries = new int[200][];
+        final ArrayList<CompletableFuture<int[]>> futures = new ArrayList<>(queries.length);
+        for (int i = 0; i < queries.length; i++)
+        {
+            queries[i] = new int[] { rand.nextInt(40), rand.nextInt(40), rand.nextInt(40), rand.nextInt(40) };
+            futures.add(service.findPath(queries[i][0], queries[i][1], queries[i][2], queries[i][3]));
+        }
+
+        for (int i = 0; i < queries.length; i++)
+        {
+            final Point[] expected = astar.findPath(queries[i][0], queries[i][1], queries[i][2], queries[i][3]);
+            final int[]   path     = futures.get(i).get(10, TimeUnit.SECONDS);
+            if (expected == null)
+            {
+                assertNull(path);
+                continue;
+            }
+
+            assertEquals(expected.length, path.length);
+            for (int j = 0; j < path.length; j++)
+                assertEquals(PackedPoint.pack(expected[j].x, expected[j].y), path[j]);
+        }
+
+        assertEquals(0, service.getPending());
+        service.shutdown();
+    }
+
+    /**
+     * Identical queries made while the first is pending share its search; cancelling one caller doesn't
+     * cancel the others, cancelling all of them skips the search.
+     */
+    @Test
+    public void testCoalescingAndCancellation() throws Exception
+    {
+        final MockBoard      m       = PathTestUtils.randomBoard(new Random(), 20, 20, 0);
+        final BlockingSearch blocked = new BlockingSearch(new AStar(m, 20, 20));
+        final PathService    service = new PathService(blocked, 1, 10);
+
+        // occupies the only thread
+        final CompletableFuture<int[]> first = service.findPath(0, 0, 1, 1);
+        assertTrue(blocked.started.await(10, TimeUnit.SECONDS));
+
+        final CompletableFuture<int[]> a = service.findPath(0, 0, 19, 19);
+        final CompletableFuture<int[]> b = service.findPath(0, 0, 19, 19);
+        final CompletableFuture<int[]> c = service.findPath(5, 5, 19, 0);
+        assertEquals(1, service.getCoalesced());
+        assertEquals(3, service.getPending());
+
+        // a's search is still needed by b, c's is not needed at all
+        a.cancel(true);
+        c.cancel(true);
+        assertEquals(2, service.getPending());
+
+        blocked.release.countDown();
+        assertEquals(2, first.get(10, TimeUnit.SECONDS).length);
+        assertEquals(20, b.get(10, TimeUnit.SECONDS).length);
+        assertTrue(a.isCancelled());
+        assertTrue(c.isCancelled());
+
+        // the first query and the shared one: c never ran
+        assertEquals(2, blocked.calls.get());
+        service.shutdown();
+    }
+
+    @Test
+    public void testBoundedQueue() throws Exception
+    {
+        final MockBoard      m       = PathTestUtils.randomBoard(new Random(), 20, 20, 0);
+        final BlockingSearch blocked = new BlockingSearch(new AStar(m, 20, 20));
+        final PathService    service = new PathService(blocked, 1, 1);
+
+        final CompletableFuture<int[]> running = service.findPath(0, 0, 1, 1);
+        assertTrue(blocked.started.await(10, TimeUnit.SECONDS));
+        final CompletableFuture<int[]> queued   = service.findPath(0, 0, 2, 2);
+        final CompletableFuture<int[]> rejected = service.findPath(0, 0, 3, 3);
+
+        try
+        {
+            rejected.get(10, TimeUnit.SECONDS);
+            fail("the queue is full");
+        }
+        catch (final ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+
+        blocked.release.countDown();
+        assertNotNull(running.get(10, TimeUnit.SECONDS));
+        assertNotNull(queued.get(10, TimeUnit.SECONDS));
+        service.shutdown();
+    }
+
+    /**
+     * A cancelled search must give its place in the queue back at once, not when a thread reaches it.
+     */
+    @Test
+    public void testCancelFreesQueue() throws Exception
+    {
+        final MockBoard      m       = PathTestUtils.randomBoard(new Random(), 20, 20, 0);
+        final BlockingSearch blocked = new BlockingSearch(new AStar(m, 20, 20));
+        final PathService    service = new PathService(blocked, 1, 1);
+
+        final CompletableFuture<int[]> running = service.findPath(0, 0, 1, 1);
+        assertTrue(blocked.started.await(10, TimeUnit.SECONDS));
+        service.findPath(0, 0, 2, 2).cancel(true);
+        final CompletableFuture<int[]> queued = service.findPath(0, 0, 3, 3);
+
+        blocked.release.countDown();
+        assertNotNull(running.get(10, TimeUnit.SECONDS));
+        assertEquals(4, queued.get(10, TimeUnit.SECONDS).length);
+        service.shutdown();
+    }
+
+    /**
+     * Any failure of the algorithm, even an Error, completes the future and frees the query.
+     */
+    @Test
+    public void testFailure() throws Exception
+    {
+        final PathService service = new PathService(new FailingSearch(), 1, 10);
+        try
+        {
+            service.findPath(0, 0, 1, 1).get(10, TimeUnit.SECONDS);
+            fail("the search failed");
+        }
+        catch (final ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof AssertionError);
+        }
+
+        assertEquals(0, service.getPending());
+        service.shutdown();
+    }
+
+    /**
+     * Counts the searches, and holds them until released.
+     */
+    private static final class BlockingSearch implements IPathAlgorithm
+    {
+        final IPathAlgorithm algorithm;
+        final AtomicInteger  calls   = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        BlockingSearch(final IPathAlgorithm algorithm)
+        {
+            this.algorithm = algorithm;
+        }
+
+        @Override
+        public Point[] findPath(final int startX, final int startY, final int endX, final int endY,
+                                final int radius)
+        {
+            return algorithm.findPath(startX, startY, endX, endY, radius);
+        }
+
+        @Override
+        public int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                            final IPathSink sink)
+        {
+            calls.incrementAndGet();
+            started.countDown();
+            try
+            {
+                release.await();
+            }
+            catch (final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            return algorithm.findPath(startX, startY, endX, endY, radius, sink);
+        }
+    }
+
+    private static final class FailingSearch implements IPathAlgorithm
+    {
+        @Override
+        public Point[] findPath(final int startX, final int startY, final int endX, final int endY,
+                                final int radius)
+        {
+            throw new AssertionError("broken");
+        }
+
+        @Override
+        public int findPath(final int startX, final int startY, final int endX, final int endY, final int radius,
+                            final IPathSink sink)
+        {
+            throw new AssertionError("broken");
+        }
+    }
+}
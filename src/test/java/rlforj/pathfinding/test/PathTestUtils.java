@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding.test;
+
+import rlforj.IBoard;
+import rlforj.math.Point;
+import rlforj.pathfinding.CostGrid;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Helpers shared by the pathfinding tests: random boards, path validation and
+ * a slow but obviously correct reference search.
+ */
+class PathTestUtils
+{
+    static final double EPSILON = 1e-6;
+
+    static MockBoard randomBoard(final Random rand, final int w, final int h, final int obstaclePercent)
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (int k = 0; k < h; k++)
+        {
+            for (int j = 0; j < w; j++)
+                sb.append(rand.nextInt(100) < obstaclePercent ? '#' : ' ');
+            sb.append('\n');
+        }
+        return new MockBoard(sb.toString());
+    }
+
+    /**
+     * Checks that the path goes from start to end, through adjacent cells that are not obstacles.
+     */
+    static void assertValidPath(final IBoard b, final Point[] path, final int startX, final int startY,
+                                final int endX, final int endY, final boolean diagonal)
+    {
+        assertNotNull(path);
+        assertEquals("Path did not start with the starting point", new Point(startX, startY), path[0]);
+        assertEquals("Path did not end with the ending point", new Point(endX, endY), path[path.length - 1]);
+
+        for (int i = 1; i < path.length; i++)
+        {
+            final int dx = Math.abs(path[i].x - path[i - 1].x);
+            final int dy = Math.abs(path[i].y - path[i - 1].y);
+
+            assertTrue("Discontinuous path", dx <= 1 && dy <= 1 && dx + dy > 0);
+            assertTrue("Diagonal step when not allowed", diagonal || dx + dy == 1);
+
+            if (i < path.length - 1)
+                assertFalse("A point on the path was an obstacle", b.isObstacle(path[i].x, path[i].y));
+        }
+    }
+
+    /**
+     * Cost of a path of adjacent cells, with the same step costs as AStar.
+     */
+    static double cost(final Point[] path)
+    {
+        double c = 0.0;
+        for (int i = 1; i < path.length; i++)
+            c += path[i].x != path[i - 1].x && path[i].y != path[i - 1].y ? 1.1 : 1.0;
+        return c;
+    }
+
+    /**
+     * Plain Dijkstra, with the same movement rules as AStar (including the radius box).
+     *
+     * @return the cost of the optimal path, or -1 if there is none
+     */
+    static double referenceCost(final MockBoard b, final int startX, final int startY, final int endX,
+                                final int endY, final int radius, final boolean diagonal)
+    {
+        return referenceCost(b, startX, startY, endX, endY, radius, diagonal, null);
+    }
+
+    /**
+     * As above, with each step also multiplied by the cost of the cell entered.
+     *
+     * @param costs terrain costs, or null if all cells cost 1
+     */
+    static double referenceCost(final MockBoard b, final int startX, final int startY, final int endX,
+                                final int endY, final int radius, final boolean diagonal, final CostGrid costs)
+    {
+        final int w = b.getWidth();
+        final int h = b.getHeight();
+
+        final int minX = radius < 0 ? 0 : Math.max(0, startX - radius);
+        final int minY = radius < 0 ? 0 : Math.max(0, startY - radius);
+        final int maxX = radius < 0 ? w - 1 : Math.min(w - 1, startX + radius);
+        final int maxY = radius < 0 ? h - 1 : Math.min(h - 1, startY + radius);
+
+        final double[] dist = new double[w * h];
+        Arrays.fill(dist, Double.MAX_VALUE);
+
+        final PriorityQueue<double[]> q = new PriorityQueue<>((a, c) -> Double.compare(a[0], c[0]));
+        dist[startY * w + startX] = 0.0;
+        q.add(new double[] { 0.0, startX, startY });
+        while (!q.isEmpty())
+        {
+            final double[] e = q.poll();
+            final int      x = (int) e[1];
+            final int      y = (int) e[2];
+            if (e[0] > dist[y * w + x])
+                continue;
+            if (x == endX && y == endY)
+                return e[0];
+
+            for (int dx = -1; dx <= 1; dx++)
+            {
+                for (int dy = -1; dy <= 1; dy++)
+                {
+                    if ((dx == 0 && dy == 0) || (dx != 0 && dy != 0 && !diagonal))
+                        continue;
+
+                    final int cx = x + dx;
+                    final int cy = y + dy;
+                    if (cx < minX || cy < minY || cx > maxX || cy > maxY)
+                        continue;
+                    if ((cx != endX || cy != endY) && b.isObstacle(cx, cy))
+                        continue;
+
+                    final double g = e[0] + (dx != 0 && dy != 0 ? 1.1 : 1.0) * (costs == null ? 1 :
+                                                                                 costs.getCost(cx, cy));
+                    if (g < dist[cy * w + cx] - EPSILON)
+                    {
+                        dist[cy * w + cx] = g;
+                        q.add(new double[] { g, cx, cy });
+                    }
+                }
+            }
+        }
+
+        return -1;
+    }
+}
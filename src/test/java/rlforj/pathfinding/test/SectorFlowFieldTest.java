@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding.test;
+
+import org.junit.Test;
+import rlforj.math.PackedPoint;
+import rlforj.pathfinding.DijkstraMap;
+import rlforj.pathfinding.SectorFlowField;
+import rlforj.pathfinding.SectorGraph;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SectorFlowFieldTest
+{
+    /**
+     * The lazily integrated distances must match a Dijkstra map from the same goal, also after the board
+     * changes, and following the field must reach the goal.
+     */
+    @Test
+    public void testDistances()
+    {
+        final Random rand = new Random();
+        for (int i = 0; i < 200; i++)
+        {
+            final int       w        = rand.nextInt(30) + 3;
+            final int       h        = rand.nextInt(30) + 3;
+            final boolean   diagonal = rand.nextBoolean();
+            final MockBoard m        = PathTestUtils.randomBoard(rand, w, h, rand.nextInt(40));
+
+            final SectorGraph     graph = new SectorGraph(m, w, h, rand.nextInt(6) + 2, diagonal);
+            final SectorFlowField field = new SectorFlowField(graph);
+
+            for (int round = 0; round < 3; round++)
+            {
+                final int gx = rand.nextInt(w);
+                final int gy = rand.nextInt(h);
+                field.setGoal(gx, gy);
+
+                final DijkstraMap dm = new DijkstraMap(m, w, h, diagonal);
+                dm.addSource(gx, gy);
+                dm.compute();
+
+                for (int q = 0; q < 20; q++)
+                {
+                    final int x = rand.nextInt(w);
+                    final int y = rand.nextInt(h);
+                    if (m.isObstacle(x, y))
+                        continue;
+
+                    assertEquals(dm.getDistance(x, y), field.getDistance(x, y));
+                    checkDescent(field, x, y, gx, gy);
+                }
+
+                // change a few cells: the field must notice on the next query
+                for (int u = 0; u < 3; u++)
+                {
+                    final int x = rand.nextInt(w);
+                    final int y = rand.nextInt(h);
+                    m.setObstacle(x, y, !m.isObstacle(x, y));
+                    graph.update(x, y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Querying next to the goal must not integrate the whole board.
+     */
+    @Test
+    public void testLazy()
+    {
+        final int       size = 128;
+        final MockBoard m    = PathTestUtils.randomBoard(new Random(), size, size, 0);
+
+        final SectorFlowField field = new SectorFlowField(new SectorGraph(m, size, size, 16, true));
+        field.setGoal(3, 3);
+        assertEquals(0, field.getIntegratedSectors());
+
+        assertEquals(220, field.getDistance(5, 5));
+        assertEquals(1, field.getIntegratedSectors());
+
+        assertEquals(PackedPoint.pack(4, 4), field.nextStep(5, 5));
+        assertEquals(1, field.getIntegratedSectors());
+
+        assertEquals(124 * 110, field.getDistance(127, 127));
+        assertTrue(field.getIntegratedSectors() <= 2);
+    }
+
+    /**
+     * Nodes the goal can't reach must not make a query settle the whole component of the goal.
+     */
+    @Test
+    public void testWalledOff()
+    {
+        final int       w = 32;
+        final int       h = 256;
+        final MockBoard m = PathTestUtils.randomBoard(new Random(), w, h, 0);
+        for (int y = 0; y < h; y++)
+            m.setObstacle(28, y, true);
+
+        final SectorFlowField field = new SectorFlowField(new SectorGraph(m, w, h, 8, true));
+        field.setGoal(1, 1);
+        assertEquals(2400, field.getDistance(25, 1));
+        assertEquals(DijkstraMap.UNREACHABLE, field.getDistance(30, 1));
+        final int near = field.getSettledNodes();
+
+        field.getDistance(1, h - 1);
+        assertTrue(near * 4 < field.getSettledNodes());
+    }
+
+    private static void checkDescent(final SectorFlowField field, int x, int y, final int gx, final int gy)
+    {
+        final int start = field.getDistance(x, y);
+        if (start == DijkstraMap.UNREACHABLE)
+        {
+            assertEquals(-1, field.nextStep(x, y));
+            return;
+        }
+
+        int paid = 0;
+        int next;
+        while ((next = field.nextStep(x, y)) >= 0)
+        {
+            final int nx = PackedPoint.x(next);
+            final int ny = PackedPoint.y(next);
+            paid += nx != x && ny != y ? 110 : 100;
+            x = nx;
+            y = ny;
+        }
+
+        assertEquals(gx, x);
+        assertEquals(gy, y);
+        assertEquals(start, paid);
+    }
+}
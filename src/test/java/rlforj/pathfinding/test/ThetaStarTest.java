@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.pathfinding.test;
+
+import org.junit.Test;
+import rlforj.math.Point;
+import rlforj.pathfinding.ThetaStar;
+import rlforj.util.BresenhamLine;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ThetaStarTest
+{
+    /**
+     * Theta* must find a path exactly when one exists, made of straight segments that only cross walkable
+     * cells, with or without the LoS cache.
+     */
+    @Test
+    public void testSegments()
+    {
+        final Random rand = new Random();
+        for (int i = 0; i < 300; i++)
+        {
+            final int       w = rand.nextInt(50) + 1;
+            final int       h = rand.nextInt(50) + 1;
+            final MockBoard m = PathTestUtils.randomBoard(rand, w, h, rand.nextInt(40));
+
+            final ThetaStar plain  = new ThetaStar(m, w, h);
+            final ThetaStar cached = new ThetaStar(m, w, h);
+            cached.setLosCache(true);
+
+            final int startx = rand.nextInt(w);
+            final int starty = rand.nextInt(h);
+            final int endx   = rand.nextInt(w);
+            final int endy   = rand.nextInt(h);
+            final int radius = rand.nextInt(5) == 0 ? rand.nextInt(10) + 1 : -1;
+
+            final Point[] path     = plain.findPath(startx, starty, endx, endy, radius);
+            final double  expected = PathTestUtils.referenceCost(m, startx, starty, endx, endy, radius, true);
+            if (expected < 0)
+            {
+                assertNull("Theta* found a path that does not exist", path);
+                continue;
+            }
+
+            assertNotNull("Path existed but Theta* failed", path);
+            assertEquals(new Point(startx, starty), path[0]);
+            assertEquals(new Point(endx, endy), path[path.length - 1]);
+            for (int k = 1; k < path.length; k++)
+                assertClear(m, path[k - 1], path[k], path[0], path[path.length - 1]);
+
+            assertArrayEquals(path, cached.findPath(startx, starty, endx, endy, radius));
+            assertTrue(cached.getLosChecks() <= plain.getLosChecks());
+        }
+    }
+
+    @Test
+    public void testFewerWaypoints()
+    {
+        final MockBoard m = new MockBoard("" +
+                                          "                    \n" +
+                                          "                    \n" +
+                                          "        ####        \n" +
+                                          "        ####        \n" +
+                                          "                    \n" +
+                                          "                    \n");
+
+        final Point[] path = new ThetaStar(m, 20, 6).findPath(0, 3, 19, 2);
+        assertNotNull(path);
+
+        // one turn around the block, instead of a cell at a time
+        assertTrue(path.length <= 4);
+        for (int k = 1; k < path.length; k++)
+            assertClear(m, path[k - 1], path[k], path[0], path[path.length - 1]);
+
+        // no obstacle in between: the start sees the end
+        assertEquals(2, new ThetaStar(m, 20, 6).findPath(0, 0, 19, 1).length);
+    }
+
+    private static void assertClear(final MockBoard m, final Point a, final Point b, final Point start,
+                                    final Point end)
+    {
+        final int   len = Math.max(Math.abs(a.x - b.x), Math.abs(a.y - b.y)) + 1;
+        final int[] xs  = new int[len];
+        final int[] ys  = new int[len];
+        BresenhamLine.plot(a.x, a.y, b.x, b.y, xs, ys);
+        for (int i = 0; i < len; i++)
+        {
+            final Point p = new Point(xs[i], ys[i]);
+            if (!p.equals(start) && !p.equals(end))
+                assertFalse("segment " + a + " - " + b + " crosses an obstacle at " + p, m.isObstacle(p.x, p.y));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.util.test;
+
+import org.junit.Test;
+import rlforj.util.BucketQueue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * BucketQueue Test
+ */
+public class BucketQueueTest
+{
+    /**
+     * Random monotone adds, updates and removals, checked against a brute force minimum.
+     */
+    @Test
+    public void testQueueFunctionality()
+    {
+        final Random      rand = new Random();
+        final int         n    = 2000;
+        final int         span = 100;
+        final BucketQueue q    = new BucketQueue(n, span);
+        final int[]       keys = new int[n];
+        Arrays.fill(keys, Integer.MAX_VALUE);
+
+        int last = 0;
+        for (int i = 0; i < 50000; i++)
+        {
+            final int item = rand.nextInt(n);
+            final int op   = rand.nextInt(100);
+            if (op < 50)
+            {
+                final int key = last + rand.nextInt(span + 1);
+                q.addOrUpdate(item, key);
+                keys[item] = key;
+            }
+            else if (op < 60)
+            {
+                q.remove(item);
+                keys[item] = Integer.MAX_VALUE;
+            }
+            else
+            {
+                int min = Integer.MAX_VALUE;
+                for (final int k : keys)
+                    min = Math.min(min, k);
+
+                assertEquals(min, q.peekKey());
+
+                final int polled = q.poll();
+                if (min == Integer.MAX_VALUE)
+                {
+                    assertEquals(-1, polled);
+                }
+                else
+                {
+                    assertEquals(min, keys[polled]);
+                    keys[polled] = Integer.MAX_VALUE;
+                    last = min;
+                }
+            }
+
+            int size = 0;
+            for (final int k : keys)
+                size += k != Integer.MAX_VALUE ? 1 : 0;
+            assertEquals(size, q.size());
+        }
+
+        q.clear();
+        assertTrue(q.isEmpty());
+        assertEquals(-1, q.poll());
+        for (int i = 0; i < n; i++)
+            assertFalse(q.contains(i));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutOfRange()
+    {
+        final BucketQueue q = new BucketQueue(10, 5);
+        q.add(0, 10);
+        q.add(1, 16);
+    }
+}
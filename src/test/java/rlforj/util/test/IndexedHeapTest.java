@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2017, Fabio Ticconi, fabio.ticconi@gmail.com
+ * Copyright (c) 2013, kba
+ * All rights reserved.
+ */
+
+package rlforj.util.test;
+
+import org.junit.Test;
+import rlforj.util.IndexedHeap;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * IndexedHeap Test
+ */
+public class IndexedHeapTest
+{
+    /**
+     * Random adds, updates and removals, checked against a brute force minimum.
+     */
+    @Test
+    public void testHeapFunctionality()
+    {
+        final Random      rand = new Random();
+        final int         n    = 2000;
+        final IndexedHeap h    = new IndexedHeap(n);
+        final long[]      keys = new long[n];
+        Arrays.fill(keys, Long.MAX_VALUE);
+
+        for (int i = 0; i < 20000; i++)
+        {
+            final int item = rand.nextInt(n);
+            final int op   = rand.nextInt(100);
+            if (op < 50)
+            {
+                final long key = rand.nextInt(10000);
+                h.addOrUpdate(item, key);
+                keys[item] = key;
+            }
+            else if (op < 60)
+            {
+                h.remove(item);
+                keys[item] = Long.MAX_VALUE;
+            }
+            else
+            {
+                long min = Long.MAX_VALUE;
+                for (final long k : keys)
+                    min = Math.min(min, k);
+
+                assertEquals(min, h.peekKey());
+
+                final int polled = h.poll();
+                if (min == Long.MAX_VALUE)
+                {
+                    assertEquals(-1, polled);
+                }
+                else
+                {
+                    assertEquals("IndexedHeap does not match minimum at " + i, min, keys[polled]);
+                    keys[polled] = Long.MAX_VALUE;
+                }
+            }
+
+            assertEquals(h.contains(item), keys[item] != Long.MAX_VALUE);
+            if (h.contains(item))
+                assertEquals(keys[item], h.getKey(item));
+        }
+    }
+
+    @Test
+    public void testClear()
+    {
+        final IndexedHeap h = new IndexedHeap(10);
+        h.add(3, 5);
+        h.add(7, 1);
+        h.clear();
+
+        assertTrue(h.isEmpty());
+        assertFalse(h.contains(3));
+        assertFalse(h.contains(7));
+
+        h.add(7, 2);
+        h.add(3, 1);
+        assertEquals(3, h.poll());
+        assertEquals(7, h.poll());
+        assertEquals(-1, h.poll());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateAdd()
+    {
+        final IndexedHeap h = new IndexedHeap(10);
+        h.add(3, 5);
+        h.add(3, 1);
+    }
+}